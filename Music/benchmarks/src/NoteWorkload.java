@@ -0,0 +1,51 @@
+import benchmarks.Workload;
+
+/**
+ * Transposes every spelling PitchTable knows, in every key, by every number of half steps from -5 to 6: through a
+ * new Note each time, as the Parser does, or straight through the PitchTable, as the ScoreRenderer does
+ */
+public class NoteWorkload implements Workload {
+
+    private static final String[] KEYS = {"A", "B&", "B", "C", "D&", "D", "E&", "E", "F", "G&", "G", "A&"};
+
+    private final String[] names = new String[PitchTable.UNKNOWN + 1];
+    private final TranspositionContext[] contexts = new TranspositionContext[KEYS.length * 12];
+    private boolean note;
+
+    @Override
+    public void setUp(byte[] score, String variant) {
+        for (int code = 0; code < names.length; code++) {
+            names[code] = code == PitchTable.UNKNOWN ? "H" : PitchTable.name(code);
+        }
+        for (int k = 0; k < KEYS.length; k++) {
+            for (int n = 0; n < 12; n++) {
+                TranspositionContext context = new TranspositionContext(n - 5);
+                context.setKey(KEYS[k]);
+                context.setOctave(1);
+                contexts[k * 12 + n] = context;
+            }
+        }
+        this.note = "Note".equals(variant);
+    }
+
+    @Override
+    public long run() {
+        long sum = 0;
+        for (TranspositionContext context : contexts) {
+            if (note) {
+                for (String name : names) {
+                    Note n = new Note(name, context);
+                    n.transpose();
+                    sum += n.getOctave() + n.getNote().length();
+                }
+            } else {
+                int steps = context.getNumHalfSteps();
+                int key = context.getKeyIndex();
+                for (int code = 0; code < names.length; code++) {
+                    sum += PitchTable.transpose(code, steps, key) + PitchTable.octaveShift(code, steps);
+                }
+            }
+        }
+        return sum;
+    }
+}
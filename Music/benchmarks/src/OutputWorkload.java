@@ -0,0 +1,125 @@
+import benchmarks.Workload;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Prints a transposed score into an Output over a discarding PrintStream, a ChannelOutput over a discarding
+ * channel, or a new CaptureSink. The calls are those an IterativeParser makes on its Sink, recorded once, so that
+ * only the Sink is measured.
+ */
+public class OutputWorkload implements Workload {
+
+    //Kinds of call
+    private static final byte TEXT = 0;
+    private static final byte CHAR = 1;
+    private static final byte INT = 2;
+
+    private byte[] kinds;
+    private int[] values; //The char or int printed, or the index of the text
+    private CharSequence[] texts;
+    private String variant;
+    private Output output;
+    private ChannelOutput channelOutput;
+
+    /**
+     * Records the calls made on it
+     */
+    private static final class Recorder implements Sink {
+
+        byte[] kinds = new byte[1 << 16];
+        int[] values = new int[1 << 16];
+        final List<CharSequence> texts = new ArrayList<>();
+        int size;
+
+        private void add(byte kind, int value) {
+            if (size == kinds.length) {
+                kinds = Arrays.copyOf(kinds, 2 * size);
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            kinds[size] = kind;
+            values[size++] = value;
+        }
+
+        @Override
+        public void print(CharSequence s) {
+            add(TEXT, texts.size());
+            texts.add(s.toString());
+        }
+
+        @Override
+        public void print(char c) {
+            add(CHAR, c);
+        }
+
+        @Override
+        public void print(int n) {
+            add(INT, n);
+        }
+    }
+
+    @Override
+    public void setUp(byte[] score, String variant) {
+        Recorder recorder = new Recorder();
+        new IterativeParser(new TableScanner(new BufferInput(ByteBuffer.wrap(score), "(score)")), recorder,
+                new TranspositionContext(2)).printScore();
+        this.kinds = Arrays.copyOf(recorder.kinds, recorder.size);
+        this.values = Arrays.copyOf(recorder.values, recorder.size);
+        this.texts = recorder.texts.toArray(new CharSequence[0]);
+        this.variant = variant;
+        this.output = new Output(new PrintStream(OutputStream.nullOutputStream()));
+        this.channelOutput = new ChannelOutput(new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) {
+                int n = src.remaining();
+                src.position(src.limit());
+                return n;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        }, ChannelOutput.DEFAULT_BUFFER_SIZE);
+    }
+
+    @Override
+    public long run() {
+        switch (variant) {
+            case "Output":
+                replay(output);
+                return 0;
+            case "ChannelOutput":
+                replay(channelOutput);
+                return channelOutput.size();
+            default:
+                CaptureSink capture = new CaptureSink();
+                replay(capture);
+                return capture.length();
+        }
+    }
+
+    private void replay(Sink out) {
+        for (int i = 0; i < kinds.length; i++) {
+            switch (kinds[i]) {
+                case TEXT:
+                    out.print(texts[values[i]]);
+                    break;
+                case CHAR:
+                    out.print((char) values[i]);
+                    break;
+                default:
+                    out.print(values[i]);
+            }
+        }
+        out.flush();
+    }
+}
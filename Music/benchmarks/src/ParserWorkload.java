@@ -0,0 +1,27 @@
+import benchmarks.Workload;
+import java.nio.ByteBuffer;
+
+/**
+ * Parses and transposes a whole score by 2 half steps into a NullSink, with the IterativeParser, or the recursive
+ * Parser for scores with short voices, each on a TableScanner
+ */
+public class ParserWorkload implements Workload {
+
+    private ByteBuffer score;
+    private boolean iterative;
+
+    @Override
+    public void setUp(byte[] score, String variant) {
+        this.score = ByteBuffer.wrap(score);
+        this.iterative = "IterativeParser".equals(variant);
+    }
+
+    @Override
+    public long run() {
+        Scanner scan = new TableScanner(new BufferInput(score.duplicate(), "(score)"));
+        TranspositionContext context = new TranspositionContext(2);
+        Parser parser = iterative ? new IterativeParser(scan, new NullSink(), context)
+                : new Parser(scan, new NullSink(), context);
+        return parser.score() ? context.getOctave() : -1;
+    }
+}
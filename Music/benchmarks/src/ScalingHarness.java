@@ -0,0 +1,210 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The ScalingHarness class measures how the time and the peak heap of each way of transposing grow with the size
+ * of the score, on scores written by the ScoreGenerator at sizes doubling from 64 KB, and flags the ones that grow
+ * faster than the score. Unlike the JMH benchmarks, it looks for a shape rather than a number: a step from one size
+ * to the next whose exponent (log of the time ratio over log of the size ratio) is well above 1 means quadratic
+ * work such as string concatenation. One step is noisy, so what is flagged is the exponent of a least-squares fit of
+ * log time (or log peak heap) against log size, over the sizes whose measurement is large enough to trust. Run it with a heap large enough for the largest score:
+ * <pre>
+ * java -Xmx4g -cp Music/benchmarks/target/benchmarks.jar ScalingHarness [MAX-SIZE [VOICES]]</pre>
+ * MAX-SIZE defaults to 64m and takes k, m and g suffixes. Each size is run three times; the best time and the
+ * highest peak heap are kept.
+ */
+public class ScalingHarness {
+
+    static final double SUPER_LINEAR = 1.2; //Fitted exponents above this are flagged
+    static final long MIN_NANOS = 50_000_000; //Times shorter than this are too noisy to fit
+    static final long MIN_HEAP = 4 << 20; //Peaks smaller than this are mostly buffers of fixed size
+
+    /**
+     * One way of transposing a score
+     */
+    private interface Workload {
+        void run(Path score, Path out) throws IOException;
+    }
+
+    private static final String[] NAMES = {"TableScanner", "IterativeParser", "ChannelInput -> ChannelOutput",
+            "CaptureSink", "CompactScore", "SpliceParser"};
+    private static final Workload[] WORKLOADS = {
+        (score, out) -> {
+            try (ChannelInput in = new ChannelInput(score.toString())) {
+                Scanner scan = new TableScanner(in);
+                while (scan.getNextToken().getId() != Id.STOP) {
+                    //Count nothing; the Tokens are the work
+                }
+            }
+        },
+        (score, out) -> {
+            try (ChannelInput in = new ChannelInput(score.toString())) {
+                new IterativeParser(new TableScanner(in), new NullSink(), new TranspositionContext(2)).score();
+            }
+        },
+        (score, out) -> {
+            try (ChannelInput in = new ChannelInput(score.toString());
+                 ChannelOutput sink = new ChannelOutput(out.toString())) {
+                new IterativeParser(new TableScanner(in), sink, new TranspositionContext(2)).printScore();
+            }
+        },
+        (score, out) -> {
+            try (ChannelInput in = new ChannelInput(score.toString())) {
+                Parser parser = new IterativeParser(new TableScanner(in), new CaptureSink(),
+                        new TranspositionContext(2));
+                parser.printScore();
+                parser.getFile();
+            }
+        },
+        (score, out) -> {
+            try (ChannelInput in = new ChannelInput(score.toString());
+                 ChannelOutput sink = new ChannelOutput(out.toString())) {
+                CompactScore.parse(in).render(2, sink);
+            }
+        },
+        (score, out) -> {
+            try (ChannelInput in = new ChannelInput(score.toString());
+                 ChannelOutput sink = new ChannelOutput(out.toString())) {
+                new SpliceParser(in, sink, new TranspositionContext(2)).printScore();
+            }
+        },
+    };
+
+    private static final List<MemoryPoolMXBean> HEAP = new ArrayList<>();
+
+    static {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                HEAP.add(pool);
+            }
+        }
+    }
+
+    /**
+     * @return the heap in use after a full collection
+     */
+    private static long settle() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        long used = 0;
+        for (MemoryPoolMXBean pool : HEAP) {
+            pool.resetPeakUsage();
+            used += pool.getUsage().getUsed();
+        }
+        return used;
+    }
+
+    /**
+     * @return the sum of the peaks of the heap pools since settle(); pools peak at different times, so this is an
+     * upper bound of the peak of the heap
+     */
+    private static long peak() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : HEAP) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+
+    private static double exponent(double y1, double y2, double x1, double x2) {
+        return Math.log(y2 / y1) / Math.log(x2 / x1);
+    }
+
+    public static void main(String[] args) throws IOException {
+        long max = args.length > 0 ? ScoreGenerator.parseSize(args[0]) : 64 << 20;
+        int voices = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        List<Long> sizes = new ArrayList<>();
+        for (long size = 64 << 10; size <= max; size *= 2) {
+            sizes.add(size);
+        }
+        Path out = Files.createTempFile("scaling", ".gmn");
+        long[][] nanos = new long[NAMES.length][sizes.size()];
+        long[][] heap = new long[NAMES.length][sizes.size()];
+        long[] bytes = new long[sizes.size()];
+        for (int s = 0; s < sizes.size(); s++) {
+            Path score = Files.createTempFile("scaling", ".gmn");
+            try (ChannelOutput sink = new ChannelOutput(score.toString())) {
+                bytes[s] = new ScoreGenerator(s).voices(voices).write(sizes.get(s), sink);
+            }
+            for (int w = 0; w < NAMES.length; w++) {
+                nanos[w][s] = Long.MAX_VALUE;
+                for (int run = 0; run < 3; run++) {
+                    long before = settle();
+                    long start = System.nanoTime();
+                    WORKLOADS[w].run(score, out);
+                    nanos[w][s] = Math.min(nanos[w][s], System.nanoTime() - start);
+                    heap[w][s] = Math.max(heap[w][s], peak() - before);
+                }
+            }
+            Files.delete(score);
+            System.err.printf("%s done%n", size(bytes[s]));
+        }
+        Files.delete(out);
+        report(sizes.size(), bytes, nanos, heap);
+    }
+
+    /**
+     * @return the slope of the least-squares line through the points (log x, log y) whose y is at least min, or NaN
+     * if there are fewer than three
+     */
+    static double fit(long[] x, long[] y, long min) {
+        int n = 0;
+        double sx = 0, sy = 0, sxx = 0, sxy = 0;
+        for (int i = 0; i < x.length; i++) {
+            if (y[i] >= min) {
+                double lx = Math.log(x[i]);
+                double ly = Math.log(y[i]);
+                n++;
+                sx += lx;
+                sy += ly;
+                sxx += lx * lx;
+                sxy += lx * ly;
+            }
+        }
+        return n < 3 ? Double.NaN : (n * sxy - sx * sy) / (n * sxx - sx * sx);
+    }
+
+    private static String size(long bytes) {
+        return bytes >= 1 << 30 ? String.format(Locale.ROOT, "%.1f GB", bytes / (double) (1 << 30))
+                : bytes >= 1 << 20 ? String.format(Locale.ROOT, "%.1f MB", bytes / (double) (1 << 20))
+                : String.format(Locale.ROOT, "%.0f KB", bytes / 1024.0);
+    }
+
+    private static void report(int n, long[] bytes, long[][] nanos, long[][] heap) {
+        System.out.printf("%d cores, max heap %s%n", Runtime.getRuntime().availableProcessors(),
+                size(Runtime.getRuntime().maxMemory()));
+        boolean flagged = false;
+        for (int w = 0; w < NAMES.length; w++) {
+            System.out.printf("%n%s%n%10s %10s %10s %10s %8s %8s%n", NAMES[w], "size", "ms", "MB/s", "heap MB",
+                    "time^", "heap^");
+            for (int s = 0; s < n; s++) {
+                String timeExp = "";
+                String heapExp = "";
+                if (s > 0) {
+                    timeExp = String.format(Locale.ROOT, "%.2f",
+                            exponent(nanos[w][s - 1], nanos[w][s], bytes[s - 1], bytes[s]));
+                    heapExp = String.format(Locale.ROOT, "%.2f", exponent(Math.max(heap[w][s - 1], 1),
+                            Math.max(heap[w][s], 1), bytes[s - 1], bytes[s]));
+                }
+                System.out.printf(Locale.ROOT, "%10s %10.1f %10.1f %10.1f %8s %8s%n", size(bytes[s]),
+                        nanos[w][s] / 1e6, bytes[s] / 1048576.0 / (nanos[w][s] / 1e9), heap[w][s] / 1048576.0,
+                        timeExp, heapExp);
+            }
+            double time = fit(bytes, nanos[w], MIN_NANOS);
+            double peak = fit(bytes, heap[w], MIN_HEAP);
+            String flag = (time > SUPER_LINEAR ? " SUPER-LINEAR TIME" : "")
+                    + (peak > SUPER_LINEAR ? " SUPER-LINEAR HEAP" : "");
+            flagged |= !flag.isEmpty();
+            System.out.printf(Locale.ROOT, "%10s %32s %8.2f %8.2f%s%n", "fit", "", time, peak, flag);
+        }
+        System.out.println(flagged ? "\nSuper-linear scaling found" : "\nEverything scales linearly or better");
+    }
+}
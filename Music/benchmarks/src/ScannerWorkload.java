@@ -0,0 +1,28 @@
+import benchmarks.Workload;
+import java.nio.ByteBuffer;
+
+/**
+ * Scans a whole score with the base Scanner or the TableScanner, counting its Tokens
+ */
+public class ScannerWorkload implements Workload {
+
+    private ByteBuffer score;
+    private boolean table;
+
+    @Override
+    public void setUp(byte[] score, String variant) {
+        this.score = ByteBuffer.wrap(score);
+        this.table = "TableScanner".equals(variant);
+    }
+
+    @Override
+    public long run() {
+        Input in = new BufferInput(score.duplicate(), "(score)");
+        Scanner scan = table ? new TableScanner(in) : new Scanner(in);
+        long tokens = 0;
+        while (scan.getNextToken().getId() != Id.STOP) {
+            tokens++;
+        }
+        return tokens;
+    }
+}
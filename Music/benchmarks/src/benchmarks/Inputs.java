@@ -0,0 +1,42 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The Inputs class builds the scores the benchmarks run on: bach.gmn itself, or the body of its first voice
+ * repeated until the score reaches a size, as the benchmarks of the Music tests do.
+ */
+public final class Inputs {
+
+    private Inputs() {
+    }
+
+    /**
+     * @param input "bach", or a size such as "1mb" or "16mb"
+     * @return the bytes of the score
+     */
+    public static byte[] score(String input) {
+        String bach;
+        try (InputStream in = Inputs.class.getResourceAsStream("/bach.gmn")) {
+            bach = new String(in.readAllBytes(), StandardCharsets.US_ASCII);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read bach.gmn", e);
+        }
+        if ("bach".equals(input)) {
+            return bach.getBytes(StandardCharsets.US_ASCII);
+        }
+        if (!input.endsWith("mb")) {
+            throw new IllegalArgumentException("Unknown input " + input);
+        }
+        long target = Long.parseLong(input.substring(0, input.length() - 2)) << 20;
+        String body = bach.substring(bach.indexOf('[') + 1, bach.indexOf(']'));
+        StringBuilder score = new StringBuilder("{[");
+        while (score.length() < target) {
+            score.append(body);
+        }
+        return score.append("]}").toString().getBytes(StandardCharsets.US_ASCII);
+    }
+}
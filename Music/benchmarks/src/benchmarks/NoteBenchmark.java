@@ -0,0 +1,40 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the transposition of every spelling, in every key, by every number of half steps from -5 to 6; see
+ * NoteWorkload.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class NoteBenchmark {
+
+    @Param({"Note", "PitchTable"})
+    public String variant;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workload.load("NoteWorkload");
+        workload.setUp(null, variant);
+    }
+
+    @Benchmark
+    public long run() {
+        return workload.run();
+    }
+}
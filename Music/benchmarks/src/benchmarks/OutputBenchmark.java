@@ -0,0 +1,43 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the printing of a transposed score, replaying the calls an IterativeParser makes on its Sink; see
+ * OutputWorkload.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class OutputBenchmark {
+
+    @Param({"Output", "ChannelOutput", "CaptureSink"})
+    public String variant;
+
+    @Param({"bach", "1mb", "16mb"})
+    public String input;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workload.load("OutputWorkload");
+        workload.setUp(Inputs.score(input), variant);
+    }
+
+    @Benchmark
+    public long run() {
+        return workload.run();
+    }
+}
@@ -0,0 +1,44 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures Parser.score() of a whole score into a NullSink, including its Scanner; see ParserWorkload. The
+ * recursive Parser is left out of the defaults, as it overflows the stack on the long voices of the scaled inputs;
+ * -p variant=Parser -p input=bach runs it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ParserBenchmark {
+
+    @Param({"IterativeParser"})
+    public String variant;
+
+    @Param({"bach", "1mb", "16mb"})
+    public String input;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workload.load("ParserWorkload");
+        workload.setUp(Inputs.score(input), variant);
+    }
+
+    @Benchmark
+    public long run() {
+        return workload.run();
+    }
+}
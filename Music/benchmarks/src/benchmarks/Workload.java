@@ -0,0 +1,36 @@
+package benchmarks;
+
+/**
+ * The Workload interface is the work one JMH benchmark measures. JMH refuses benchmarks in the unnamed package,
+ * and a named package cannot refer to the classes of the unnamed package, where the Music classes are; so each
+ * benchmark loads its Workload by name, a class of the unnamed package implementing this interface, and calls it
+ * through this interface. The call has a single receiver class, which the JIT inlines.
+ */
+public interface Workload {
+
+    /**
+     * Prepare the input, once per trial
+     * @param score the bytes of the score, or null for a workload that needs none
+     * @param variant which implementation to measure, e.g. "TableScanner"
+     */
+    void setUp(byte[] score, String variant);
+
+    /**
+     * Do the measured work once
+     * @return a value depending on all of the work, for a Blackhole
+     */
+    long run();
+
+    /**
+     * Load a Workload of the unnamed package
+     * @param className its name
+     * @return a new instance
+     */
+    static Workload load(String className) {
+        try {
+            return Class.forName(className).asSubclass(Workload.class).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot load workload " + className, e);
+        }
+    }
+}
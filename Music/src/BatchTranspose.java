@@ -0,0 +1,291 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * The BatchTranspose class transposes many files in one process: every .gmn file of a directory tree, or of a
+ * list of files, is transposed into the same relative path under an output directory.
+ * <p>
+ * Files are transposed by a fixed number of worker threads. The files are handed out as they are found, and at
+ * most a few per thread wait in the queue, so a tree of any size is walked in constant memory; when the queue is
+ * full, the thread walking the tree transposes the next file itself. Each file is reported to a Consumer as soon as
+ * it is done, from the worker thread that did it:
+ * <pre>
+ * BatchTranspose batch = new BatchTranspose(numHalfSteps, threads, result -> System.out.println(result));
+ * BatchTranspose.Summary summary = batch.transposeTree(inDir, outDir);</pre>
+ * A file that is not proper GUIDO syntax, or that cannot be read or written, is reported as failed, with the
+ * offset of the problem when it is known, and its output is deleted; the other files are transposed anyway.
+ */
+public class BatchTranspose {
+
+    private final int numHalfSteps;
+    private final int threads;
+    private final Consumer<Result> results;
+
+    /**
+     * The outcome of one file
+     */
+    public static final class Result {
+
+        private final Path source;
+        private final Path target;
+        private final long bytes;
+        private final String error;
+
+        Result(Path source, Path target, long bytes, String error) {
+            this.source = source;
+            this.target = target;
+            this.bytes = bytes;
+            this.error = error;
+        }
+
+        public Path getSource() {
+            return source;
+        }
+
+        /**
+         * @return the file to write, or null if the source would be written outside the output directory
+         */
+        public Path getTarget() {
+            return target;
+        }
+
+        /**
+         * @return the size of the source file
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return why the file failed, or null if it was transposed
+         */
+        public String getError() {
+            return error;
+        }
+
+        public boolean isOk() {
+            return error == null;
+        }
+
+        @Override
+        public String toString() {
+            return error == null ? source + " -> " + target : source + ": " + error;
+        }
+    }
+
+    /**
+     * The totals of a batch
+     */
+    public static final class Summary {
+
+        private final int files;
+        private final int failed;
+        private final long bytes;
+        private final long nanos;
+
+        Summary(int files, int failed, long bytes, long nanos) {
+            this.files = files;
+            this.failed = failed;
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+
+        public int getFiles() {
+            return files;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        /**
+         * @return the size of all the source files transposed, failed or not
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public double filesPerSecond() {
+            return files / (nanos / 1e9);
+        }
+
+        public double megabytesPerSecond() {
+            return bytes / 1048576.0 / (nanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d files, %d failed, %.1f MB in %.2f s (%.0f files/s, %.1f MB/s)", files, failed,
+                    bytes / 1048576.0, nanos / 1e9, filesPerSecond(), megabytesPerSecond());
+        }
+    }
+
+    /**
+     * Construct a BatchTranspose
+     * @param numHalfSteps the number of half steps; can be negative
+     * @param threads the number of worker threads; at least 1
+     * @param results receives the outcome of each file, from several threads at once
+     */
+    public BatchTranspose(int numHalfSteps, int threads, Consumer<Result> results) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads: " + threads);
+        }
+        this.numHalfSteps = numHalfSteps;
+        this.threads = threads;
+        this.results = results;
+    }
+
+    /**
+     * Transpose every .gmn file under a directory into the same relative path under another. If the output
+     * directory is inside the one walked, the files under it are skipped, so outputs are never transposed again.
+     * @param inDir the directory to walk
+     * @param outDir receives the transposed files; created as needed
+     * @return the totals
+     * @throws IllegalArgumentException if outDir is inDir
+     */
+    public Summary transposeTree(Path inDir, Path outDir) {
+        Path in = inDir.toAbsolutePath().normalize();
+        Path out = outDir.toAbsolutePath().normalize();
+        if (out.equals(in)) {
+            throw new IllegalArgumentException(outDir + ": the output directory cannot be the input directory");
+        }
+        try (Stream<Path> files = Files.walk(inDir)) {
+            Stream<Path> scores = files.filter(file -> !out.startsWith(in)
+                    || !file.toAbsolutePath().normalize().startsWith(out)).filter(BatchTranspose::isScore);
+            return transpose(scores.iterator(), file -> outDir.resolve(inDir.relativize(file)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(inDir + ": cannot walk", e);
+        }
+    }
+
+    /**
+     * Transpose the files named in a list, one per line, into the same path under a directory. Relative paths are
+     * kept as they are written; absolute paths lose their root. Blank lines are skipped. A path whose .. parts
+     * would take its output out of the directory is reported as failed, and nothing is written or deleted for it.
+     * @param list the file holding the list
+     * @param outDir receives the transposed files; created as needed
+     * @return the totals
+     */
+    public Summary transposeList(Path list, Path outDir) {
+        Path out = outDir.toAbsolutePath().normalize();
+        try (Stream<String> lines = Files.lines(list)) {
+            Stream<Path> scores = lines.map(String::trim).filter(line -> !line.isEmpty()).map(Path::of);
+            return transpose(scores.iterator(), file -> {
+                Path target = outDir.resolve(file.isAbsolute() ? file.getRoot().relativize(file) : file).normalize();
+                Path absolute = target.toAbsolutePath().normalize();
+                return absolute.startsWith(out) && !absolute.equals(out) ? target : null;
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(list + ": cannot read", e);
+        }
+    }
+
+    private static boolean isScore(Path file) {
+        return file.getFileName().toString().endsWith(".gmn") && Files.isRegularFile(file);
+    }
+
+    /**
+     * @param mirror gives the target of each source, or null if it has none
+     */
+    private Summary transpose(Iterator<Path> sources, UnaryOperator<Path> mirror) {
+        AtomicInteger files = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicLong bytes = new AtomicLong();
+        long start = System.nanoTime();
+        ExecutorService pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(4 * threads), new ThreadPoolExecutor.CallerRunsPolicy());
+        try {
+            while (sources.hasNext()) {
+                Path source = sources.next();
+                Path target = mirror.apply(source);
+                pool.execute(() -> {
+                    Result result = target == null ? new Result(source, null, 0, "Outside the output directory")
+                            : transpose(source, target);
+                    files.incrementAndGet();
+                    bytes.addAndGet(result.getBytes());
+                    if (!result.isOk()) {
+                        failed.incrementAndGet();
+                    }
+                    results.accept(result);
+                });
+            }
+        } finally {
+            pool.shutdown();
+            try {
+                while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                    //Keep waiting for the files already handed out
+                }
+            } catch (InterruptedException e) {
+                pool.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        return new Summary(files.get(), failed.get(), bytes.get(), System.nanoTime() - start);
+    }
+
+    /**
+     * Transpose one file
+     * @param source the GUIDO file
+     * @param target the file to create or replace
+     * @return the outcome
+     */
+    Result transpose(Path source, Path target) {
+        long bytes = 0;
+        String error;
+        try {
+            bytes = Files.size(source);
+            Path parent = target.getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            boolean proper;
+            Parser parser;
+            try (ChannelInput in = new ChannelInput(source.toString());
+                 ChannelOutput out = new ChannelOutput(target.toString())) {
+                parser = new IterativeParser(in, out, new TranspositionContext(numHalfSteps));
+                proper = parser.score();
+            }
+            if (proper) {
+                return new Result(source, target, bytes, null);
+            }
+            error = describe(parser.syntaxError());
+        } catch (GuidoException e) {
+            error = describe(e);
+        } catch (NoSuchFileException e) {
+            error = "No such file";
+        } catch (IOException e) {
+            error = e.toString();
+        } catch (UncheckedIOException e) {
+            error = e.getMessage() + ": " + e.getCause();
+        } catch (RuntimeException e) {
+            error = e.toString();
+        }
+        try {
+            Files.deleteIfExists(target);
+        } catch (IOException e) {
+            error += "; cannot delete " + target;
+        }
+        return new Result(source, target, bytes, error);
+    }
+
+    private static String describe(GuidoException e) {
+        return e.getOffset() < 0 ? e.getReason() : "offset " + e.getOffset() + ": " + e.getReason();
+    }
+}
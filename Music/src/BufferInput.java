@@ -0,0 +1,43 @@
+import java.nio.ByteBuffer;
+
+/**
+ * The {@code BufferInput} class is an {@link Input} that reads the bytes of a {@code ByteBuffer}, one character
+ * per byte, e.g. a single voice of a memory-mapped score:
+ * <pre>
+ * Input in = new BufferInput(voice, filename);</pre>
+ * The bytes between the buffer's position and limit are read; the buffer itself is left unchanged.
+ */
+public class BufferInput extends Input {
+
+    private final ByteBuffer buf;
+
+    /**
+     * Construct a {@code BufferInput} from a {@code ByteBuffer}.
+     * @param buf  the bytes to read
+     * @param filename  the name used in error messages
+     */
+    public BufferInput(ByteBuffer buf, String filename) {
+        this.buf = buf.slice();
+        this.filename = filename;
+    }
+
+    /**
+     * Get the next character from the buffer.
+     *
+     * This function returns -1 when the end of the buffer is encountered.
+     *
+     * @return the next character from the buffer
+     */
+    @Override
+    public int getChar() {
+        return buf.hasRemaining() ? buf.get() & 0xFF : -1;
+    }
+
+    /**
+     * @return the offset of the next character from the start of the bytes read
+     */
+    @Override
+    public long position() {
+        return buf.position();
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * The CaptureSink class keeps everything printed to it in a StringBuilder, e.g. for tests that compare the
+ * rendered score with an expected one.
+ */
+public class CaptureSink implements Sink {
+
+    private final StringBuilder sb = new StringBuilder();
+
+    @Override
+    public void print(CharSequence s) {
+        sb.append(s);
+    }
+
+    @Override
+    public void print(char c) {
+        sb.append(c);
+    }
+
+    @Override
+    public void print(int n) {
+        sb.append(n);
+    }
+
+    /**
+     * @return the number of characters printed so far
+     */
+    public int length() {
+        return sb.length();
+    }
+
+    /**
+     * @return the number of bytes printed so far, as getBytes(ISO_8859_1) would give them
+     */
+    @Override
+    public long size() {
+        return sb.length();
+    }
+
+    /**
+     * @return everything printed so far
+     */
+    @Override
+    public String toString() {
+        return sb.toString();
+    }
+}
@@ -0,0 +1,237 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The {@code ChannelInput} class is an {@link Input} that reads a file through a {@code FileChannel} instead of
+ * one {@code BufferedInputStream.read()} call per character.
+ * <p>
+ * Files smaller than {@link #MAP_THRESHOLD} bytes are read in large chunks into a single reusable
+ * {@code ByteBuffer}. Larger files are memory-mapped one window at a time.
+ * <p>
+ * {@link #getChar()} keeps the {@code Input} contract, so a {@link Scanner} works unchanged:
+ * <pre>
+ * Scanner scan = new Scanner(new ChannelInput(filename));</pre>
+ * A faster scanner can instead work on the bytes directly. {@link #buffer()} is the current window, whose bytes
+ * between position and limit have not been read yet, and {@link #fill()} moves the window forward:
+ * <pre>
+ * while (in.fill()) {
+ *     ByteBuffer buf = in.buffer();
+ *     while (buf.hasRemaining()) {
+ *         byte b = buf.get();
+ *     }
+ * }</pre>
+ */
+public class ChannelInput extends Input implements AutoCloseable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    public static final long MAP_THRESHOLD = 1L << 24;
+    public static final int MAP_WINDOW = 1 << 30;
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private FileChannel channel;
+    private ByteBuffer buf = EMPTY;
+    private long bufStart; //File offset of index 0 of buf
+    private long size;
+    private boolean mapped;
+    private int windowSize;
+
+    /**
+     * Construct a {@code ChannelInput} from a filename. The file is memory-mapped if it is at least
+     * {@link #MAP_THRESHOLD} bytes long.
+     * @param filename  the name of a file (it must exist)
+     */
+    public ChannelInput(String filename) {
+        this.filename = filename;
+        open();
+        if (size >= MAP_THRESHOLD) {
+            this.mapped = true;
+            this.windowSize = MAP_WINDOW;
+        } else {
+            this.windowSize = DEFAULT_BUFFER_SIZE;
+            this.buf = ByteBuffer.allocate(windowSize).flip();
+        }
+    }
+
+    /**
+     * Construct a {@code ChannelInput} from a filename with an explicit window size.
+     * @param filename  the name of a file (it must exist)
+     * @param windowSize  the size of the read buffer, or of each mapped window
+     * @param map  true to memory-map the file, false to read it into a reusable buffer
+     */
+    public ChannelInput(String filename, int windowSize, boolean map) {
+        this.filename = filename;
+        this.windowSize = windowSize;
+        this.mapped = map;
+        open();
+        if (!map) {
+            this.buf = ByteBuffer.allocate(windowSize).flip();
+        }
+    }
+
+    private void open() {
+        try {
+            channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+            size = channel.size();
+        } catch (NoSuchFileException e) {
+            throw error("No such file", -1, e);
+        } catch (IOException e) {
+            throw error("Read error", -1, e);
+        }
+    }
+
+    /**
+     * Get the next character from the file.
+     *
+     * This function returns -1 when the end of file is encountered.
+     *
+     * @return the next character from the file
+     */
+    @Override
+    public int getChar() {
+        if (!buf.hasRemaining() && !fill()) {
+            return -1;
+        }
+        return buf.get() & 0xFF;
+    }
+
+    /**
+     * Bulk access: the current window of the file. Bytes between the buffer's position and limit have not been
+     * read yet; advancing the position consumes them. The returned buffer is only valid until the next call to
+     * {@link #fill()}, which may replace it.
+     * @return the current window
+     */
+    public ByteBuffer buffer() {
+        return buf;
+    }
+
+    /**
+     * Bulk access: move the window forward so that it starts at the first unread byte, then load as many
+     * following bytes as fit. Call {@link #buffer()} again afterwards, since the window may be a new buffer.
+     * @return true if the window holds at least one unread byte; false at the end of file
+     */
+    public boolean fill() {
+        long next = offset();
+        try {
+            if (mapped) {
+                long len = Math.min(windowSize, size - next);
+                if (len <= 0) {
+                    buf = EMPTY;
+                    bufStart = next;
+                    return false;
+                }
+                buf = channel.map(FileChannel.MapMode.READ_ONLY, next, len);
+                bufStart = next;
+                return true;
+            }
+            buf.compact(); //Unread bytes move to the front, so index 0 is now at offset next
+            bufStart = next;
+            channel.read(buf);
+            buf.flip();
+            return buf.hasRemaining();
+        } catch (IOException e) {
+            throw error("Read error", next, e);
+        }
+    }
+
+    /**
+     * Bulk access: if the file is memory-mapped and one of the stop characters occurs in the current window,
+     * return a view of the bytes up to (not including) it and stop just before it. Mapped windows are never
+     * reused, so the view stays valid after the window moves on.
+     * @param stop1 a character that ends the text
+     * @param stop2 another character that ends the text
+     * @return a view of the text, or null if nothing was consumed and the caller must read the text itself
+     */
+    public CharSequence sliceUntil(int stop1, int stop2) {
+        if (!mapped) {
+            return null;
+        }
+        int start = buf.position();
+        int limit = buf.limit();
+        for (int i = start; i < limit; i++) {
+            int b = buf.get(i) & 0xFF;
+            if (b == stop1 || b == stop2) {
+                buf.position(i);
+                return new TextSlice(buf, start, i - start);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the file offset of the next unread byte
+     */
+    public long offset() {
+        return bufStart + buf.position();
+    }
+
+    /**
+     * Same as {@link #offset()}: every byte is one character.
+     * @return the file offset of the next unread byte
+     */
+    @Override
+    public long position() {
+        return offset();
+    }
+
+    /**
+     * Bulk access: a view of the file bytes between two offsets, if they are all still in the current window.
+     * Bytes before the window's position stay available until the next {@link #fill()}.
+     * @param from the offset of the first byte
+     * @param to the offset after the last byte
+     * @return a read-only buffer holding exactly those bytes, or null if part of the range is not in the window
+     */
+    public ByteBuffer window(long from, long to) {
+        if (from < bufStart || to > bufStart + buf.limit()) {
+            return null;
+        }
+        ByteBuffer view = buf.asReadOnlyBuffer();
+        view.limit((int) (to - bufStart)).position((int) (from - bufStart));
+        return view;
+    }
+
+    /**
+     * Bulk access: the whole file, memory-mapped, independently of the window used by {@link #getChar()}.
+     * @return a read-only buffer holding every byte of the file
+     */
+    public ByteBuffer map() {
+        if (size > Integer.MAX_VALUE) {
+            throw error("Too large to map at once", -1);
+        }
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } catch (IOException e) {
+            throw error("Read error", -1, e);
+        }
+    }
+
+    /**
+     * @return the channel the file is read from, e.g. to transfer ranges of it with {@code transferTo}
+     */
+    public FileChannel channel() {
+        return channel;
+    }
+
+    /**
+     * @return the size of the file in bytes
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Close the underlying channel.
+     */
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw error("Close error", -1, e);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The ChannelOutput class is a Sink that encodes the transposed score directly into a large reusable ByteBuffer
+ * and writes it to a channel in big chunks, instead of going through a synchronized PrintStream per character.
+ * <p>
+ * Each character is written as one byte (ISO-8859-1), the inverse of how Input reads a file, so the bytes of
+ * tags and strings are copied unchanged. Nothing reaches the channel until the buffer is full or
+ * {@link #flush()} is called; {@link #close()} flushes and closes the channel:
+ * <pre>
+ * try (ChannelOutput out = new ChannelOutput(filename)) {
+ *     new Parser(in, out, context).printScore();
+ * }</pre>
+ * Write errors are thrown as {@code UncheckedIOException}. After one, the ChannelOutput is failed: the bytes not
+ * written are kept but never sent, and every later flush, bulk write and close() throws the same error again, so
+ * a file is never completed with a gap in it.
+ */
+public class ChannelOutput implements Sink, AutoCloseable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buf;
+    private long written; //Bytes handed to the channel so far
+    private IOException failure; //The first write error, once there was one
+
+    /**
+     * Construct a ChannelOutput that creates (or truncates) a file
+     * @param filename the file to be filled with a transposed file
+     */
+    public ChannelOutput(String filename) {
+        this(open(filename), DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Construct a ChannelOutput that writes to a channel
+     * @param channel where the bytes go; closed by close()
+     * @param bufferSize the number of bytes gathered before each write; at least 16
+     */
+    public ChannelOutput(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buf = ByteBuffer.allocate(Math.max(16, bufferSize));
+    }
+
+    private static FileChannel open(String filename) {
+        try {
+            return FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(filename + ": cannot open for writing", e);
+        }
+    }
+
+    @Override
+    public void print(CharSequence s) {
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            if (!buf.hasRemaining()) {
+                drain();
+            }
+            buf.put((byte) s.charAt(i));
+        }
+    }
+
+    @Override
+    public void print(char c) {
+        if (!buf.hasRemaining()) {
+            drain();
+        }
+        buf.put((byte) c);
+    }
+
+    @Override
+    public void print(int n) {
+        if (buf.remaining() < 11) { //Longest int: -2147483648
+            drain();
+        }
+        if (n == Integer.MIN_VALUE) {
+            print("-2147483648");
+            return;
+        }
+        if (n < 0) {
+            buf.put((byte) '-');
+            n = -n;
+        }
+        int start = buf.position();
+        do {
+            buf.put((byte) ('0' + n % 10));
+            n /= 10;
+        } while (n != 0);
+        for (int i = start, j = buf.position() - 1; i < j; i++, j--) { //Digits were written backwards
+            byte b = buf.get(i);
+            buf.put(i, buf.get(j));
+            buf.put(j, b);
+        }
+    }
+
+    /**
+     * Bulk access: write the bytes between the position and the limit of a buffer, unchanged. Buffers at least as
+     * large as this ChannelOutput's own buffer go to the channel directly instead of being copied.
+     * @param src the bytes; its position is moved to its limit
+     */
+    public void write(ByteBuffer src) {
+        if (src.remaining() > buf.remaining()) {
+            drain();
+        }
+        if (src.remaining() < buf.capacity()) {
+            buf.put(src);
+            return;
+        }
+        checkNotFailed();
+        try {
+            while (src.hasRemaining()) {
+                written += channel.write(src);
+            }
+        } catch (IOException e) {
+            throw fail(e);
+        }
+    }
+
+    /**
+     * Bulk access: copy a range of a file with {@code FileChannel.transferTo}, which can move the bytes inside the
+     * operating system without reading them into the Java heap
+     * @param src the file
+     * @param position the offset of the first byte to copy
+     * @param count the number of bytes to copy
+     */
+    public void transferFrom(FileChannel src, long position, long count) {
+        drain();
+        try {
+            while (count > 0) {
+                long n = src.transferTo(position, count, channel);
+                if (n <= 0) {
+                    throw new IOException("Unexpected end of file at offset " + position);
+                }
+                position += n;
+                count -= n;
+                written += n;
+            }
+        } catch (IOException e) {
+            throw fail(e);
+        }
+    }
+
+    /**
+     * Write everything buffered so far to the channel
+     */
+    @Override
+    public void flush() {
+        drain();
+    }
+
+    private void drain() {
+        checkNotFailed();
+        buf.flip();
+        try {
+            while (buf.hasRemaining()) {
+                written += channel.write(buf);
+            }
+        } catch (IOException e) {
+            buf.compact(); //Keeps the bytes not written
+            throw fail(e);
+        }
+        buf.clear();
+    }
+
+    private UncheckedIOException fail(IOException e) {
+        failure = e;
+        return new UncheckedIOException("Write error", e);
+    }
+
+    private void checkNotFailed() {
+        if (failure != null) {
+            throw new UncheckedIOException("Write error", failure);
+        }
+    }
+
+    /**
+     * @return the number of bytes printed so far, including those still buffered
+     */
+    @Override
+    public long size() {
+        return written + buf.position();
+    }
+
+    /**
+     * Flush and close the channel
+     */
+    @Override
+    public void close() {
+        try {
+            flush();
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Close error", e);
+            }
+        }
+    }
+}
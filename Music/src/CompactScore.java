@@ -0,0 +1,204 @@
+import java.util.Arrays;
+
+/**
+ * The CompactScore class holds a parsed score in primitive arrays, so that it can be transposed any number of
+ * times without reading or scanning the file again:
+ * <pre>
+ * CompactScore score = CompactScore.parse(new ChannelInput(filename));
+ * for (int n = -5; n &lt;= 6; n++) {
+ *     score.render(n, new ChannelOutput(filename + n));
+ * }</pre>
+ * The score is a sequence of events, one kind byte each. Notes and rests keep their pitch, octave, duration and
+ * dots in parallel arrays indexed by their position among the notes and rests; tags keep their name and
+ * parameter indexed by their position among the tags. No Note or Token objects are kept.
+ */
+public class CompactScore implements ScoreListener {
+
+    //Kinds of event
+    private static final byte SCORE_START = 0;
+    private static final byte SCORE_END = 1;
+    private static final byte VOICE_START = 2;
+    private static final byte VOICE_END = 3;
+    private static final byte CHORD_START = 4;
+    private static final byte CHORD_END = 5;
+    private static final byte NOTE = 6;
+    private static final byte REST = 7;
+    private static final byte TAG = 8;
+
+    private byte[] kinds = new byte[64];
+    private int size;
+
+    //Notes and rests
+    private byte[] pitches = new byte[32];
+    private byte[] octaves = new byte[32];
+    private boolean[] octaveGiven = new boolean[32];
+    private int[] muls = new int[32];
+    private int[] divs = new int[32];
+    private byte[] dots = new byte[32];
+    private int durations;
+
+    //Tags
+    private String[] tagNames = new String[8];
+    private String[] tagParams = new String[8];
+    private int tags;
+
+    /**
+     * Parse a score into a CompactScore
+     * @param in the score
+     * @return the score, or null if it is not proper GUIDO syntax
+     */
+    public static CompactScore parse(Input in) {
+        CompactScore score = new CompactScore();
+        Parser parser = new IterativeParser(new TableScanner(in), new NullSink(), new TranspositionContext(0));
+        parser.setListener(score);
+        return parser.score() ? score : null;
+    }
+
+    /**
+     * Print the score transposed by a number of half steps, exactly as a Parser would print it
+     * @param numHalfSteps the number of half steps; can be negative
+     * @param out where the transposed score is printed; flushed at the end
+     */
+    public void render(int numHalfSteps, Sink out) {
+        replay(new ScoreRenderer(out, new TranspositionContext(numHalfSteps)));
+        out.flush();
+    }
+
+    /**
+     * Send the events of the score to a listener, in order
+     * @param listener the listener
+     */
+    public void replay(ScoreListener listener) {
+        int d = 0;
+        int t = 0;
+        for (int i = 0; i < size; i++) {
+            switch (kinds[i]) {
+                case SCORE_START:
+                    listener.scoreStart();
+                    break;
+                case SCORE_END:
+                    listener.scoreEnd();
+                    break;
+                case VOICE_START:
+                    listener.voiceStart();
+                    break;
+                case VOICE_END:
+                    listener.voiceEnd();
+                    break;
+                case CHORD_START:
+                    listener.chordStart();
+                    break;
+                case CHORD_END:
+                    listener.chordEnd();
+                    break;
+                case NOTE:
+                    listener.note(pitches[d], octaves[d], octaveGiven[d], muls[d], divs[d], dots[d]);
+                    d++;
+                    break;
+                case REST:
+                    listener.rest(muls[d], divs[d], dots[d]);
+                    d++;
+                    break;
+                default:
+                    listener.tag(tagNames[t], tagParams[t]);
+                    t++;
+                    break;
+            }
+        }
+    }
+
+    /**
+     * @return the number of events
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of notes and rests
+     */
+    public int durations() {
+        return durations;
+    }
+
+    private void add(byte kind) {
+        if (size == kinds.length) {
+            kinds = Arrays.copyOf(kinds, 2 * size);
+        }
+        kinds[size++] = kind;
+    }
+
+    private void addDuration(int pitch, int octave, boolean given, int mul, int div, int numDots) {
+        if (durations == pitches.length) {
+            int n = 2 * durations;
+            pitches = Arrays.copyOf(pitches, n);
+            octaves = Arrays.copyOf(octaves, n);
+            octaveGiven = Arrays.copyOf(octaveGiven, n);
+            muls = Arrays.copyOf(muls, n);
+            divs = Arrays.copyOf(divs, n);
+            dots = Arrays.copyOf(dots, n);
+        }
+        pitches[durations] = (byte) pitch;
+        octaves[durations] = (byte) octave;
+        octaveGiven[durations] = given;
+        muls[durations] = mul;
+        divs[durations] = div;
+        dots[durations] = (byte) numDots;
+        durations++;
+    }
+
+    //Recording events
+    @Override
+    public void scoreStart() {
+        add(SCORE_START);
+    }
+
+    @Override
+    public void scoreEnd() {
+        add(SCORE_END);
+    }
+
+    @Override
+    public void voiceStart() {
+        add(VOICE_START);
+    }
+
+    @Override
+    public void voiceEnd() {
+        add(VOICE_END);
+    }
+
+    @Override
+    public void chordStart() {
+        add(CHORD_START);
+    }
+
+    @Override
+    public void chordEnd() {
+        add(CHORD_END);
+    }
+
+    @Override
+    public void note(int pitch, int octave, boolean octaveGiven, int mul, int div, int dots) {
+        add(NOTE);
+        addDuration(pitch, octave, octaveGiven, mul, div, dots);
+    }
+
+    @Override
+    public void rest(int mul, int div, int dots) {
+        add(REST);
+        addDuration(PitchTable.UNKNOWN, 0, false, mul, div, dots);
+    }
+
+    @Override
+    public void tag(CharSequence name, CharSequence param) {
+        add(TAG);
+        if (tags == tagNames.length) {
+            tagNames = Arrays.copyOf(tagNames, 2 * tags);
+            tagParams = Arrays.copyOf(tagParams, 2 * tags);
+        }
+        tagNames[tags] = name.toString();
+        tagParams[tags] = param.toString();
+        tags++;
+    }
+}
@@ -0,0 +1,128 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * The DaemonClient class sends requests to a TranspositionDaemon over one connection:
+ * <pre>
+ * try (DaemonClient client = new DaemonClient(socket)) {
+ *     String first = client.transposeFile(-3, "first.gmn");
+ *     String second = client.transpose(-3, scoreBytes);
+ * }</pre>
+ * A score the daemon cannot transpose is thrown as a RemoteException holding the daemon's message; the connection
+ * stays usable.
+ */
+public class DaemonClient implements AutoCloseable {
+
+    private final SocketChannel channel;
+    private final InputStream in;
+    private final OutputStream out;
+
+    /**
+     * The daemon could not transpose a score; the connection is still usable
+     */
+    public static class RemoteException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        RemoteException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Construct a DaemonClient connected to a daemon
+     * @param socket the path of the daemon's socket file
+     * @throws IOException if the daemon is not listening
+     */
+    public DaemonClient(Path socket) throws IOException {
+        channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        channel.connect(UnixDomainSocketAddress.of(socket));
+        in = new BufferedInputStream(Channels.newInputStream(channel));
+        out = new BufferedOutputStream(Channels.newOutputStream(channel));
+    }
+
+    /**
+     * Transpose a file that the daemon can read
+     * @param steps the number of half steps; can be negative
+     * @param path the path of the file, absolute or relative to the daemon's working directory
+     * @return the transposed score
+     * @throws RemoteException if the daemon could not transpose it
+     * @throws IOException if the connection failed
+     */
+    public String transposeFile(int steps, String path) throws IOException {
+        out.write(("PATH " + steps + " " + path + "\n").getBytes(StandardCharsets.ISO_8859_1));
+        return response();
+    }
+
+    /**
+     * Transpose a score sent to the daemon
+     * @param steps the number of half steps; can be negative
+     * @param score the bytes of the score
+     * @return the transposed score
+     * @throws RemoteException if the daemon could not transpose it
+     * @throws IOException if the connection failed
+     */
+    public String transpose(int steps, byte[] score) throws IOException {
+        TranspositionDaemon.writeFrame(out, "DATA " + steps, score);
+        return response();
+    }
+
+    private String response() throws IOException {
+        out.flush();
+        String line = TranspositionDaemon.readLine(in);
+        String[] header = line == null ? new String[0] : line.split(" ");
+        if (header.length != 2 || !TranspositionDaemon.isInteger(header[1])) {
+            throw new IOException("Unexpected response from the daemon: " + line);
+        }
+        int length = Integer.parseInt(header[1]);
+        byte[] body = in.readNBytes(length);
+        if (body.length < length) {
+            throw new IOException("Connection closed inside a response");
+        }
+        String text = new String(body, StandardCharsets.ISO_8859_1);
+        if ("ERROR".equals(header[0])) {
+            throw new RemoteException(text);
+        }
+        return text;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Transpose files through a running daemon, printing each transposed score in order. Errors are printed
+     * to stderr and make the exit status 1.
+     * @param args SOCKET NUM-HALF-STEPS FILE...
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || !TranspositionDaemon.isInteger(args[1])) {
+            System.err.println("Usage: DaemonClient SOCKET NUM-HALF-STEPS MUSIC-FILE...");
+            System.exit(1);
+        }
+        int steps = Integer.parseInt(args[1]);
+        boolean failed = false;
+        try (DaemonClient client = new DaemonClient(Paths.get(args[0]))) {
+            for (int i = 2; i < args.length; i++) {
+                try {
+                    System.out.println(client.transposeFile(steps, Paths.get(args[i]).toAbsolutePath().toString()));
+                } catch (RemoteException e) {
+                    System.err.println(e.getMessage());
+                    failed = true;
+                }
+            }
+        }
+        System.exit(failed ? 1 : 0);
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * The FanOut class is a ScoreListener that forwards every event to several listeners, so that one pass of the
+ * Scanner and Parser can drive several transpositions at once. Each ScoreRenderer keeps its own key and octave:
+ * <pre>
+ * FanOut.transpose(new ChannelInput(filename), new int[] {-2, 3, 5}, sinks);</pre>
+ */
+public class FanOut implements ScoreListener {
+
+    private final ScoreListener[] listeners;
+
+    /**
+     * Construct a FanOut
+     * @param listeners the listeners receiving every event, in this order
+     */
+    public FanOut(ScoreListener... listeners) {
+        this.listeners = listeners.clone();
+    }
+
+    /**
+     * Parse a score once and print it transposed by each number of half steps into the matching Sink. Every
+     * output is the same as a Parser's with that number of half steps, except that a score which is not proper
+     * GUIDO syntax stops after the last complete symbol instead of the last Token parsed.
+     * @param in the score
+     * @param nums the numbers of half steps; can be negative
+     * @param outs where each transposition is printed; flushed at the end
+     * @return true if proper syntax
+     */
+    public static boolean transpose(Input in, int[] nums, Sink[] outs) {
+        boolean proper = parser(in, nums, outs).score();
+        for (Sink out : outs) {
+            TranspositionMetrics.flush(out);
+        }
+        return proper;
+    }
+
+    /**
+     * Build the Parser behind transpose(), for callers that want its syntaxError() when score() returns false.
+     * The Sinks are not flushed.
+     * @param in the score
+     * @param nums the numbers of half steps; can be negative
+     * @param outs where each transposition is printed
+     * @return a Parser whose score() prints each transposition
+     */
+    public static Parser parser(Input in, int[] nums, Sink[] outs) {
+        if (nums.length != outs.length) {
+            throw new IllegalArgumentException(nums.length + " intervals for " + outs.length + " outputs");
+        }
+        ScoreListener[] renderers = new ScoreListener[nums.length];
+        for (int i = 0; i < nums.length; i++) {
+            renderers[i] = new ScoreRenderer(outs[i], new TranspositionContext(nums[i]));
+        }
+        Parser parser = new IterativeParser(new TableScanner(in), new NullSink(), new TranspositionContext(0));
+        parser.setListener(new FanOut(renderers));
+        return parser;
+    }
+
+    @Override
+    public void scoreStart() {
+        for (ScoreListener l : listeners) {
+            l.scoreStart();
+        }
+    }
+
+    @Override
+    public void scoreEnd() {
+        for (ScoreListener l : listeners) {
+            l.scoreEnd();
+        }
+    }
+
+    @Override
+    public void voiceStart() {
+        for (ScoreListener l : listeners) {
+            l.voiceStart();
+        }
+    }
+
+    @Override
+    public void voiceEnd() {
+        for (ScoreListener l : listeners) {
+            l.voiceEnd();
+        }
+    }
+
+    @Override
+    public void chordStart() {
+        for (ScoreListener l : listeners) {
+            l.chordStart();
+        }
+    }
+
+    @Override
+    public void chordEnd() {
+        for (ScoreListener l : listeners) {
+            l.chordEnd();
+        }
+    }
+
+    @Override
+    public void note(int pitch, int octave, boolean octaveGiven, int mul, int div, int dots) {
+        for (ScoreListener l : listeners) {
+            l.note(pitch, octave, octaveGiven, mul, div, dots);
+        }
+    }
+
+    @Override
+    public void rest(int mul, int div, int dots) {
+        for (ScoreListener l : listeners) {
+            l.rest(mul, div, dots);
+        }
+    }
+
+    @Override
+    public void tag(CharSequence name, CharSequence param) {
+        for (ScoreListener l : listeners) {
+            l.tag(name, param);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * A GuidoException reports a file that cannot be transposed: it cannot be opened or read, or it is not GUIDO
+ * music. It names the file and, when known, the byte offset where the problem was found, so that a process working
+ * through many files can report the bad one and go on with the next:
+ * <pre>
+ * try {
+ *     new Parser(new Input(filename), out, context).printScore();
+ * } catch (GuidoException e) {
+ *     System.err.println(e.getMessage()); //e.g. "song.gmn:1042: Missing closing quote in String"
+ * }</pre>
+ */
+public class GuidoException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String filename;
+    private final long offset;
+    private final String reason;
+
+    /**
+     * Construct a GuidoException
+     * @param filename the name of the file
+     * @param offset the offset of the byte where the problem was found, or -1 if it is about the whole file
+     * @param reason what went wrong
+     * @param cause the underlying exception, or null
+     */
+    public GuidoException(String filename, long offset, String reason, Throwable cause) {
+        super(offset < 0 ? filename + ": " + reason : filename + ":" + offset + ": " + reason, cause);
+        this.filename = filename;
+        this.offset = offset;
+        this.reason = reason;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    /**
+     * @return the offset of the byte where the problem was found, or -1 if it is about the whole file
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return what went wrong, without the file name and offset
+     */
+    public String getReason() {
+        return reason;
+    }
+}
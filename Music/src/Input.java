@@ -17,12 +17,21 @@ import java.io.IOException;
  * Once instantiated, a function can read the next character as follows:
  * <pre>
  * in.getChar();</pre>
- * If the file does not exist or an error occurs while reading, this class prints an error message and exit with status 1.
+ * If the file does not exist or an error occurs while reading, a {@link GuidoException} is thrown, naming the file
+ * and the offset of the character being read.
  */
 public class Input {
 
     private BufferedInputStream bin;
-    private String filename;
+    protected String filename;
+    private long position; //Number of characters read so far
+
+    /**
+     * Construct an {@code Input} object with no underlying stream. Used by subclasses that provide their own
+     * {@link #getChar()}.
+     */
+    protected Input() {
+    }
 
     /**
      * Construct an {@code Input} object from an {@code InputStream}.
@@ -33,6 +42,16 @@ public class Input {
         this.filename = "(in)";
     }
 
+    /**
+     * Construct an {@code Input} object from an {@code InputStream}, naming it in error messages.
+     * @param in  an {@code InputStream}
+     * @param filename  the name used in error messages, e.g. where the stream comes from
+     */
+    public Input(InputStream in, String filename) {
+        this.bin = new BufferedInputStream(in);
+        this.filename = filename;
+    }
+
     /**
      * Construct an {@code Input} object from a filename.
      * @param filename  the name of a file (it must exist)
@@ -45,7 +64,7 @@ public class Input {
             this.bin = new BufferedInputStream(fin);
         }
         catch (FileNotFoundException e) {
-            fatal("No such file");
+            throw error("No such file", -1, e);
         }
     }
 
@@ -58,16 +77,57 @@ public class Input {
      */
     public int getChar() {
         try {
-            return bin.read();
+            int ch = bin.read();
+            if (ch >= 0) {
+                position++;
+            }
+            return ch;
         } catch (IOException e) {
-            fatal("Read error");
+            throw error("Read error", position, e);
         }
-        return 0;
     }
 
+    /**
+     * Get the offset of the next character from the start of the {@code Input}, i.e. the number of characters
+     * read so far.
+     *
+     * @return the offset of the next character
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * Get the name of the file, or "(in)" for an {@code InputStream}.
+     *
+     * @return the name used in error messages
+     */
+    public String getFilename() {
+        return filename;
+    }
+
+    /**
+     * Build the error to throw about this {@code Input}.
+     *
+     * @param msg what went wrong
+     * @param offset the offset of the character where it went wrong, or -1 if it is about the whole file
+     * @return a {@code GuidoException} naming the file
+     */
+    public GuidoException error(String msg, long offset) {
+        return error(msg, offset, null);
+    }
+
+    protected GuidoException error(String msg, long offset, Throwable cause) {
+        return new GuidoException(filename, offset, msg, cause);
+    }
+
+    /**
+     * Throw a {@code GuidoException} about the character being read.
+     *
+     * @param msg what went wrong
+     */
     public void fatal(String msg) {
-        System.err.println(filename + ": " + msg);
-        System.exit(1);
+        throw error(msg, position());
     }
 
     public static void main(String[] args) {
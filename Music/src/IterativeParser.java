@@ -0,0 +1,149 @@
+/**
+ * The IterativeParser class parses the same GUIDO syntax as the Parser and prints byte-identical output, but the
+ * lists (voices, symbols, chord notes) are parsed with loops instead of one recursive call per element.
+ * The stack depth therefore depends on how deeply the score is nested (score, voice, chord, note), not on how
+ * long it is, so long voices no longer need a large -Xss.
+ *
+ * Symbols are dispatched on a single lookahead Token through the SYMBOL table, which maps each Id to the kind of
+ * symbol it starts.
+ */
+public class IterativeParser extends Parser {
+
+    //Kinds of symbol, indexed by the Id of their first Token
+    private static final byte NONE = 0;
+    private static final byte NOTE = 1;
+    private static final byte REST = 2;
+    private static final byte CHORD = 3;
+    private static final byte TAG = 4;
+
+    private static final byte[] SYMBOL = new byte[Id.values().length];
+
+    static {
+        SYMBOL[Id.CHARACTER.ordinal()] = NOTE;
+        SYMBOL[Id.REST.ordinal()] = REST;
+        SYMBOL[Id.OPEN_CPAREN.ordinal()] = CHORD;
+        SYMBOL[Id.BACK_SLASH.ordinal()] = TAG;
+    }
+
+    //Constructors
+    public IterativeParser(Scanner sc) {
+        super(sc);
+    }
+
+    public IterativeParser(Scanner sc, Sink out) {
+        super(sc, out);
+    }
+
+    public IterativeParser(Scanner sc, Sink out, TranspositionContext context) {
+        super(sc, out, context);
+    }
+
+    public IterativeParser(Input in) {
+        super(in);
+    }
+
+    public IterativeParser(Input in, Sink out) {
+        super(in, out);
+    }
+
+    public IterativeParser(Input in, Sink out, TranspositionContext context) {
+        super(in, out, context);
+    }
+
+    public IterativeParser(String filename) {
+        super(filename);
+    }
+
+    public IterativeParser(String file1, String file2) {
+        super(file1, file2);
+    }
+
+    /**
+     * Voicelist is a series of voices separated by commas; it may also be empty.
+     *
+     * @return true if proper syntax
+     */
+    @Override
+    public boolean voiceList() {
+        while (voice()) {
+            Token tok = scanToken();
+            if (tok.getId() != Id.COMMA) {
+                putback(tok);
+                break;
+            }
+            out.print(',');
+        }
+        return true;
+    }
+
+    /**
+     * SymbolsList is all the symbols within a voice, each followed by a space, up to the closing bracket ].
+     *
+     * @return true if proper syntax
+     */
+    @Override
+    public boolean symbolsList() {
+        while (peak().getId() != Id.CLOSED_BRACKET) {
+            if (!symbol()) {
+                return false;
+            }
+            out.print(" ");
+        }
+        return true;
+    }
+
+    /**
+     * Symbols parses symbols, each followed by a space, up to the end of the Input instead of a closing bracket,
+     * e.g. the inside of a voice, or a part of it, read on its own.
+     *
+     * @return true if proper syntax
+     */
+    public boolean symbols() {
+        while (peak().getId() != Id.STOP) {
+            if (!symbol()) {
+                return false;
+            }
+            out.print(" ");
+        }
+        return true;
+    }
+
+    /**
+     * Symbol looks at the next Token once and dispatches on the kind of symbol it starts.
+     *
+     * @return true if proper syntax
+     */
+    @Override
+    public boolean symbol() {
+        switch (SYMBOL[peak().getId().ordinal()]) {
+            case NOTE:
+                return note();
+            case REST:
+                return rest();
+            case CHORD:
+                return chord();
+            case TAG:
+                return tag();
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * NotesList processes a series of notes separated by commas.
+     *
+     * @return true if proper syntax
+     */
+    @Override
+    protected boolean notesList() {
+        while (note()) {
+            Token tok = scanToken();
+            if (tok.getId() != Id.COMMA) {
+                putback(tok);
+                return true;
+            }
+            out.print(',');
+        }
+        return false;
+    }
+}
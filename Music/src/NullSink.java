@@ -0,0 +1,18 @@
+/**
+ * The NullSink class discards everything printed to it, for callers that only need a Parser's result or its
+ * side effects.
+ */
+public class NullSink implements Sink {
+
+    @Override
+    public void print(CharSequence s) {
+    }
+
+    @Override
+    public void print(char c) {
+    }
+
+    @Override
+    public void print(int n) {
+    }
+}
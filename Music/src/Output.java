@@ -3,11 +3,12 @@ import java.io.*;
 /**
  * The Output class provides different ways of printing or saving the transposed GUIDO file.
  * Uses a PrintStream variable to print Strings, characters, and integers, or to place a transposed
- * file into a new file.
+ * file into a new file. It is the Sink a Parser prints into unless it is given another one.
  */
-public class Output {
+public class Output implements Sink, AutoCloseable {
 
     private PrintStream out;
+    private boolean opened; //Whether out was opened by this Output, and so is closed by it
 
     //Constructors
     public Output() {
@@ -25,13 +26,15 @@ public class Output {
     /**
      * Makes a second file the Output, so it will receive the text of the transposed file
      * @param filename the file to be filled with a transposed file
+     * @throws GuidoException naming the file if it cannot be created
      */
     public Output(String filename) {
         try {
             this.out = new PrintStream(new File(filename));
+            this.opened = true;
         }
         catch (FileNotFoundException e) {
-            System.err.print("No such file");
+            throw new GuidoException(filename, -1, "Cannot write", e);
         }
     }
 
@@ -40,14 +43,39 @@ public class Output {
         out.print(s);
     }
 
+    @Override
+    public void print(CharSequence s) {
+        out.append(s);
+    }
+
+    @Override
     public void print(char c) {
         out.print(c);
     }
 
+    @Override
     public void print(int n) {
         out.print(n);
     }
 
+    @Override
+    public void flush() {
+        out.flush();
+    }
+
+    /**
+     * Close the file opened by Output(filename). A PrintStream given by the caller, e.g. System.out, is only
+     * flushed: it belongs to the caller.
+     */
+    @Override
+    public void close() {
+        if (opened) {
+            out.close();
+        } else {
+            out.flush();
+        }
+    }
+
     public static void main(String[] args) {
         Output o = new Output(System.out);
         o.print("Hello world\n");
@@ -0,0 +1,470 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * The ParallelTranspose class transposes the voices of a score at the same time, one fork/join task per voice,
+ * and prints exactly what a Parser would print. Voices longer than a chunk size are themselves split into parts
+ * of about that size, so that a score made of one huge voice is transposed in parallel as well.
+ *
+ * A quick pass over the bytes finds where each voice [ ... ] starts and ends, and where its long voices can be
+ * split: right before a symbol (a letter, _, \ or {) outside of chords, Strings and tagnames, since no symbol can
+ * continue across one. Each part is then parsed and rendered on its own, into its own buffer, as if nothing came
+ * before it. The Parser however carries the octave and the key of each note and \key command over to the
+ * following ones, across voices as well. So once all parts are done, the octave and key each part really starts
+ * with are worked out in order, and the few parts whose output depends on them (notes before the first octave or
+ * the first \key of the part) are rendered again. The buffers are then printed in order, with the brackets and
+ * commas of the voices in between:
+ * <pre>
+ * ParallelTranspose.transpose(in.map(), filename, numHalfSteps, out);</pre>
+ * The Parser prints durations as they are written, so no duration state needs to be carried over.
+ * If the quick pass does not recognize the score as a list of voices, or a part is not proper GUIDO syntax, the
+ * whole score is transposed by an IterativeParser instead, so the output is always the same.
+ */
+public final class ParallelTranspose {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    //Flags of a part
+    private static final int OPENS = 1; //First part of a voice
+    private static final int CLOSES = 2; //Last part of a voice
+
+    private ParallelTranspose() {
+    }
+
+    /**
+     * Transpose a score in the common fork/join pool
+     * @param score the bytes of the score, between the buffer's position and limit
+     * @param filename the name used in error messages
+     * @param numHalfSteps the number of half steps; can be negative
+     * @param out where the transposed score is printed; flushed at the end
+     * @return true if proper syntax
+     */
+    public static boolean transpose(ByteBuffer score, String filename, int numHalfSteps, Sink out) {
+        return transpose(score, filename, numHalfSteps, out, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Transpose a score in a fork/join pool
+     * @param score the bytes of the score, between the buffer's position and limit
+     * @param filename the name used in error messages
+     * @param numHalfSteps the number of half steps; can be negative
+     * @param out where the transposed score is printed; flushed at the end
+     * @param pool runs one task per part
+     * @return true if proper syntax
+     */
+    public static boolean transpose(ByteBuffer score, String filename, int numHalfSteps, Sink out,
+                                    ForkJoinPool pool) {
+        return transpose(score, filename, numHalfSteps, out, pool, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Transpose a score in a fork/join pool, splitting voices into parts of about the given size
+     * @param score the bytes of the score, between the buffer's position and limit
+     * @param filename the name used in error messages
+     * @param numHalfSteps the number of half steps; can be negative
+     * @param out where the transposed score is printed; flushed at the end
+     * @param pool runs one task per part
+     * @param chunkSize the number of bytes after which a voice is split
+     * @return true if proper syntax
+     */
+    static boolean transpose(ByteBuffer score, String filename, int numHalfSteps, Sink out, ForkJoinPool pool,
+                             int chunkSize) {
+        return improper(score, filename, numHalfSteps, out, pool, chunkSize) == null;
+    }
+
+    /**
+     * Transpose a score in the common fork/join pool, as transpose() does, throwing the error of a score that is
+     * not proper GUIDO syntax
+     * @param score the bytes of the score, between the buffer's position and limit
+     * @param filename the name used in error messages
+     * @param numHalfSteps the number of half steps; can be negative
+     * @param out where the transposed score is printed; flushed at the end
+     * @throws GuidoException if the score is not proper GUIDO syntax, once it is printed up to where parsing stopped
+     */
+    static void transposeOrThrow(ByteBuffer score, String filename, int numHalfSteps, Sink out) {
+        Parser parser = improper(score, filename, numHalfSteps, out, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+        if (parser != null) {
+            throw parser.syntaxError();
+        }
+    }
+
+    /**
+     * @return null if proper syntax, or the Parser that found it is not, for its syntaxError()
+     */
+    private static Parser improper(ByteBuffer score, String filename, int numHalfSteps, Sink out, ForkJoinPool pool,
+                                   int chunkSize) {
+        int[] bounds = parts(score, chunkSize);
+        if (bounds == null) {
+            return sequential(score, filename, numHalfSteps, out);
+        }
+        TranspositionMetrics.Transposition event = TranspositionMetrics.begin(); //Dropped if sequential() is used
+        long start = System.nanoTime();
+        int count = bounds.length / 3;
+        Part[] parts = new Part[count];
+        for (int p = 0; p < count; p++) {
+            ByteBuffer bytes = score.duplicate();
+            bytes.limit(bounds[3 * p + 1]).position(bounds[3 * p]);
+            parts[p] = new Part(bytes, filename, numHalfSteps);
+        }
+        pool.invoke(new ForEachPart(p -> parts[p].render(), 0, count));
+
+        //Carry the octave and key over from each part into the next, as the Parser does
+        int[] octaves = new int[count];
+        String[] keys = new String[count];
+        for (int p = 0; p < count; p++) {
+            if (!parts[p].proper) {
+                return sequential(score, filename, numHalfSteps, out);
+            }
+            if (p > 0) {
+                octaves[p] = parts[p - 1].octaveGiven ? parts[p - 1].lastOctave : octaves[p - 1];
+                keys[p] = parts[p - 1].lastKey != null ? parts[p - 1].lastKey : keys[p - 1];
+            }
+        }
+        pool.invoke(new ForEachPart(p -> parts[p].inherit(octaves[p], keys[p]), 0, count));
+
+        out.print('{');
+        for (int p = 0; p < count; p++) {
+            int flags = bounds[3 * p + 2];
+            if ((flags & OPENS) != 0) {
+                if (p > 0) {
+                    out.print(',');
+                }
+                out.print('[');
+            }
+            out.print(parts[p].out.toString());
+            if ((flags & CLOSES) != 0) {
+                out.print(']');
+            }
+        }
+        out.print('}');
+        scored(score, bounds, parts, filename, numHalfSteps, out, System.nanoTime() - start, event);
+        TranspositionMetrics.flush(out);
+        return null;
+    }
+
+    /**
+     * Report a score to the TranspositionMetrics once, with the counts a Parser would have: those of the parts,
+     * and the Tokens between them that the parts do not hold
+     */
+    private static void scored(ByteBuffer score, int[] bounds, Part[] parts, String filename, int numHalfSteps,
+                               Sink out, long nanos, TranspositionMetrics.Transposition event) {
+        Id[] ids = Id.values();
+        long[] tokens = new long[ids.length];
+        long notes = 0;
+        long tags = 0;
+        int voices = 0;
+        for (int p = 0; p < parts.length; p++) {
+            Parser parser = parts[p].counted;
+            for (int i = 0; i < ids.length; i++) {
+                tokens[i] += parser.getScanner().getTokenCount(ids[i]);
+            }
+            notes += parser.getContext().getNotes();
+            tags += parser.getTags();
+            if ((bounds[3 * p + 2] & OPENS) != 0) {
+                voices++;
+            }
+        }
+        tokens[Id.STOP.ordinal()] -= parts.length; //Each part ends with one, the score does not
+        tokens[Id.OPEN_CPAREN.ordinal()]++;
+        tokens[Id.CLOSED_CPAREN.ordinal()]++;
+        tokens[Id.OPEN_BRACKET.ordinal()] += voices;
+        tokens[Id.CLOSED_BRACKET.ordinal()] += voices;
+        tokens[Id.COMMA.ordinal()] += Math.max(voices - 1, 0);
+        //The Parser reads up to the closing brace: after the last ] or, with no voices, after the opening brace
+        int end = parts.length > 0 ? bounds[bounds.length - 2] + 1 : skipWhitespace(score, score.position()) + 1;
+        end = skipWhitespace(score, end) + 1;
+        TranspositionMetrics.scored(ParallelTranspose.class.getSimpleName(), filename, numHalfSteps, true,
+                end - score.position(), tokens, notes, tags, out.size(), nanos, event);
+    }
+
+    private static Parser sequential(ByteBuffer score, String filename, int numHalfSteps, Sink out) {
+        Parser parser = new IterativeParser(new TableScanner(new BufferInput(score, filename)), out,
+                new TranspositionContext(numHalfSteps));
+        boolean proper = parser.score();
+        TranspositionMetrics.flush(out);
+        return proper ? null : parser;
+    }
+
+    /**
+     * Find the parts of a score: a { followed by voices separated by commas and a }, with whitespace anywhere
+     * in between. Tagnames and Strings are skipped the way the Scanner reads them, so a ] inside them does not
+     * end a voice.
+     * @param score the bytes of the score
+     * @param chunkSize the number of bytes after which a voice is split
+     * @return for each part, the index of its first byte, the index after its last byte and its flags, or null if
+     * the score is laid out differently. Parts hold what is between the brackets of a voice, not the brackets.
+     */
+    static int[] parts(ByteBuffer score, int chunkSize) {
+        int limit = score.limit();
+        IntList bounds = new IntList();
+        int i = skipWhitespace(score, score.position());
+        if (i >= limit || score.get(i) != '{') {
+            return null;
+        }
+        i = skipWhitespace(score, i + 1);
+        if (i < limit && score.get(i) == '}') {
+            return bounds.toArray();
+        }
+        while (i < limit && score.get(i) == '[') {
+            i = splitVoice(score, i + 1, chunkSize, bounds);
+            if (i < 0) {
+                return null;
+            }
+            i = skipWhitespace(score, i);
+            if (i < limit && score.get(i) == '}') {
+                return bounds.toArray();
+            }
+            if (i >= limit || score.get(i) != ',') {
+                return null;
+            }
+            i = skipWhitespace(score, i + 1);
+        }
+        return null;
+    }
+
+    private static int skipWhitespace(ByteBuffer score, int i) {
+        while (i < score.limit() && (score.get(i) & 0xFF) <= 32) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Add the parts of a voice
+     * @param i the index after the [ of the voice
+     * @param chunkSize the number of bytes after which the voice is split
+     * @param bounds where the parts are added
+     * @return the index after the ] of the voice, or -1 if there is none
+     */
+    private static int splitVoice(ByteBuffer score, int i, int chunkSize, IntList bounds) {
+        int limit = score.limit();
+        int start = i;
+        int flags = OPENS;
+        int depth = 0; //Inside a chord
+        while (i < limit) {
+            byte b = score.get(i);
+            if (depth == 0 && i - start >= chunkSize && isSymbolStart(b)) {
+                bounds.add(start, i, flags);
+                start = i;
+                flags = 0;
+            }
+            i++;
+            if (b == ']') {
+                bounds.add(start, i - 1, flags | CLOSES);
+                return i;
+            } else if (b == '[') {
+                return -1;
+            } else if (b == '{') {
+                depth++;
+            } else if (b == '}') {
+                depth--;
+            } else if (b == '\"') {
+                while (i < limit && score.get(i) != '\"') {
+                    i++;
+                }
+                i++; //The closing quotation mark
+            } else if (b == '\\') {
+                while (i < limit && score.get(i) != ' ' && score.get(i) != '<') {
+                    i++;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isSymbolStart(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || b == '_' || b == '\\' || b == '{';
+    }
+
+    /**
+     * One part, rendered on its own, and what it needs from and leaves to the parts around it
+     */
+    private static final class Part implements ScoreListener {
+
+        private final ByteBuffer bytes;
+        private final String filename;
+        private final int numHalfSteps;
+        private Scanner scan;
+        Parser counted; //The render of the whole part, whose counts are reported
+        CaptureSink out;
+        boolean proper;
+
+        //Found while rendering
+        boolean dependsOnOctave; //A note inherits the octave from before the part
+        boolean dependsOnKey; //A note comes before the first \key of the part
+        boolean octaveGiven;
+        int lastOctave;
+        String lastKey;
+        long independentAt = -1; //Offset after which the output no longer depends on what came before the part
+        int independentOut; //Length of the output at that point
+
+        Part(ByteBuffer bytes, String filename, int numHalfSteps) {
+            this.bytes = bytes;
+            this.filename = filename;
+            this.numHalfSteps = numHalfSteps;
+        }
+
+        /**
+         * Parse and render the part as if nothing came before it
+         */
+        void render() {
+            try {
+                proper = render(bytes, 0, null);
+            } catch (GuidoException e) {
+                proper = false; //Reported by the sequential parser, with the offset in the whole score
+            }
+        }
+
+        /**
+         * Render the part again if its output depends on the octave or key it starts with. Only the part before
+         * it stops depending on them is parsed again.
+         * @param octave the octave of the last note before the part that gave one
+         * @param key the String of the last \key command before the part, or null if there is none
+         */
+        void inherit(int octave, String key) {
+            if (!(dependsOnOctave && octave != 0 || dependsOnKey && key != null)) {
+                return;
+            }
+            if (independentAt < 0) {
+                render(bytes, octave, key);
+                return;
+            }
+            String rest = out.toString().substring(independentOut);
+            ByteBuffer prefix = bytes.duplicate();
+            prefix.limit(prefix.position() + (int) independentAt);
+            render(prefix, octave, key); //Stops at the same point, with the same Tokens
+            String start = out.toString().substring(0, independentOut);
+            out = new CaptureSink();
+            out.print(start);
+            out.print(rest);
+        }
+
+        private boolean render(ByteBuffer part, int octave, String key) {
+            TranspositionContext context = new TranspositionContext(numHalfSteps);
+            context.setOctave(octave);
+            if (key != null) {
+                context.setKey(key);
+            }
+            out = new CaptureSink();
+            dependsOnOctave = false;
+            dependsOnKey = false;
+            octaveGiven = false;
+            lastKey = null;
+            independentAt = -1;
+            scan = new TableScanner(new BufferInput(part, filename));
+            IterativeParser parser = new IterativeParser(scan, out, context);
+            parser.setListener(this);
+            if (part == bytes) {
+                counted = parser; //Not a prefix rendered again
+            }
+            return parser.symbols();
+        }
+
+        private void checkIndependent() {
+            if (independentAt < 0 && octaveGiven && lastKey != null) {
+                independentAt = scan.tokenEnd();
+                independentOut = out.length();
+            }
+        }
+
+        @Override
+        public void note(int pitch, int octave, boolean given, int mul, int div, int dots) {
+            dependsOnOctave |= !given && !octaveGiven;
+            dependsOnKey |= lastKey == null;
+            octaveGiven |= given;
+            if (given) {
+                lastOctave = octave;
+            }
+            checkIndependent();
+        }
+
+        @Override
+        public void tag(CharSequence name, CharSequence param) {
+            if ("key".contentEquals(name)) {
+                lastKey = param.toString();
+                checkIndependent();
+            }
+        }
+
+        @Override
+        public void scoreStart() {
+        }
+
+        @Override
+        public void scoreEnd() {
+        }
+
+        @Override
+        public void voiceStart() {
+        }
+
+        @Override
+        public void voiceEnd() {
+        }
+
+        @Override
+        public void chordStart() {
+        }
+
+        @Override
+        public void chordEnd() {
+        }
+
+        @Override
+        public void rest(int mul, int div, int dots) {
+        }
+    }
+
+    /**
+     * Runs the work for every part between lo and hi, splitting the range in halves down to one part per task
+     */
+    private static final class ForEachPart extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final IntConsumer work;
+        private final int lo;
+        private final int hi;
+
+        ForEachPart(IntConsumer work, int lo, int hi) {
+            this.work = work;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo == 1) {
+                work.accept(lo);
+            } else if (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new ForEachPart(work, lo, mid), new ForEachPart(work, mid, hi));
+            }
+        }
+    }
+
+    /**
+     * A growable array of ints
+     */
+    private static final class IntList {
+
+        private int[] values = new int[48];
+        private int size;
+
+        void add(int a, int b, int c) {
+            if (size + 3 > values.length) {
+                values = Arrays.copyOf(values, 2 * values.length);
+            }
+            values[size++] = a;
+            values[size++] = b;
+            values[size++] = c;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -4,20 +4,78 @@
  * Thus, each method in the recursive descent returns true if this syntax is proper GUIDO format;
  * a false indicates improper GUIDO syntax.
  * The transpose() method is called when a Note is detected.
+ * A ScoreListener given to setListener() also receives each element of the score as it is recognized.
+ * Each score parsed is counted by the TranspositionMetrics, and recorded as a JDK Flight Recorder event when a
+ * recording is running.
  */
 public class Parser {
 
     private Scanner scan;
-    private Output out;
-    private String file = "";
+    protected Sink out;
+    private CaptureSink capture; //Only set when the Parser prints into a CaptureSink
+    protected TranspositionContext context;
+    private ScoreListener listener; //Null unless events are wanted
+    private long tags; //Tags parsed so far
+
+    //Parts of the note or rest being parsed, sent to the listener
+    private boolean octaveGiven;
+    private int mul;
+    private int div;
+    private int numDots;
+    private int number; //Value of the last number()
+    private CharSequence param; //String of the last parameter
 
     /**
      * Construct a Parser with a Scanner
      * @param sc a Scanner
      */
     public Parser(Scanner sc) {
+        this(sc, new Output());
+    }
+
+    /**
+     * Construct a Parser that prints into the given Sink. The number of half steps is the one last given to
+     * Note.setNumHalfSteps().
+     * @param sc a Scanner
+     * @param out where the transposed score is printed, e.g. a CaptureSink to read it back with getFile()
+     */
+    public Parser(Scanner sc, Sink out) {
+        this(sc, out, new TranspositionContext(Note.getNumHalfSteps()));
+    }
+
+    /**
+     * Construct a Parser that prints into the given Sink and transposes within its own context
+     * @param sc a Scanner
+     * @param out where the transposed score is printed
+     * @param context the number of half steps, key and octave of this transposition
+     */
+    public Parser(Scanner sc, Sink out, TranspositionContext context) {
         this.scan = sc;
-        out = new Output();
+        this.out = out;
+        this.context = context;
+        if (out instanceof CaptureSink) {
+            this.capture = (CaptureSink) out;
+        }
+    }
+
+    /**
+     * Construct a Parser that prints into the given Sink, with an Input object by constructing a Scanner
+     * @param in an Input
+     * @param out where the transposed score is printed
+     */
+    public Parser(Input in, Sink out) {
+        this(new Scanner(in), out);
+    }
+
+    /**
+     * Construct a Parser that prints into the given Sink and transposes within its own context, with an Input
+     * object by constructing a Scanner
+     * @param in an Input
+     * @param out where the transposed score is printed
+     * @param context the number of half steps, key and octave of this transposition
+     */
+    public Parser(Input in, Sink out, TranspositionContext context) {
+        this(new Scanner(in), out, context);
     }
 
     /**
@@ -25,8 +83,7 @@ public class Parser {
      * @param in an Input
      */
     public Parser(Input in) {
-        this.scan = new Scanner(in);
-        out = new Output();
+        this(new Scanner(in), new Output());
     }
 
     /**
@@ -34,8 +91,7 @@ public class Parser {
      * @param filename the name of a GUIDO file
      */
     public Parser(String filename) {
-        this.scan = new Scanner(new Input(filename));
-        out = new Output();
+        this(new Scanner(new Input(filename)), new Output());
     }
 
     /**
@@ -44,13 +100,56 @@ public class Parser {
      * @param file2
      */
     public Parser(String file1, String file2) {
-        this.scan = new Scanner(new Input(file1));
-        out = new Output(file2);
+        this(new Scanner(new Input(file1)), new Output(file2));
+    }
+
+    /**
+     * Send the elements of the score to a listener as they are parsed
+     * @param listener the listener, or null for none
+     */
+    public void setListener(ScoreListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return the number of half steps, key and octave of this transposition
+     */
+    public TranspositionContext getContext() {
+        return context;
+    }
+
+    /**
+     * @return the Scanner the Parser reads its Tokens from
+     */
+    Scanner getScanner() {
+        return scan;
+    }
+
+    /**
+     * @return the Sink the Parser prints into
+     */
+    Sink getSink() {
+        return out;
+    }
+
+    /**
+     * @return the number of tags parsed so far
+     */
+    public long getTags() {
+        return tags;
     }
 
-    //Accessor method to retrieve filename
+    /**
+     * Retrieve the transposed score printed so far. Only available when the Parser prints into a CaptureSink, so
+     * that parsers printing elsewhere do not pay for keeping a copy.
+     * @return the text printed so far
+     * @throws IllegalStateException if the Parser does not print into a CaptureSink
+     */
     public String getFile() {
-        return file;
+        if (capture == null) {
+            throw new IllegalStateException("Parser output is not captured; construct it with a CaptureSink");
+        }
+        return capture.toString();
     }
 
     /**
@@ -96,17 +195,29 @@ public class Parser {
 
     /**
      * Initiate recursive descent parsing
+     *
+     * @return true if proper syntax; if not, syntaxError() tells where parsing stopped
      */
-    public void printScore() {
-        score();
+    public boolean printScore() {
+        boolean proper = score();
+        TranspositionMetrics.flush(out);
+        return proper;
+    }
+
+    /**
+     * SyntaxError builds the error to report when score() returns false, at the Token parsing stopped on
+     *
+     * @return a GuidoException naming the file and the offset of that Token
+     */
+    public GuidoException syntaxError() {
+        return scan.error("Improper GUIDO syntax");
     }
 
     /**
      * Beginning of Recursive Descent
      *
      * Booleans are used to check for proper GUIDO syntax; a false will stop the parsing.
-     * Characters and Tokens are printed through the Output class as their identity is confirmed.
-     * Additionally, each Token is added to the file variable.
+     * Characters and Tokens are printed into the Sink as their identity is confirmed.
      */
 
     /**
@@ -116,11 +227,32 @@ public class Parser {
      * @return true if proper syntax
      */
     public boolean score() {
+        TranspositionMetrics.Transposition event = TranspositionMetrics.begin();
+        long start = System.nanoTime();
+        boolean proper;
+        try {
+            proper = scoreBody();
+        } catch (GuidoException e) {
+            //A score that cannot be read or scanned is improper; one abandoned for another reason is not counted
+            TranspositionMetrics.scored(this, false, System.nanoTime() - start, event);
+            throw e;
+        }
+        TranspositionMetrics.scored(this, proper, System.nanoTime() - start, event);
+        return proper;
+    }
+
+    private boolean scoreBody() {
         if (expect(Id.OPEN_CPAREN)) {
-            out.print('{'); file += "{";
+            out.print('{');
+            if (listener != null) {
+                listener.scoreStart();
+            }
             if (voiceList()
                     && expect(Id.CLOSED_CPAREN)) {
-                out.print('}'); file += "}";
+                out.print('}');
+                if (listener != null) {
+                    listener.scoreEnd();
+                }
                 return true;
             }
             return false;
@@ -140,7 +272,7 @@ public class Parser {
         if (voice()) {
             Token tok = scanToken();
             if (tok.getId() == Id.COMMA) {
-                out.print(','); file += ",";
+                out.print(',');
                 return voiceList();
             }
             putback(tok);
@@ -157,10 +289,16 @@ public class Parser {
      */
     public boolean voice() {
         if(expect(Id.OPEN_BRACKET)) {
-            out.print('['); file += "[";
+            out.print('[');
+            if (listener != null) {
+                listener.voiceStart();
+            }
             if (symbolsList()
                     && expect(Id.CLOSED_BRACKET)) {
-                out.print(']'); file += "]";
+                out.print(']');
+                if (listener != null) {
+                    listener.voiceEnd();
+                }
                 return true;
             }
             return false;
@@ -180,7 +318,7 @@ public class Parser {
             return true;
         }
         if (symbol()) {
-            out.print(" "); file += " ";
+            out.print(" ");
             return symbolsList();
         }
         return false;
@@ -214,16 +352,18 @@ public class Parser {
      *
      * @return true if proper syntax
      */
-    private boolean note() {
+    protected boolean note() {
         Token tok = scanToken();
         String noteName = tok.getChar() + accidentals();
-        Note n = new Note(noteName);
+        Note n = new Note(noteName, context);
         if (octave()) {
 
             n.transpose();
-            out.print(n.getNote() + n.getOctave()); file += (n.getNote() + n.getOctave());
+            out.print(n.getNote());
+            out.print(n.getOctave());
 
             if (duration() && dots()) {
+                noteParsed(noteName);
                 return true;
             }
             return false;
@@ -231,16 +371,29 @@ public class Parser {
         return false;
     }
 
+    /**
+     * Send a note whose octave, duration and dots have just been parsed to the listener, if any
+     * @param noteName the written pitch of the note
+     */
+    protected void noteParsed(String noteName) {
+        if (listener != null) {
+            listener.note(PitchTable.encode(noteName), context.getOctave(), octaveGiven, mul, div, numDots);
+        }
+    }
+
     /**
      * Rest processes the rest and its duration. Like notes, rests can have dots.
      *
      * @return true if proper syntax
      */
-    private boolean rest() {
+    protected boolean rest() {
         scanToken();
-        out.print('_'); file += "_";
+        out.print('_');
         duration();
         dots();
+        if (listener != null) {
+            listener.rest(mul, div, numDots);
+        }
         return true;
     }
 
@@ -251,7 +404,7 @@ public class Parser {
      *
      * @return a String with all the accidentals, if any
      */
-    private String accidentals() {
+    protected String accidentals() {
         Token tok = scanToken();
         String accidentals = "";
         while (tok.getId() == Id.FLAT) {
@@ -273,20 +426,22 @@ public class Parser {
      *
      * @return true if proper syntax
      */
-    private boolean octave() {
+    protected boolean octave() {
         Token tok = scanToken();
+        octaveGiven = true;
         if (tok.getId() == Id.HYPHEN) {
             if(peak().getId() == Id.INTEGER) {
                 tok = scanToken();
-                Note.setStaticOctave(-1 * tok.getInt());
+                context.setOctave(-1 * tok.getInt());
                 return true;
             }
             return false;
         } else if (tok.getId() == Id.INTEGER) {
-            Note.setStaticOctave(tok.getInt());
+            context.setOctave(tok.getInt());
             return true;
         }
         putback(tok);
+        octaveGiven = false;
         return true;
     }
 
@@ -298,22 +453,36 @@ public class Parser {
      *
      * @return true if proper syntax
      */
-    private boolean duration() {
+    protected boolean duration() {
         Token tok = scanToken();
+        mul = ScoreListener.NONE;
+        div = ScoreListener.NONE;
         if (tok.getId() == Id.SLASH) {
-            out.print('/'); file += "/";
-            return number();
+            out.print('/');
+            if (number()) {
+                div = number;
+                return true;
+            }
+            div = ScoreListener.MISSING; //Printed all the same, in case the caller is rest()
+            return false;
         } else if (tok.getId() == Id.ASTERISK) {
-            out.print('*'); file += "*";
+            out.print('*');
             if(number()) {
+                mul = number;
                 tok = scanToken();
                 if (tok.getId() == Id.SLASH) {
-                    out.print('/'); file += "/";
-                    return number();
+                    out.print('/');
+                    if (number()) {
+                        div = number;
+                        return true;
+                    }
+                    div = ScoreListener.MISSING;
+                    return false;
                 }
                 putback(tok);
                 return true;
             }
+            mul = ScoreListener.MISSING;
             return false;
         }
         putback(tok);
@@ -334,7 +503,8 @@ public class Parser {
                 tok = scanToken();
                 n = (n * 10) + tok.getInt();
             }
-            out.print(n); file += ("" + n);
+            out.print(n);
+            number = n;
             return true;
         }
         putback(tok);
@@ -346,10 +516,12 @@ public class Parser {
      *
      * @return true if proper syntax
      */
-    private boolean dots() {
+    protected boolean dots() {
         Token tok = scanToken();
+        numDots = 0;
         while (tok.getId() == Id.DOT) {
-            out.print('.'); file += ".";
+            out.print('.');
+            numDots++;
             tok = scanToken();
         }
         putback(tok);
@@ -362,12 +534,18 @@ public class Parser {
      *
      * @return true if proper syntax
      */
-    private boolean chord() {
+    protected boolean chord() {
         if(expect(Id.OPEN_CPAREN)) {
-            out.print('{'); file += "{";
+            out.print('{');
+            if (listener != null) {
+                listener.chordStart();
+            }
             if (notesList()
                     && expect(Id.CLOSED_CPAREN)) {
-                out.print('}'); file += "}";
+                out.print('}');
+                if (listener != null) {
+                    listener.chordEnd();
+                }
                 return true;
             }
         }
@@ -380,11 +558,11 @@ public class Parser {
      *
      * @return true if proper syntax
      */
-    private boolean notesList() {
+    protected boolean notesList() {
         if (note()) {
             Token tok = scanToken();
             if (tok.getId() == Id.COMMA) {
-                out.print(','); file += ",";
+                out.print(',');
                 return notesList();
             }
             putback(tok);
@@ -399,16 +577,18 @@ public class Parser {
      *
      * @return true if proper syntax
      */
-    private boolean tag() {
+    protected boolean tag() {
         Token tok = scanToken();
-        out.print('\\'); file += "\\";
+        out.print('\\');
         if (peak().getId() == Id.TAGNAME) {
             tok = scanToken();
-            out.print(tok.getString()); file += tok.getString();
-            if (tok.getString().equals("key")) {
-                return parameterGetKey();
+            tags++;
+            out.print(tok.getText());
+            boolean proper = "key".contentEquals(tok.getText()) ? parameterGetKey() : parameter();
+            if (proper && listener != null) {
+                listener.tag(tok.getText(), param);
             }
-            return parameter();
+            return proper;
         }
         return false;
     }
@@ -423,14 +603,14 @@ public class Parser {
         Token tok = scanToken();
         if (tok.getId() == Id.OPEN_ANGLE
                 && expect(Id.QUOTE_MARK)) {
-            out.print("<\""); file += "<\"";
+            out.print("<\"");
             if(peak().getId() == Id.STRING) {
                 tok = scanToken();
-                Note.setKey(tok.getString()); //Sets the key within the Note class
-                out.print(Note.getKey()); file += Note.getKey();
+                param = tok.getText();
+                key(tok);
                 if (expect(Id.QUOTE_MARK)
                         && expect(Id.CLOSED_ANGLE)) {
-                    out.print("\">"); file += "\">";
+                    out.print("\">");
                     return true;
                 }
                 return false;
@@ -441,6 +621,16 @@ public class Parser {
         return false;
     }
 
+    /**
+     * Key sets the key of this transposition from the String of a \key command and prints the transposed key.
+     *
+     * @param tok the STRING Token of the \key command
+     */
+    protected void key(Token tok) {
+        context.setKey(tok.getString()); //Sets the key of this transposition
+        out.print(context.getKey());
+    }
+
     /**
      * Parameter parses the parameter, if there is one. A parameter for a command is not required.
      * If an open angle bracket and quotation mark are detected, however, a String, closing quotation mark,
@@ -452,13 +642,14 @@ public class Parser {
         Token tok = scanToken();
         if (tok.getId() == Id.OPEN_ANGLE
                 && expect(Id.QUOTE_MARK)) {
-            out.print("<\""); file += "<\"";
+            out.print("<\"");
             if(peak().getId() == Id.STRING) {
                 tok = scanToken();
-                out.print(tok.getString()); file += tok.getString();
+                param = tok.getText();
+                out.print(tok.getText());
                 if (expect(Id.QUOTE_MARK)
                         && expect(Id.CLOSED_ANGLE)) {
-                    out.print("\">"); file += "\">";
+                    out.print("\">");
                     return true;
                 }
                 return false;
@@ -0,0 +1,394 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * The PipelineTranspose class transposes one score in four stages, each on its own thread, so that waiting for the
+ * disk overlaps with scanning and parsing:
+ * <pre>
+ * reader --chunks of bytes--&gt; scanner --batches of Tokens--&gt; parser --chunks of bytes--&gt; writer</pre>
+ * The reader fills chunks from the input channel; the scanner runs a TableScanner over them and batches its Tokens
+ * with their offsets; the parser, on the calling thread, runs an IterativeParser printing into a ChannelOutput; the
+ * writer writes its chunks to the output channel. The stages are linked by SpscRings holding a few items each, and
+ * the chunks and batches go back to their producer through another SpscRing once used, so a score of any size is
+ * transposed in a fixed amount of memory with no allocation per chunk.
+ * <p>
+ * The output is byte for byte that of an IterativeParser, and errors are the same GuidoExceptions at the same
+ * offsets. The pipeline only pays off when reading or writing blocks, e.g. on a cold disk or a slow pipe, and
+ * there are cores to run the stages; otherwise the serial path, e.g. Transpose.transpose(), is as fast.
+ */
+public class PipelineTranspose {
+
+    public static final int CHUNK_SIZE = 1 << 16;
+    public static final int BATCH_SIZE = 512;
+    static final int DEPTH = 4; //Items in flight between two stages
+
+    private static final ByteBuffer END = ByteBuffer.allocate(0); //Last chunk of a stream
+
+    private PipelineTranspose() {
+    }
+
+    /**
+     * Tokens and their offsets, handed from the scanner to the parser
+     */
+    private static final class Batch {
+
+        final Token[] tokens = new Token[BATCH_SIZE];
+        final long[] starts = new long[BATCH_SIZE];
+        final long[] ends = new long[BATCH_SIZE];
+        int size;
+        RuntimeException error; //Thrown by the Scanner after the Tokens of this batch
+    }
+
+    /**
+     * Transpose a score from one channel into another through the pipeline
+     * @param in the score; not closed
+     * @param filename the name used in error messages
+     * @param out receives the transposed score; not closed
+     * @param numHalfSteps the number of half steps; can be negative
+     * @return true if proper syntax; if not, the score is printed up to where parsing stopped, as by printScore()
+     * @throws GuidoException if the score cannot be read or scanned
+     * @throws UncheckedIOException if the result cannot be written
+     */
+    public static boolean transpose(ReadableByteChannel in, String filename, WritableByteChannel out,
+                                    int numHalfSteps) {
+        return improper(in, filename, out, numHalfSteps) == null;
+    }
+
+    /**
+     * Transpose a score from one channel into another through the pipeline, as transpose() does, throwing the
+     * error of a score that is not proper GUIDO syntax
+     * @param in the score; not closed
+     * @param filename the name used in error messages
+     * @param out receives the transposed score; not closed
+     * @param numHalfSteps the number of half steps; can be negative
+     * @throws GuidoException if the score cannot be read or scanned, or is not proper GUIDO syntax once it is
+     * printed up to where parsing stopped
+     * @throws UncheckedIOException if the result cannot be written
+     */
+    static void transposeOrThrow(ReadableByteChannel in, String filename, WritableByteChannel out,
+                                 int numHalfSteps) {
+        Parser parser = improper(in, filename, out, numHalfSteps);
+        if (parser != null) {
+            throw parser.syntaxError();
+        }
+    }
+
+    /**
+     * @return null if proper syntax, or the Parser that found it is not, for its syntaxError()
+     */
+    private static Parser improper(ReadableByteChannel in, String filename, WritableByteChannel out,
+                                   int numHalfSteps) {
+        SpscRing<ByteBuffer> read = new SpscRing<>(DEPTH);
+        SpscRing<ByteBuffer> readFree = new SpscRing<>(DEPTH);
+        SpscRing<Batch> scanned = new SpscRing<>(DEPTH);
+        SpscRing<Batch> scannedFree = new SpscRing<>(DEPTH);
+        SpscRing<ByteBuffer> printed = new SpscRing<>(DEPTH);
+        SpscRing<ByteBuffer> printedFree = new SpscRing<>(DEPTH);
+        for (int i = 0; i < DEPTH; i++) {
+            readFree.put(ByteBuffer.allocate(CHUNK_SIZE));
+            scannedFree.put(new Batch());
+            printedFree.put(ByteBuffer.allocate(CHUNK_SIZE));
+        }
+        RingInput input = new RingInput(read, readFree, filename);
+        Throwable[] writeError = new Throwable[1];
+        Thread reader = start("pipeline-reader", () -> read(in, read, readFree, input));
+        Thread scanner = start("pipeline-scanner", () -> scan(input, scanned, scannedFree));
+        Thread writer = start("pipeline-writer", () -> {
+            try {
+                write(printed, printedFree, out);
+            } catch (IOException | RuntimeException e) {
+                writeError[0] = e;
+                printed.close();
+                printedFree.close();
+            }
+        });
+        RingScanner scan = new RingScanner(input, scanned, scannedFree);
+        ChannelOutput sink = new ChannelOutput(new RingChannel(printed, printedFree), CHUNK_SIZE);
+        Parser parser = new IterativeParser(scan, sink, new TranspositionContext(numHalfSteps));
+        boolean proper = false;
+        RuntimeException error = null;
+        try {
+            proper = parser.score();
+            TranspositionMetrics.flush(sink);
+            printed.put(END);
+        } catch (RuntimeException e) {
+            error = e;
+            printed.close();
+        } finally {
+            scanned.close(); //Stops the scanner, which stops the reader, if parsing ended before the input
+            scannedFree.close();
+            join(reader);
+            join(scanner);
+            join(writer);
+        }
+        if (writeError[0] != null) {
+            throw writeError[0] instanceof IOException
+                    ? new UncheckedIOException("Write error", (IOException) writeError[0])
+                    : (RuntimeException) writeError[0];
+        }
+        if (error != null) {
+            throw error;
+        }
+        return proper ? null : parser;
+    }
+
+    private static Thread start(String name, Runnable stage) {
+        Thread thread = new Thread(stage, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static void join(Thread thread) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reader stage: send what each read of the channel returns, in a chunk, until its end, then send END. A file
+     * fills every chunk; a pipe sends what has arrived, so the scanner can start on it.
+     */
+    private static void read(ReadableByteChannel in, SpscRing<ByteBuffer> read, SpscRing<ByteBuffer> free,
+                             RingInput input) {
+        try {
+            while (true) {
+                ByteBuffer chunk = free.take();
+                if (chunk == null) {
+                    return;
+                }
+                chunk.clear();
+                if (in.read(chunk) < 0) {
+                    read.put(END);
+                    return;
+                }
+                chunk.flip();
+                if (!read.put(chunk)) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            input.readError = e;
+            read.put(END);
+        }
+    }
+
+    /**
+     * Scanner stage: batch every Token up to and including STOP, or up to the error the Scanner throws
+     */
+    private static void scan(RingInput input, SpscRing<Batch> scanned, SpscRing<Batch> free) {
+        Scanner scanner = new TableScanner(input);
+        try {
+            while (true) {
+                Batch batch = free.take();
+                if (batch == null) {
+                    return;
+                }
+                batch.size = 0;
+                batch.error = null;
+                boolean stop = false;
+                try {
+                    while (batch.size < BATCH_SIZE && !stop) {
+                        Token tok = scanner.getNextToken();
+                        batch.tokens[batch.size] = tok;
+                        batch.starts[batch.size] = scanner.tokenStart();
+                        batch.ends[batch.size] = scanner.tokenEnd();
+                        batch.size++;
+                        stop = tok.getId() == Id.STOP;
+                    }
+                } catch (RuntimeException e) {
+                    batch.error = e;
+                    stop = true;
+                }
+                if (!scanned.put(batch) || stop) {
+                    return;
+                }
+            }
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Writer stage: write chunks to the channel until END
+     */
+    private static void write(SpscRing<ByteBuffer> printed, SpscRing<ByteBuffer> free, WritableByteChannel out)
+            throws IOException {
+        ByteBuffer chunk;
+        while ((chunk = printed.take()) != null && chunk != END) {
+            while (chunk.hasRemaining()) {
+                out.write(chunk);
+            }
+            free.put(chunk);
+        }
+    }
+
+    /**
+     * The Input of the scanner stage: the bytes of the chunks sent by the reader, in order
+     */
+    private static final class RingInput extends Input {
+
+        private final SpscRing<ByteBuffer> read;
+        private final SpscRing<ByteBuffer> free;
+        private ByteBuffer chunk = END;
+        private long position; //Offset of the start of chunk
+        private boolean ended;
+        volatile IOException readError; //Set by the reader before it sends END
+
+        RingInput(SpscRing<ByteBuffer> read, SpscRing<ByteBuffer> free, String filename) {
+            this.read = read;
+            this.free = free;
+            this.filename = filename;
+        }
+
+        @Override
+        public int getChar() {
+            if (!chunk.hasRemaining() && !next()) {
+                return -1;
+            }
+            return chunk.get() & 0xFF;
+        }
+
+        /**
+         * Hand the used chunk back to the reader and take the next one
+         * @return false at the end of the input
+         */
+        private boolean next() {
+            if (ended) {
+                return false;
+            }
+            do {
+                position += chunk.limit();
+                if (chunk != END) {
+                    free.put(chunk);
+                }
+                chunk = read.take();
+                if (chunk == null || chunk == END) {
+                    chunk = END;
+                    ended = true;
+                    if (readError != null) {
+                        throw error("Read error", position, readError);
+                    }
+                    return false;
+                }
+            } while (!chunk.hasRemaining());
+            return true;
+        }
+
+        @Override
+        public long position() {
+            return position + chunk.position();
+        }
+
+        /**
+         * Stop the reader, once the scanner is done
+         */
+        void close() {
+            read.close();
+            free.close();
+        }
+    }
+
+    /**
+     * The Scanner of the parser stage: takes the Tokens of the batches sent by the scanner, with their offsets,
+     * instead of scanning; the Tokens put back by the Parser are kept by the Scanner
+     */
+    private static final class RingScanner extends Scanner {
+
+        private final SpscRing<Batch> scanned;
+        private final SpscRing<Batch> free;
+        private Batch batch;
+        private int next; //Index of the next Token of batch
+        private Token stop; //The last Token, returned again at the end
+        private long stopOffset;
+
+        RingScanner(Input in, SpscRing<Batch> scanned, SpscRing<Batch> free) {
+            super(in); //Only for its filename in errors; the scanner stage reads it
+            this.scanned = scanned;
+            this.free = free;
+        }
+
+        @Override
+        protected Token nextToken() {
+            if (stop != null) {
+                returned(stopOffset, stopOffset);
+                return stop;
+            }
+            while (batch == null || next == batch.size) {
+                if (batch != null) {
+                    RuntimeException error = batch.error;
+                    free.put(batch);
+                    batch = null;
+                    if (error != null) {
+                        throw error;
+                    }
+                }
+                batch = scanned.take();
+                next = 0;
+                if (batch == null) {
+                    throw new IllegalStateException("Scanner stage stopped"); //Only after the parser stage stops
+                }
+            }
+            Token tok = batch.tokens[next];
+            returned(batch.starts[next], batch.ends[next]);
+            batch.tokens[next++] = null;
+            count(tok);
+            if (tok.getId() == Id.STOP) {
+                stop = tok;
+                stopOffset = tokenStart();
+            }
+            return tok;
+        }
+    }
+
+    /**
+     * The channel of the parser stage's ChannelOutput: copies each full buffer into a chunk for the writer
+     */
+    private static final class RingChannel implements WritableByteChannel {
+
+        private final SpscRing<ByteBuffer> printed;
+        private final SpscRing<ByteBuffer> free;
+
+        RingChannel(SpscRing<ByteBuffer> printed, SpscRing<ByteBuffer> free) {
+            this.printed = printed;
+            this.free = free;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            ByteBuffer chunk = free.take();
+            if (chunk == null) {
+                throw new IOException("Writer stopped");
+            }
+            chunk.clear();
+            int n = Math.min(src.remaining(), chunk.remaining());
+            chunk.put(src.slice().limit(n)).flip();
+            src.position(src.position() + n);
+            if (!printed.put(chunk)) {
+                throw new IOException("Writer stopped");
+            }
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
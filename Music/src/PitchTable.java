@@ -0,0 +1,145 @@
+/**
+ * The PitchTable class is the transposition engine behind Note.
+ * A spelled pitch (letter name plus accidentals) is encoded as a small int, its "code":
+ * <pre>
+ * code = 5 * letter + accidental</pre>
+ * where letter is 0 to 6 for a to g and accidental is 0 to 4 for none, #, &amp;, ## and &amp;&amp;.
+ * Every other spelling (e.g. a&amp;&amp;&amp;, H or a&amp;#) gets the code UNKNOWN and is transposed like c,
+ * as Note always did.
+ * <p>
+ * For every code, number of half steps (modulo 12) and kind of key (sharp or flat), the transposed spelling and
+ * the octave carry are computed once, so transposing a note is two array lookups that allocate nothing.
+ */
+public final class PitchTable {
+
+    public static final int UNKNOWN = 35;
+    private static final int CODES = 36;
+
+    private static final String LETTERS = "abcdefg";
+    private static final String[] ACCIDENTALS = {"", "#", "&", "##", "&&"};
+    private static final int[] NATURALS = {9, 11, 0, 2, 4, 5, 7}; //Chromatic index of a to g, starting from c
+    private static final int[] ACCIDENTAL_SHIFT = {0, 1, -1, 2, -2};
+
+    //Key names and their enharmonics, as accepted by the \key command; new keys always prefer flats
+    private static final String[] KEYS = {"A", "B&", "B", "C", "D&", "D", "E&", "E", "F", "G&", "G", "A&"};
+    private static final String[] ENHARMONICS = {"A", "B&", "B", "C", "C#", "D", "E&", "E", "F", "F#", "G", "A&"};
+    private static final boolean[] FLAT_KEY = {false, true, false, false, true, false, true, false, true, true,
+            false, true};
+    public static final int C_MAJOR = 3;
+
+    private static final String[] SHARP_CHROMATICS = {"c", "c#", "d", "d#", "e", "f", "f#", "g", "g#", "a", "a#", "b"};
+    private static final String[] FLAT_CHROMATICS = {"c", "d&", "d", "e&", "e", "f", "g&", "g", "a&", "a", "b&", "b"};
+
+    private static final String[] NAMES = new String[CODES];
+    private static final int[] CHROMATIC = new int[CODES];
+    private static final int[] RESULT = new int[CODES * 12 * 2]; //Transposed code, by (code, half steps, flat)
+    private static final int[] CARRY = new int[CODES * 12]; //Octave change, by (code, half steps)
+
+    static {
+        for (int letter = 0; letter < 7; letter++) {
+            for (int acc = 0; acc < 5; acc++) {
+                int code = 5 * letter + acc;
+                NAMES[code] = LETTERS.charAt(letter) + ACCIDENTALS[acc];
+                CHROMATIC[code] = Math.floorMod(NATURALS[letter] + ACCIDENTAL_SHIFT[acc], 12);
+            }
+        }
+        NAMES[UNKNOWN] = "c";
+        CHROMATIC[UNKNOWN] = 0;
+        for (int code = 0; code < CODES; code++) {
+            for (int n = 0; n < 12; n++) {
+                int index = CHROMATIC[code] + n;
+                CARRY[code * 12 + n] = index / 12;
+                RESULT[(code * 12 + n) * 2] = encode(SHARP_CHROMATICS[index % 12]);
+                RESULT[(code * 12 + n) * 2 + 1] = encode(FLAT_CHROMATICS[index % 12]);
+            }
+        }
+    }
+
+    private PitchTable() {
+    }
+
+    /**
+     * Encode a spelled pitch written as a letter followed by accidentals, e.g. "f#" or "b&amp;&amp;"
+     * @param name the spelled pitch
+     * @return its code, or UNKNOWN
+     */
+    public static int encode(CharSequence name) {
+        int len = name.length();
+        if (len == 0 || len > 3) {
+            return UNKNOWN;
+        }
+        int letter = name.charAt(0) - 'a';
+        if (letter < 0 || letter >= 7) {
+            return UNKNOWN;
+        }
+        int acc;
+        if (len == 1) {
+            acc = 0;
+        } else {
+            char ch = name.charAt(1);
+            if (ch != '#' && ch != '&' || len == 3 && name.charAt(2) != ch) {
+                return UNKNOWN;
+            }
+            acc = (ch == '#' ? 1 : 2) + (len == 3 ? 2 : 0);
+        }
+        return 5 * letter + acc;
+    }
+
+    /**
+     * @param code a spelled pitch
+     * @return its name, e.g. "f#"
+     */
+    public static String name(int code) {
+        return NAMES[code];
+    }
+
+    /**
+     * @param code a spelled pitch
+     * @param numHalfSteps the number of half steps to transpose by; can be negative
+     * @param key the index of the key the result is spelled in
+     * @return the code of the transposed pitch, spelled with sharps or flats as the key prefers
+     */
+    public static int transpose(int code, int numHalfSteps, int key) {
+        return RESULT[(code * 12 + Math.floorMod(numHalfSteps, 12)) * 2 + (FLAT_KEY[key] ? 1 : 0)];
+    }
+
+    /**
+     * @param code a spelled pitch
+     * @param numHalfSteps the number of half steps to transpose by; can be negative
+     * @return how many octaves the transposed pitch is above (or, if negative, below) the original octave
+     */
+    public static int octaveShift(int code, int numHalfSteps) {
+        return CARRY[code * 12 + Math.floorMod(numHalfSteps, 12)] + Math.floorDiv(numHalfSteps, 12);
+    }
+
+    /**
+     * Find the key named in a \key command. Unrecognized names are treated as A.
+     * @param name a key name or one of its enharmonics, e.g. "E&amp;" or "F#"
+     * @return the index of the key
+     */
+    public static int key(String name) {
+        for (int i = 11; i >= 0; i--) {
+            if (name.equals(KEYS[i]) || name.equals(ENHARMONICS[i])) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @param key the index of a key
+     * @param numHalfSteps the number of half steps to transpose by; can be negative
+     * @return the index of the transposed key
+     */
+    public static int transposeKey(int key, int numHalfSteps) {
+        return Math.floorMod(key + numHalfSteps, 12);
+    }
+
+    /**
+     * @param key the index of a key
+     * @return its name, e.g. "B&amp;"
+     */
+    public static String keyName(int key) {
+        return KEYS[key];
+    }
+}
@@ -1,4 +1,4 @@
-import java.util.Stack;
+import java.nio.ByteBuffer;
 
 /**
  * The Scanner class is initiated with an Input object, which is assumed to be a text file. It serves as an
@@ -6,13 +6,31 @@ import java.util.Stack;
  * This class scans a text file character by character, using the nextChar() method to do so.
  * getNextToken() creates Token objects using names from the Id enum when it recognizes
  * characters with specific meaning.
- * A Stack is used to put off analysis of certain characters
+ * A TokenRing is used to put off analysis of certain characters
+ * Single-character Tokens are the shared instances from Token.of(), so scanning them allocates nothing.
+ * Consumers that do not keep Tokens can read them through a reused TokenCursor with advance() and cursor().
+ * The Scanner also tracks where each Token lies in the Input, see tokenStart() and tokenEnd(), and counts the
+ * Tokens it scans by Id, see getTokenCount().
  */
 public class Scanner {
 
-    private Input in;
-    private Stack<Token> state = new Stack<>();
-    private int c; //Current character as ASCII int
+    static final int LOOKAHEAD = 16; //Maximum number of Tokens put back at once
+    static final int ARENA_SIZE = 1 << 12;
+    private static final int HISTORY = LOOKAHEAD * 2; //Offsets kept of the last Tokens returned; a power of two
+
+    protected Input in;
+    private TokenRing state = new TokenRing(LOOKAHEAD);
+    private TokenCursor cursor = new TokenCursor();
+    private ByteBuffer arena = ByteBuffer.allocate(ARENA_SIZE); //Append-only storage for TAGNAME and STRING text
+    protected int c; //Current character as ASCII int
+    private final long[] starts = new long[HISTORY]; //Offsets of the last Tokens returned and not put back
+    private final long[] ends = new long[HISTORY];
+    private int top; //Index in starts and ends of the last of them
+    private int returned; //How many of them are known, up to HISTORY
+    private long lastRead = -1; //Offset of the last Token returned, even if it was put back since
+    private long textStart; //Offsets of the text last read by getText()
+    private long textEnd;
+    private final long[] tokens = new long[Id.values().length]; //Tokens scanned so far, by the ordinal of their Id
 
     /**
      * Construct a Scanner object from an Input
@@ -27,7 +45,7 @@ public class Scanner {
      *
      * Returns -1 when encounters the end of the file
      */
-    private void nextChar() {
+    protected void nextChar() {
         c = in.getChar();
     }
 
@@ -42,9 +60,53 @@ public class Scanner {
     public Token getNextToken() {
 
         //Check if there's a stack; if so, analyze and return the top of the stack; if not, scan the next character
-        if (!state.empty()) {
+        if (!state.isEmpty()) {
+            returned(state.peekStart(), state.peekEnd());
             return state.pop();
         }
+        return nextToken();
+    }
+
+    /**
+     * Get a Token that was not put back, by scanning the Input. Subclasses that get their Tokens elsewhere override
+     * this, and keep the putback stack and the offsets of the Scanner by calling count() and returned().
+     *
+     * @return the next Token, already given to returned()
+     */
+    protected Token nextToken() {
+        Token tok = scanToken();
+        count(tok);
+        if (tok.getId() == Id.BACK_SLASH || tok.getId() == Id.QUOTE_MARK) {
+            returned(textStart - 1, textStart); //The text following it has already been read
+        } else if (c < 0) {
+            returned(in.position(), in.position());
+        } else {
+            returned(in.position() - 1, in.position());
+        }
+        return tok;
+    }
+
+    /**
+     * Remember the offsets of the Token about to be returned by getNextToken()
+     * @param start the offset of its first character
+     * @param end the offset of the character after it
+     */
+    protected final void returned(long start, long end) {
+        top = (top + 1) & (HISTORY - 1);
+        starts[top] = start;
+        ends[top] = end;
+        returned = Math.min(returned + 1, HISTORY);
+        lastRead = start;
+    }
+
+    /**
+     * Scan the next Token directly from the Input, ignoring the stack
+     *
+     * Whitespace is skipped over
+     *
+     * @return a Token object initialized with information about the next character(s) of the Input
+     */
+    protected Token scanToken() {
 
         //Find and return the first correct Token
         nextChar();
@@ -52,60 +114,153 @@ public class Scanner {
             nextChar(); //Skips whitespace
         }
         if (c == '{') {
-            return new Token(Id.OPEN_CPAREN, '{');
+            return Token.of(Id.OPEN_CPAREN, '{');
         } else if (c == '}') {
-            return new Token(Id.CLOSED_CPAREN, '}');
+            return Token.of(Id.CLOSED_CPAREN, '}');
         } else if (c == '[') {
-            return new Token(Id.OPEN_BRACKET, '[');
+            return Token.of(Id.OPEN_BRACKET, '[');
         } else if (c == ']') {
-            return new Token(Id.CLOSED_BRACKET, ']');
+            return Token.of(Id.CLOSED_BRACKET, ']');
         } else if (c == '<') {
-            return new Token(Id.OPEN_ANGLE, '<');
+            return Token.of(Id.OPEN_ANGLE, '<');
         } else if (c == '>') {
-            return new Token(Id.CLOSED_ANGLE, '>');
+            return Token.of(Id.CLOSED_ANGLE, '>');
         } else if (c == ',') {
-            return new Token(Id.COMMA, ',');
+            return Token.of(Id.COMMA, ',');
         } else if (c == '-') {
-            return new Token(Id.HYPHEN, '-');
+            return Token.of(Id.HYPHEN, '-');
         } else if (c == '/') {
-            return new Token(Id.SLASH, '/');
+            return Token.of(Id.SLASH, '/');
         } else if (c == '#') {
-            return new Token(Id.SHARP, '#');
+            return Token.of(Id.SHARP, '#');
         } else if (c == '&') {
-            return new Token(Id.FLAT, '&');
+            return Token.of(Id.FLAT, '&');
         } else if (c == '.') {
-            return new Token(Id.DOT, '.');
+            return Token.of(Id.DOT, '.');
         } else if (c == '*') {
-            return new Token(Id.ASTERISK, '*');
+            return Token.of(Id.ASTERISK, '*');
         } else if (c == '_') {
-            return new Token(Id.REST, '_');
+            return Token.of(Id.REST, '_');
         } else if (c >= '0' && c <= '9') {
-            return new Token(c - '0');
+            return Token.of(c - '0');
         } else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
-            return new Token((char) c);
+            return Token.of((char) c);
         } else if (c == '\\') {
             //Returns BACK_SLASH, putting back the TAGNAME following it and an OPEN_ANGLE if applicable
-            putback(new Token(Id.TAGNAME, getTagname()));
-            return new Token(Id.BACK_SLASH, '\\');
+            putbackText(new Token(Id.TAGNAME, getTagname()));
+            return Token.of(Id.BACK_SLASH, '\\');
         } else if (c == '\"') {
             //Returns QUOTE_MARK, putting back the final QUOTE_MARK and the STRING
-            putback(new Token(getString()));
-            return new Token(Id.QUOTE_MARK, '\"');
+            putbackText(new Token(getString()));
+            return Token.of(Id.QUOTE_MARK, '\"');
         } else if (c == -1) {
             //STOP means the Scanner has reached the end of the file
-            return new Token(Id.STOP);
+            return Token.of(Id.STOP);
         } else {
             //NULL_TOKEN represents an error, or we're missing a current internal representation for the character scanned
-            return new Token(Id.NULL_TOKEN);
+            return Token.of(Id.NULL_TOKEN);
         }
     }
 
+    /**
+     * Cursor API: scan the next Token into the cursor instead of returning it
+     *
+     * @return the Id of the new current Token
+     */
+    public Id advance() {
+        return cursor.load(getNextToken());
+    }
+
+    /**
+     * @return the cursor updated by advance()
+     */
+    public TokenCursor cursor() {
+        return cursor;
+    }
+
     /**
      * Add the given Token to the stack, essentially "putting back" the current character for later analysis
+     *
+     * The Token is expected to be the last one returned and not put back: it keeps that Token's offsets, and
+     * tokenStart() and tokenEnd() go back to those of the Token returned before it, however many are put back.
+     *
      * @param tok  the Token to be put on top of the Stack
      */
     public void putback(Token tok) {
-        state.push(tok);
+        state.push(tok, tokenStart(), tokenEnd());
+        if (returned > 0) {
+            top = (top - 1) & (HISTORY - 1);
+            returned--;
+        }
+    }
+
+    /**
+     * Put back a TAGNAME or STRING Token, with the offsets of the text last read by getTagname() or getString()
+     * @param tok  the Token made from that text
+     */
+    protected void putbackText(Token tok) {
+        count(tok);
+        state.push(tok, textStart, textEnd);
+    }
+
+    /**
+     * Count a Token scanned from the Input; Tokens put back and returned again are not counted twice
+     * @param tok the Token
+     */
+    protected final void count(Token tok) {
+        tokens[tok.getId().ordinal()]++;
+    }
+
+    /**
+     * @param ident an Id
+     * @return the number of Tokens with that Id scanned so far
+     */
+    public long getTokenCount(Id ident) {
+        return tokens[ident.ordinal()];
+    }
+
+    /**
+     * @return the number of Tokens scanned so far
+     */
+    public long getTokenCount() {
+        long n = 0;
+        for (long count : tokens) {
+            n += count;
+        }
+        return n;
+    }
+
+    /**
+     * @return the number of characters read from the Input so far, which may be ahead of the last Token
+     */
+    public long bytesRead() {
+        return in.position();
+    }
+
+    /**
+     * @return the offset in the Input of the first character of the last Token returned and not put back,
+     * or -1 before the first Token
+     */
+    public long tokenStart() {
+        return returned > 0 ? starts[top] : -1;
+    }
+
+    /**
+     * @return the offset in the Input of the character after the last Token returned and not put back,
+     * or -1 before the first Token
+     */
+    public long tokenEnd() {
+        return returned > 0 ? ends[top] : -1;
+    }
+
+    /**
+     * Build an error about the last Token returned, including one only peaked at: the one a Parser stopped on
+     *
+     * @param msg what is wrong with it
+     * @return a GuidoException naming the file and the offset of that Token
+     */
+    public GuidoException error(String msg) {
+        return in.error(msg, lastRead);
     }
 
     /**
@@ -134,46 +289,80 @@ public class Scanner {
     }
 
     /**
-     * Returns full String of the Tagname indicated by a backslash
+     * Returns full text of the Tagname indicated by a backslash
      *
      * Note: a Tagname stops after a space or a parameter begins with an open angle <
      *
-     * @return the current Tagname as a String for processing as a TAGNAME Token
+     * @return the current Tagname as a view for processing as a TAGNAME Token
      */
-    private String getTagname() {
-        String s = "";
-        nextChar(); //First character in the Tagname
-        while(c != ' ' && c != '<' && c != -1) {
-            s = s + (char) c;
-            nextChar();
-        }
+    protected CharSequence getTagname() {
+        CharSequence s = getText(' ', '<');
         if (c == '<') {
-            putback(new Token(Id.OPEN_ANGLE, '<'));
+            Token tok = Token.of(Id.OPEN_ANGLE, '<');
+            count(tok);
+            state.push(tok, textEnd, textEnd + 1);
         }
         if (c == -1) {
-            in.fatal("Scanning error when getting Tagname");
+            throw in.error("Scanning error when getting Tagname", textStart - 1); //At the back slash
         }
         return s;
     }
 
     /**
-     * Returns full String within two quotation marks and puts back the terminal quotation mark
+     * Returns full text within two quotation marks and puts back the terminal quotation mark
      *
-     * @return the current String, as signaled by first scanning a quotation mark
+     * @return the current String as a view, as signaled by first scanning a quotation mark
      */
-    private String getString() {
-        String s = "";
-        nextChar(); //First character in the String
-        while(c != '\"' && c != -1) {
-            s += (char) c;
-            nextChar();
-        }
+    protected CharSequence getString() {
+        CharSequence s = getText('\"', '\"');
         if (c == '\"') {
-            putback(new Token(Id.QUOTE_MARK));
+            Token tok = Token.of(Id.QUOTE_MARK);
+            count(tok);
+            state.push(tok, textEnd, textEnd + 1);
         }
         if (c == -1) {
-            in.fatal("Missing closing quote in String");
+            throw in.error("Missing closing quote in String", textStart - 1); //At the opening quotation mark
         }
         return s;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the text up to (not including) the first stop character or the end of the file, leaving the stop
+     * character in c.
+     *
+     * When the text lies in a memory-mapped window of a ChannelInput, the result is a view of that window and
+     * nothing is copied. Otherwise the characters are appended to the text arena, which is never overwritten,
+     * so the result stays valid after later Tokens are scanned.
+     *
+     * @param stop1 a character that ends the text
+     * @param stop2 another character that ends the text
+     * @return a view of the text
+     */
+    private CharSequence getText(int stop1, int stop2) {
+        textStart = in.position();
+        if (in instanceof ChannelInput) {
+            CharSequence view = ((ChannelInput) in).sliceUntil(stop1, stop2);
+            if (view != null) {
+                textEnd = in.position();
+                nextChar(); //The stop character
+                return view;
+            }
+        }
+        int start = arena.position();
+        nextChar(); //First character in the text
+        while (c != stop1 && c != stop2 && c != -1) {
+            if (!arena.hasRemaining()) {
+                //Start a new arena, carrying over only the text scanned so far; earlier views keep the old one
+                int length = arena.position() - start;
+                ByteBuffer next = ByteBuffer.allocate(Math.max(ARENA_SIZE, 2 * length));
+                next.put(arena.array(), start, length);
+                arena = next;
+                start = 0;
+            }
+            arena.put((byte) c);
+            nextChar();
+        }
+        textEnd = c < 0 ? in.position() : in.position() - 1;
+        return new TextSlice(arena, start, arena.position() - start);
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * The ScoreEvent class is one element of a transposed score, as published by a ScorePublisher. Unlike the events
+ * of a ScoreListener, pitches, octaves and keys are already transposed, so a consumer needs no TranspositionContext.
+ * Parts that do not apply to the kind of event are NONE, or null for the tag's name and parameter.
+ * <p>
+ * Events are immutable and can be kept or handed to other threads; toString() gives the GUIDO text of the element,
+ * e.g. d#2*3/8. for a note.
+ */
+public final class ScoreEvent {
+
+    public enum Kind { SCORE_START, SCORE_END, VOICE_START, VOICE_END, CHORD_START, CHORD_END, NOTE, REST, TAG }
+
+    public static final int NONE = ScoreListener.NONE;
+    public static final int MISSING = ScoreListener.MISSING;
+
+    //Every event without parts is the same object
+    private static final ScoreEvent[] BRACKETS = new ScoreEvent[Kind.TAG.ordinal()];
+
+    static {
+        for (Kind kind : Kind.values()) {
+            if (kind.ordinal() < Kind.NOTE.ordinal()) {
+                BRACKETS[kind.ordinal()] = new ScoreEvent(kind, NONE, NONE, NONE, NONE, 0, null, null);
+            }
+        }
+    }
+
+    private final Kind kind;
+    private final int pitch;
+    private final int octave;
+    private final int mul;
+    private final int div;
+    private final int dots;
+    private final String name;
+    private final String param;
+
+    private ScoreEvent(Kind kind, int pitch, int octave, int mul, int div, int dots, String name, String param) {
+        this.kind = kind;
+        this.pitch = pitch;
+        this.octave = octave;
+        this.mul = mul;
+        this.div = div;
+        this.dots = dots;
+        this.name = name;
+        this.param = param;
+    }
+
+    /**
+     * @param kind one of the kinds before NOTE
+     * @return the event of that kind
+     */
+    static ScoreEvent of(Kind kind) {
+        return BRACKETS[kind.ordinal()];
+    }
+
+    static ScoreEvent note(int pitch, int octave, int mul, int div, int dots) {
+        return new ScoreEvent(Kind.NOTE, pitch, octave, mul, div, dots, null, null);
+    }
+
+    static ScoreEvent rest(int mul, int div, int dots) {
+        return new ScoreEvent(Kind.REST, NONE, NONE, mul, div, dots, null, null);
+    }
+
+    static ScoreEvent tag(String name, String param) {
+        return new ScoreEvent(Kind.TAG, NONE, NONE, NONE, NONE, 0, name, param);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return the PitchTable code of the transposed pitch of a note, or NONE
+     */
+    public int getPitch() {
+        return pitch;
+    }
+
+    /**
+     * @return the name of the transposed pitch of a note, e.g. "b&amp;", or null
+     */
+    public String getPitchName() {
+        return kind == Kind.NOTE ? PitchTable.name(pitch) : null;
+    }
+
+    /**
+     * @return the transposed octave of a note, or NONE
+     */
+    public int getOctave() {
+        return octave;
+    }
+
+    /**
+     * @return the multiplier of the duration (*n) of a note or rest, or NONE, or MISSING if only its sign was written
+     */
+    public int getMul() {
+        return mul;
+    }
+
+    /**
+     * @return the divisor of the duration (/n) of a note or rest, or NONE, or MISSING if only its sign was written
+     */
+    public int getDiv() {
+        return div;
+    }
+
+    /**
+     * @return the number of dots of a note or rest
+     */
+    public int getDots() {
+        return dots;
+    }
+
+    /**
+     * @return the tagname of a tag, e.g. key, or null
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the parameter of a tag, with the key of a \key tag transposed, or null
+     */
+    public String getParam() {
+        return param;
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case SCORE_START:
+            case CHORD_START:
+                return "{";
+            case SCORE_END:
+            case CHORD_END:
+                return "}";
+            case VOICE_START:
+                return "[";
+            case VOICE_END:
+                return "]";
+            case TAG:
+                return "\\" + name + "<\"" + param + "\">";
+            default:
+                StringBuilder s = new StringBuilder(kind == Kind.NOTE ? PitchTable.name(pitch) + octave : "_");
+                if (mul != NONE) {
+                    s.append('*');
+                    if (mul != MISSING) {
+                        s.append(mul);
+                    }
+                }
+                if (div != NONE) {
+                    s.append('/');
+                    if (div != MISSING) {
+                        s.append(div);
+                    }
+                }
+                for (int i = 0; i < dots; i++) {
+                    s.append('.');
+                }
+                return s.toString();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * The ScoreFiles class holds the file helpers shared by the TranspositionCache and WatchTranspose: hashing the
+ * content of a score, and writing a transposed score so that no reader sees it half written.
+ */
+final class ScoreFiles {
+
+    private ScoreFiles() {
+    }
+
+    /**
+     * @param score the bytes of a score
+     * @return their SHA-256
+     */
+    static byte[] sha256(byte[] score) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(score);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Every JVM has SHA-256", e);
+        }
+    }
+
+    /**
+     * Write a file through a temporary file in the same directory, moved into place, so that readers never see it
+     * half written
+     * @param file the file to create or replace
+     * @param bytes its new content
+     */
+    static void writeAtomically(Path file, byte[] bytes) throws IOException {
+        Path tmp = Files.createTempFile(file.getParent(), ".transpose", ".tmp");
+        try {
+            Files.write(tmp, bytes);
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+}
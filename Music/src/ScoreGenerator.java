@@ -0,0 +1,274 @@
+import java.util.SplittableRandom;
+
+/**
+ * The ScoreGenerator class writes synthetic GUIDO scores of any size, from a few KB to many GB, to find out how the
+ * Scanner, the Parsers and the Sinks scale beyond the few dozen lines of the bundled scores. The score is written
+ * straight into a Sink as it is made, so a score of any size is generated in constant memory:
+ * <pre>
+ * try (ChannelOutput out = new ChannelOutput("big.gmn")) {
+ *     new ScoreGenerator(42).voices(8).chordDensity(0.3).write(1L &lt;&lt; 30, out);
+ * }</pre>
+ * Every score is proper GUIDO syntax as the Parser reads it. The same seed and settings always give the same bytes.
+ * Densities are the chance that a symbol is of a kind: a chord, a rest, a tag such as \clef or \key, or a \lyrics
+ * tag with a long string; the other symbols are notes. The accidental density is the chance that a note, in a
+ * chord or not, has sharps or flats.
+ */
+public class ScoreGenerator {
+
+    private static final String LETTERS = "abcdefg";
+    private static final String[] KEYS = {"A", "B&", "B", "C", "D&", "D", "E&", "E", "F", "G&", "G", "A&", "F#",
+            "C#"};
+    private static final String[] CLEFS = {"g", "f", "c", "treble", "bass"};
+    private static final String[] METERS = {"4/4", "3/4", "6/8", "C", "5/4"};
+    private static final String[] WORDS = {"la", "lu", "li", "do", "re", "mi", "fa", "sol", "Kyrie", "eleison",
+            "Gloria", "in", "excelsis", "Deo", "Ave", "Maria"};
+    private static final int[] DIVS = {1, 2, 4, 8, 16, 32};
+    private static final int LINE = 16; //Symbols per line
+
+    private final long seed;
+    private int voices = 4;
+    private double chordDensity = 0.1;
+    private double restDensity = 0.1;
+    private double accidentalDensity = 0.2;
+    private double tagDensity = 0.02;
+    private double lyricDensity = 0.02;
+
+    private Sink out;
+    private long written; //Bytes printed so far
+    private SplittableRandom random;
+
+    /**
+     * Construct a ScoreGenerator with 4 voices and the densities of a typical piano score
+     * @param seed the seed of the pseudo-random choices
+     */
+    public ScoreGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @param voices the number of voices; at least 1
+     * @return this ScoreGenerator
+     */
+    public ScoreGenerator voices(int voices) {
+        if (voices < 1) {
+            throw new IllegalArgumentException("voices: " + voices);
+        }
+        this.voices = voices;
+        return this;
+    }
+
+    public ScoreGenerator chordDensity(double density) {
+        this.chordDensity = check(density);
+        return this;
+    }
+
+    public ScoreGenerator restDensity(double density) {
+        this.restDensity = check(density);
+        return this;
+    }
+
+    public ScoreGenerator accidentalDensity(double density) {
+        this.accidentalDensity = check(density);
+        return this;
+    }
+
+    public ScoreGenerator tagDensity(double density) {
+        this.tagDensity = check(density);
+        return this;
+    }
+
+    public ScoreGenerator lyricDensity(double density) {
+        this.lyricDensity = check(density);
+        return this;
+    }
+
+    private static double check(double density) {
+        if (!(density >= 0 && density <= 1)) {
+            throw new IllegalArgumentException("density: " + density);
+        }
+        return density;
+    }
+
+    /**
+     * Write a score into a Sink
+     * @param bytes the size of the score; each voice ends with the first symbol that takes the score past its
+     *              share, so the score is larger by less than a symbol, or just large enough for its voices
+     * @param out receives the score; flushed at the end
+     * @return the size of the score
+     * @throws IllegalArgumentException if the densities of chords, rests, tags and lyrics add up to more than 1
+     */
+    public long write(long bytes, Sink out) {
+        if (chordDensity + restDensity + tagDensity + lyricDensity > 1 + 1e-9) {
+            throw new IllegalArgumentException("densities add up to more than 1");
+        }
+        this.out = out;
+        this.written = 0;
+        this.random = new SplittableRandom(seed);
+        print("{");
+        for (int v = 0; v < voices; v++) {
+            if (v > 0) {
+                print(",\n");
+            }
+            voice(bytes * (v + 1) / voices - 2);
+        }
+        print("}\n");
+        out.flush();
+        this.out = null;
+        return written;
+    }
+
+    /**
+     * Write a score into memory
+     * @param bytes the size of the score, as for write()
+     * @return the score
+     */
+    public String generate(long bytes) {
+        CaptureSink out = new CaptureSink();
+        write(bytes, out);
+        return out.toString();
+    }
+
+    /**
+     * Write a voice: a clef, a key and a meter, then symbols until the score reaches a size
+     */
+    private void voice(long end) {
+        print("[");
+        tag("clef", CLEFS[random.nextInt(CLEFS.length)]);
+        print(" ");
+        tag("key", KEYS[random.nextInt(KEYS.length)]);
+        print(" ");
+        tag("meter", METERS[random.nextInt(METERS.length)]);
+        for (int n = 0; written < end; n++) {
+            print(n % LINE == 0 ? "\n" : " ");
+            double kind = random.nextDouble();
+            if ((kind -= chordDensity) < 0) {
+                chord();
+            } else if ((kind -= restDensity) < 0) {
+                print("_");
+                duration();
+            } else if ((kind -= tagDensity) < 0) {
+                switch (random.nextInt(3)) {
+                    case 0:
+                        tag("key", KEYS[random.nextInt(KEYS.length)]);
+                        break;
+                    case 1:
+                        tag("clef", CLEFS[random.nextInt(CLEFS.length)]);
+                        break;
+                    default:
+                        tag("intens", random.nextBoolean() ? "p" : "f");
+                }
+            } else if ((kind -= lyricDensity) < 0) {
+                lyrics();
+            } else {
+                note();
+                duration();
+            }
+        }
+        print("]");
+    }
+
+    private void note() {
+        print(LETTERS.charAt(random.nextInt(LETTERS.length())));
+        if (random.nextDouble() < accidentalDensity) {
+            String accidental = random.nextBoolean() ? "#" : "&";
+            print(accidental);
+            if (random.nextInt(8) == 0) {
+                print(accidental);
+            }
+        }
+        if (random.nextInt(3) == 0) { //Otherwise the octave of the previous note
+            int octave = random.nextInt(5) - 1;
+            out.print(octave);
+            written += octave < 0 ? 2 : 1;
+        }
+    }
+
+    private void chord() {
+        print("{");
+        int notes = 2 + random.nextInt(4);
+        for (int i = 0; i < notes; i++) {
+            if (i > 0) {
+                print(",");
+            }
+            note();
+        }
+        duration();
+        print("}");
+    }
+
+    private void duration() {
+        if (random.nextInt(4) != 0) { //Otherwise the duration of the previous note
+            if (random.nextInt(8) == 0) {
+                print("*");
+                printNumber(1 + random.nextInt(3));
+            }
+            print("/");
+            printNumber(DIVS[random.nextInt(DIVS.length)]);
+        }
+        if (random.nextInt(8) == 0) {
+            print(".");
+        }
+    }
+
+    private void lyrics() {
+        StringBuilder text = new StringBuilder();
+        int words = 4 + random.nextInt(29);
+        for (int i = 0; i < words; i++) {
+            text.append(i == 0 ? "" : random.nextInt(4) == 0 ? "-" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        tag("lyrics", text);
+    }
+
+    private void tag(String name, CharSequence param) {
+        print("\\");
+        print(name);
+        print("<\"");
+        print(param);
+        print("\">");
+    }
+
+    private void printNumber(int n) {
+        out.print(n);
+        written += Integer.toString(n).length();
+    }
+
+    private void print(CharSequence s) {
+        out.print(s);
+        written += s.length();
+    }
+
+    private void print(char c) {
+        out.print(c);
+        written++;
+    }
+
+    /**
+     * Write a score into a file: ScoreGenerator SIZE FILE [SEED [VOICES]], where SIZE is a number of bytes or ends
+     * with k, m or g
+     * @param args the command line
+     */
+    public static void main(String[] args) {
+        if (args.length < 2 || args.length > 4) {
+            System.err.println("Usage: ScoreGenerator SIZE[k|m|g] FILE [SEED [VOICES]]");
+            System.exit(1);
+        }
+        long size = parseSize(args[0]);
+        ScoreGenerator generator = new ScoreGenerator(args.length > 2 ? Long.parseLong(args[2]) : 1);
+        if (args.length > 3) {
+            generator.voices(Integer.parseInt(args[3]));
+        }
+        try (ChannelOutput out = new ChannelOutput(args[1])) {
+            System.err.println(generator.write(size, out) + " bytes written to " + args[1]);
+        }
+    }
+
+    /**
+     * @param size a number of bytes, or of KB, MB or GB if it ends with k, m or g
+     * @return the number of bytes
+     */
+    static long parseSize(String size) {
+        String s = size.toLowerCase();
+        int shift = s.endsWith("k") ? 10 : s.endsWith("m") ? 20 : s.endsWith("g") ? 30 : 0;
+        return Long.parseLong(shift == 0 ? s : s.substring(0, s.length() - 1)) << shift;
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * The ScoreListener interface receives the structure of a score as a Parser recognizes it, one event per element,
+ * in the order the elements appear in the file. Pitches are PitchTable codes and octaves are those of the
+ * original score, so the same events can be rendered for any transposition.
+ * <p>
+ * A Parser sends events once it has been given a listener:
+ * <pre>
+ * parser.setListener(listener);
+ * parser.score();</pre>
+ */
+public interface ScoreListener {
+
+    /**
+     * A part of a duration that was not written
+     */
+    int NONE = -1;
+
+    /**
+     * A part of a duration whose * or / was written without a number after it, e.g. _/ which Parser.rest() lets
+     * through; printed back as the * or / alone
+     */
+    int MISSING = -2;
+
+    void scoreStart();
+
+    void scoreEnd();
+
+    void voiceStart();
+
+    void voiceEnd();
+
+    void chordStart();
+
+    void chordEnd();
+
+    /**
+     * A note, in a voice or a chord
+     * @param pitch the PitchTable code of the written pitch
+     * @param octave the octave of the note, inherited from the previous note if not written
+     * @param octaveGiven true if the octave was written
+     * @param mul the multiplier of the duration (*n), or NONE
+     * @param div the divisor of the duration (/n), or NONE
+     * @param dots the number of dots
+     */
+    void note(int pitch, int octave, boolean octaveGiven, int mul, int div, int dots);
+
+    /**
+     * A rest
+     * @param mul the multiplier of the duration (*n), or NONE, or MISSING
+     * @param div the divisor of the duration (/n), or NONE, or MISSING
+     * @param dots the number of dots
+     */
+    void rest(int mul, int div, int dots);
+
+    /**
+     * A command, e.g. \key&lt;"D"&gt;
+     * @param name the tagname, e.g. key
+     * @param param the String of its parameter, e.g. D
+     */
+    void tag(CharSequence name, CharSequence param);
+}
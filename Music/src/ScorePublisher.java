@@ -0,0 +1,233 @@
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.function.Supplier;
+
+/**
+ * The ScorePublisher class publishes the elements of a transposed score as ScoreEvents, for consumers that want the
+ * structure of a score rather than its text: renderers, indexers, statistics.
+ * <pre>
+ * new ScorePublisher(() -&gt; new ChannelInput(filename), numHalfSteps).subscribe(subscriber);</pre>
+ * Each subscription parses the score from a new Input, on a thread of the Executor, so a ScorePublisher can be
+ * subscribed to any number of times; an Input that is AutoCloseable is closed once its parse ends. The parse only advances while the Subscriber has requested events: once the
+ * demand is used up, the parsing thread waits for the next request(), so a score of any size is published in the
+ * memory of one Scanner and Parser, whatever the speed of the Subscriber. A Subscriber that calls request() from
+ * onNext() is served on the same thread without waiting.
+ * <p>
+ * The publication ends with onComplete() after SCORE_END, or with onError() and the GuidoException of a score that
+ * cannot be read or is not proper GUIDO syntax; the events of the proper part are published first. cancel() stops
+ * the parse at the next event.
+ */
+public class ScorePublisher implements Flow.Publisher<ScoreEvent> {
+
+    private final Supplier<? extends Input> source;
+    private final int numHalfSteps;
+    private final Executor executor;
+
+    /**
+     * Construct a ScorePublisher parsing each subscription on a new daemon thread
+     * @param source gives the score, once per subscription
+     * @param numHalfSteps the number of half steps; can be negative
+     */
+    public ScorePublisher(Supplier<? extends Input> source, int numHalfSteps) {
+        this(source, numHalfSteps, task -> {
+            Thread thread = new Thread(task, "score-publisher");
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    /**
+     * Construct a ScorePublisher
+     * @param source gives the score, once per subscription
+     * @param numHalfSteps the number of half steps; can be negative
+     * @param executor runs the parse of each subscription; its thread waits while there is no demand
+     */
+    public ScorePublisher(Supplier<? extends Input> source, int numHalfSteps, Executor executor) {
+        this.source = source;
+        this.numHalfSteps = numHalfSteps;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ScoreEvent> subscriber) {
+        Objects.requireNonNull(subscriber);
+        Subscription subscription = new Subscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        executor.execute(subscription::run);
+    }
+
+    /**
+     * Thrown through the Parser to stop it once the subscription is cancelled
+     */
+    private static final class Cancelled extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        Cancelled() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * One parse, and the demand of its Subscriber. Turns the Parser's events into ScoreEvents as a ScoreRenderer
+     * turns them into text.
+     */
+    private final class Subscription implements Flow.Subscription, ScoreListener {
+
+        private final Flow.Subscriber<? super ScoreEvent> subscriber;
+        private final TranspositionContext context = new TranspositionContext(numHalfSteps);
+
+        //Guarded by this
+        private long demand;
+        private boolean cancelled;
+        private IllegalArgumentException badRequest; //Reported by the parsing thread, which owns onError()
+
+        Subscription(Flow.Subscriber<? super ScoreEvent> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public synchronized void request(long n) {
+            if (n <= 0) {
+                if (badRequest == null) {
+                    badRequest = new IllegalArgumentException("request(" + n + "): must be positive");
+                }
+            } else {
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            }
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void cancel() {
+            cancelled = true;
+            notifyAll();
+        }
+
+        void run() {
+            Throwable error = null;
+            Input in = null;
+            try {
+                in = source.get();
+                Parser parser = new IterativeParser(new TableScanner(in), new NullSink(),
+                        new TranspositionContext(0));
+                parser.setListener(this);
+                if (!parser.score()) {
+                    error = parser.syntaxError();
+                }
+            } catch (Cancelled e) {
+                return;
+            } catch (RuntimeException e) {
+                error = e;
+            } finally {
+                close(in);
+            }
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                cancelled = true;
+                if (badRequest != null) {
+                    error = badRequest;
+                }
+            }
+            if (error == null) {
+                subscriber.onComplete();
+            } else {
+                subscriber.onError(error);
+            }
+        }
+
+        private void close(Input in) {
+            if (in instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) in).close();
+                } catch (Exception e) {
+                    //Everything needed was read from it
+                }
+            }
+        }
+
+        /**
+         * Wait for a request to publish one event
+         * @throws Cancelled if the subscription is cancelled, or an IllegalArgumentException was requested
+         */
+        private synchronized void awaitDemand() {
+            while (demand == 0 && !cancelled && badRequest == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    cancelled = true;
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (cancelled) {
+                throw new Cancelled();
+            }
+            if (badRequest != null) {
+                throw badRequest;
+            }
+        }
+
+        private void publish(ScoreEvent event) {
+            awaitDemand();
+            synchronized (this) {
+                demand--;
+            }
+            subscriber.onNext(event);
+        }
+
+        @Override
+        public void scoreStart() {
+            publish(ScoreEvent.of(ScoreEvent.Kind.SCORE_START));
+        }
+
+        @Override
+        public void scoreEnd() {
+            publish(ScoreEvent.of(ScoreEvent.Kind.SCORE_END));
+        }
+
+        @Override
+        public void voiceStart() {
+            publish(ScoreEvent.of(ScoreEvent.Kind.VOICE_START));
+        }
+
+        @Override
+        public void voiceEnd() {
+            publish(ScoreEvent.of(ScoreEvent.Kind.VOICE_END));
+        }
+
+        @Override
+        public void chordStart() {
+            publish(ScoreEvent.of(ScoreEvent.Kind.CHORD_START));
+        }
+
+        @Override
+        public void chordEnd() {
+            publish(ScoreEvent.of(ScoreEvent.Kind.CHORD_END));
+        }
+
+        @Override
+        public void note(int pitch, int octave, boolean octaveGiven, int mul, int div, int dots) {
+            publish(ScoreEvent.note(PitchTable.transpose(pitch, numHalfSteps, context.getKeyIndex()),
+                    octave + PitchTable.octaveShift(pitch, numHalfSteps), mul, div, dots));
+        }
+
+        @Override
+        public void rest(int mul, int div, int dots) {
+            publish(ScoreEvent.rest(mul, div, dots));
+        }
+
+        @Override
+        public void tag(CharSequence name, CharSequence param) {
+            String tagname = name.toString();
+            if ("key".equals(tagname)) {
+                context.setKey(param.toString());
+                publish(ScoreEvent.tag(tagname, context.getKey()));
+            } else {
+                publish(ScoreEvent.tag(tagname, param.toString()));
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * The ScoreRenderer class is a ScoreListener that prints the events it receives as a transposed GUIDO score, byte
+ * for byte as a Parser with the same TranspositionContext would print the score they came from.
+ * Like the Parser, it separates voices with commas and chord notes with commas, and follows every symbol of a
+ * voice with a space.
+ */
+public class ScoreRenderer implements ScoreListener {
+
+    private final Sink out;
+    private final TranspositionContext context;
+    private boolean firstVoice; //No comma before the first voice of the score
+    private boolean inChord;
+    private boolean firstInChord; //No comma before the first note of a chord
+
+    /**
+     * Construct a ScoreRenderer
+     * @param out where the transposed score is printed
+     * @param context the number of half steps and key of this transposition
+     */
+    public ScoreRenderer(Sink out, TranspositionContext context) {
+        this.out = out;
+        this.context = context;
+    }
+
+    @Override
+    public void scoreStart() {
+        out.print('{');
+        firstVoice = true;
+    }
+
+    @Override
+    public void scoreEnd() {
+        out.print('}');
+    }
+
+    @Override
+    public void voiceStart() {
+        if (!firstVoice) {
+            out.print(',');
+        }
+        firstVoice = false;
+        out.print('[');
+    }
+
+    @Override
+    public void voiceEnd() {
+        out.print(']');
+    }
+
+    @Override
+    public void chordStart() {
+        out.print('{');
+        inChord = true;
+        firstInChord = true;
+    }
+
+    @Override
+    public void chordEnd() {
+        out.print('}');
+        inChord = false;
+        out.print(" ");
+    }
+
+    @Override
+    public void note(int pitch, int octave, boolean octaveGiven, int mul, int div, int dots) {
+        if (inChord) {
+            if (!firstInChord) {
+                out.print(',');
+            }
+            firstInChord = false;
+        }
+        int numHalfSteps = context.getNumHalfSteps();
+        out.print(PitchTable.name(PitchTable.transpose(pitch, numHalfSteps, context.getKeyIndex())));
+        out.print(octave + PitchTable.octaveShift(pitch, numHalfSteps));
+        context.noteTransposed();
+        duration(mul, div, dots);
+        if (!inChord) {
+            out.print(" ");
+        }
+    }
+
+    @Override
+    public void rest(int mul, int div, int dots) {
+        out.print('_');
+        duration(mul, div, dots);
+        out.print(" ");
+    }
+
+    @Override
+    public void tag(CharSequence name, CharSequence param) {
+        out.print('\\');
+        out.print(name);
+        out.print("<\"");
+        if ("key".contentEquals(name)) {
+            context.setKey(param.toString());
+            out.print(context.getKey());
+        } else {
+            out.print(param);
+        }
+        out.print("\">");
+        out.print(" ");
+    }
+
+    private void duration(int mul, int div, int dots) {
+        if (mul != NONE) {
+            out.print('*');
+            if (mul != MISSING) {
+                out.print(mul);
+            }
+        }
+        if (div != NONE) {
+            out.print('/');
+            if (div != MISSING) {
+                out.print(div);
+            }
+        }
+        for (int i = 0; i < dots; i++) {
+            out.print('.');
+        }
+    }
+}
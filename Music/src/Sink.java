@@ -0,0 +1,26 @@
+/**
+ * The Sink interface is where a Parser renders the transposed score.
+ * Implementations decide what happens to the text: Output prints it, CaptureSink keeps it in memory, and NullSink
+ * discards it.
+ */
+public interface Sink {
+
+    void print(CharSequence s);
+
+    void print(char c);
+
+    void print(int n);
+
+    /**
+     * Pass on anything buffered so far; called by the Parser when it finishes a score
+     */
+    default void flush() {
+    }
+
+    /**
+     * @return the number of bytes printed so far, or -1 if the Sink does not count them
+     */
+    default long size() {
+        return -1;
+    }
+}
@@ -0,0 +1,116 @@
+import java.nio.ByteBuffer;
+
+/**
+ * The SpliceParser class transposes one file into another without rebuilding the whole score. It parses the score
+ * like the IterativeParser, but only the pitch and octave of each note and the key of each \key command are
+ * rendered; every byte in between (tags, durations, chords, whitespace and line breaks) is copied from the input
+ * file unchanged, so the transposed file keeps the formatting of the original.
+ *
+ * The Scanner records where each Token lies in the file. When a note is rendered, the bytes since the previous
+ * rendered span are copied first: from the window of the ChannelInput if they are still in it, otherwise (or if
+ * there are many of them) with FileChannel.transferTo.
+ * <pre>
+ * try (ChannelInput in = new ChannelInput(file1); ChannelOutput out = new ChannelOutput(file2)) {
+ *     new SpliceParser(in, out, new TranspositionContext(num)).printScore();
+ * }</pre>
+ * Notes are always written with their octave, as the Parser writes them, since a transposed note can move into
+ * another octave than the one it inherited.
+ */
+public class SpliceParser extends IterativeParser {
+
+    static final int TRANSFER_THRESHOLD = 1 << 16; //Gaps at least this long are copied with transferTo
+
+    private final Scanner scan;
+    private final ChannelInput in;
+    private final ChannelOutput dest;
+    private long copied; //Offset of the first input byte that has been neither copied nor replaced
+
+    /**
+     * Construct a SpliceParser that transposes a file into another
+     * @param in the file to transpose
+     * @param out the file that receives the transposition
+     * @param context the number of half steps, key and octave of this transposition
+     */
+    public SpliceParser(ChannelInput in, ChannelOutput out, TranspositionContext context) {
+        this(new TableScanner(in), in, out, context);
+    }
+
+    private SpliceParser(Scanner scan, ChannelInput in, ChannelOutput out, TranspositionContext context) {
+        super(scan, new NullSink(), context); //What the Parser would print is copied from the input instead
+        this.scan = scan;
+        this.in = in;
+        this.dest = out;
+    }
+
+    /**
+     * Transpose the score, then copy the rest of the file. If the score is not proper GUIDO syntax, the output
+     * stops after the last note rendered.
+     *
+     * @return true if proper syntax
+     */
+    @Override
+    public boolean printScore() {
+        boolean proper = score();
+        if (proper) {
+            splice(in.size(), in.size());
+        }
+        TranspositionMetrics.flush(dest);
+        return proper;
+    }
+
+    /**
+     * Note transposes the note like the Parser, then replaces its pitch and octave in the file. The duration and
+     * dots that follow are left to be copied.
+     *
+     * @return true if proper syntax
+     */
+    @Override
+    protected boolean note() {
+        Token tok = scanToken();
+        long start = scan.tokenStart();
+        String noteName = tok.getChar() + accidentals();
+        Note n = new Note(noteName, context);
+        if (octave()) {
+            n.transpose();
+            splice(start, scan.tokenEnd()); //The letter up to the last accidental or octave digit
+            dest.print(n.getNote());
+            dest.print(n.getOctave());
+            if (duration() && dots()) {
+                noteParsed(noteName);
+                return true;
+            }
+            return false;
+        }
+        return false;
+    }
+
+    /**
+     * Key sets the key of this transposition and replaces the String of the \key command in the file.
+     *
+     * @param tok the STRING Token of the \key command
+     */
+    @Override
+    protected void key(Token tok) {
+        context.setKey(tok.getString());
+        splice(scan.tokenStart(), scan.tokenEnd());
+        dest.print(context.getKey());
+    }
+
+    /**
+     * Copy the input bytes up to a span about to be rendered, and skip the span
+     * @param from the offset of the first byte of the span
+     * @param to the offset after the span
+     */
+    private void splice(long from, long to) {
+        long count = from - copied;
+        if (count > 0) {
+            ByteBuffer window = count < TRANSFER_THRESHOLD ? in.window(copied, from) : null;
+            if (window != null) {
+                dest.write(window);
+            } else {
+                dest.transferFrom(in.channel(), copied, count);
+            }
+        }
+        copied = to;
+    }
+}
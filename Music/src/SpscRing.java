@@ -0,0 +1,123 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The SpscRing class is a bounded queue between exactly one producer thread and one consumer thread, the links
+ * between the stages of a PipelineTranspose. Like TokenRing it is a fixed array indexed by a mask, and it takes no
+ * lock: each side only writes its own counter, so a put() or take() that does not wait costs two volatile reads and
+ * one volatile write. Items are meant to be large, e.g. chunks of bytes or batches of Tokens, so that this is paid
+ * rarely.
+ * <p>
+ * A side that has to wait spins briefly, then parks until the other side moves its counter. Either side can
+ * close() the ring, e.g. when it fails; the other side then stops waiting: put() returns false, and take() returns
+ * the items left and then null.
+ * @param <T> the kind of item
+ */
+public class SpscRing<T> {
+
+    private static final int SPINS = 64; //Busy waits before parking
+
+    private final Object[] items;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); //Number of items taken, written by the consumer only
+    private final AtomicLong tail = new AtomicLong(); //Number of items put, written by the producer only
+    private volatile boolean closed;
+    private volatile Thread producer; //Set while the producer is parked
+    private volatile Thread consumer; //Set while the consumer is parked
+
+    /**
+     * Construct an empty SpscRing
+     * @param capacity the maximum number of items held at once; rounded up to a power of two
+     */
+    public SpscRing(int capacity) {
+        int n = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.items = new Object[n];
+        this.mask = n - 1;
+    }
+
+    /**
+     * Add an item, waiting for room if the ring is full. Called by the producer only.
+     * @param item the item; not null
+     * @return false if the ring is closed; the item was not added
+     */
+    public boolean put(T item) {
+        long t = tail.get();
+        for (int spins = 0; t - head.get() == items.length; spins++) {
+            if (closed) {
+                return false;
+            }
+            if (spins < SPINS) {
+                Thread.onSpinWait();
+            } else {
+                producer = Thread.currentThread();
+                if (t - head.get() == items.length && !closed) { //Checked again so that no take() is missed
+                    //The timeout is only a safety net; take() unparks the producer
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(10));
+                }
+                producer = null;
+            }
+        }
+        if (closed) {
+            return false;
+        }
+        items[(int) t & mask] = item;
+        tail.set(t + 1);
+        Thread waiting = consumer;
+        if (waiting != null) {
+            LockSupport.unpark(waiting);
+        }
+        return true;
+    }
+
+    /**
+     * Remove the oldest item, waiting for one if the ring is empty. Called by the consumer only.
+     * @return the item, or null once the ring is closed and empty
+     */
+    @SuppressWarnings("unchecked")
+    public T take() {
+        long h = head.get();
+        for (int spins = 0; tail.get() == h; spins++) {
+            if (closed) {
+                if (tail.get() == h) {
+                    return null;
+                }
+                break;
+            }
+            if (spins < SPINS) {
+                Thread.onSpinWait();
+            } else {
+                consumer = Thread.currentThread();
+                if (tail.get() == h && !closed) {
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(10));
+                }
+                consumer = null;
+            }
+        }
+        int index = (int) h & mask;
+        T item = (T) items[index];
+        items[index] = null;
+        head.set(h + 1);
+        Thread waiting = producer;
+        if (waiting != null) {
+            LockSupport.unpark(waiting);
+        }
+        return item;
+    }
+
+    /**
+     * Stop the ring, waking the other side. Items already put can still be taken.
+     */
+    public void close() {
+        closed = true;
+        LockSupport.unpark(producer);
+        LockSupport.unpark(consumer);
+    }
+
+    /**
+     * @return the number of items held
+     */
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * The TableScanner class is a drop-in replacement for the Scanner that classifies characters through a
+ * precomputed 256-entry table instead of a chain of comparisons.
+ * Each byte of the Input is looked up once in CLASS, and the class alone decides what the scanner does next:
+ * skip it (whitespace), return a single-character Token whose Id is looked up in SINGLE, or hand over to the
+ * INTEGER, CHARACTER, TAGNAME or STRING rules inherited from the Scanner.
+ *
+ * It returns exactly the same Tokens as the Scanner, so a Parser can use either:
+ * <pre>
+ * Parser parser = new Parser(new TableScanner(in));</pre>
+ */
+public class TableScanner extends Scanner {
+
+    //Character classes
+    private static final byte INVALID = 0;
+    private static final byte WHITESPACE = 1;
+    private static final byte SINGLE_CHAR = 2;
+    private static final byte DIGIT = 3;
+    private static final byte LETTER = 4;
+    private static final byte BACK_SLASH = 5;
+    private static final byte QUOTE_MARK = 6;
+
+    private static final byte[] CLASS = new byte[256];
+    private static final Id[] SINGLE = new Id[256];
+
+    static {
+        for (int i = 0; i <= 32; i++) {
+            CLASS[i] = WHITESPACE;
+        }
+        single('{', Id.OPEN_CPAREN);
+        single('}', Id.CLOSED_CPAREN);
+        single('[', Id.OPEN_BRACKET);
+        single(']', Id.CLOSED_BRACKET);
+        single('<', Id.OPEN_ANGLE);
+        single('>', Id.CLOSED_ANGLE);
+        single(',', Id.COMMA);
+        single('-', Id.HYPHEN);
+        single('/', Id.SLASH);
+        single('#', Id.SHARP);
+        single('&', Id.FLAT);
+        single('.', Id.DOT);
+        single('*', Id.ASTERISK);
+        single('_', Id.REST);
+        for (int i = '0'; i <= '9'; i++) {
+            CLASS[i] = DIGIT;
+        }
+        for (int i = 'a'; i <= 'z'; i++) {
+            CLASS[i] = LETTER;
+            CLASS[i - 'a' + 'A'] = LETTER;
+        }
+        CLASS['\\'] = BACK_SLASH;
+        CLASS['\"'] = QUOTE_MARK;
+    }
+
+    private static void single(char ch, Id ident) {
+        CLASS[ch] = SINGLE_CHAR;
+        SINGLE[ch] = ident;
+    }
+
+    /**
+     * Construct a TableScanner object from an Input
+     * @param in  an Input object made from a file or InputStream
+     */
+    public TableScanner(Input in) {
+        super(in);
+    }
+
+    /**
+     * Scan the next Token by dispatching on the class of each character
+     *
+     * @return a Token object initialized with information about the next character(s) of the Input
+     */
+    @Override
+    protected Token scanToken() {
+        byte cls;
+        do {
+            nextChar();
+            if (c < 0) {
+                //STOP means the Scanner has reached the end of the file
+                return Token.of(Id.STOP);
+            }
+            cls = CLASS[c];
+        } while (cls == WHITESPACE);
+
+        switch (cls) {
+            case SINGLE_CHAR:
+                return Token.of(SINGLE[c], (char) c);
+            case DIGIT:
+                return Token.of(c - '0');
+            case LETTER:
+                return Token.of((char) c);
+            case BACK_SLASH:
+                putbackText(new Token(Id.TAGNAME, getTagname()));
+                return Token.of(Id.BACK_SLASH, '\\');
+            case QUOTE_MARK:
+                putbackText(new Token(getString()));
+                return Token.of(Id.QUOTE_MARK, '\"');
+            default:
+                return Token.of(Id.NULL_TOKEN);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The TextSlice class is a read-only CharSequence view of a range of bytes in a ByteBuffer, one character per byte.
+ * The Scanner returns TAGNAME and STRING text as TextSlices so that no String is built unless a consumer asks for
+ * one with toString(). Comparisons such as {@code "key".contentEquals(slice)} work directly on the bytes.
+ */
+public class TextSlice implements CharSequence {
+
+    private final ByteBuffer buf;
+    private final int start;
+    private final int length;
+
+    /**
+     * Construct a view of buf from index start (inclusive) to start + length (exclusive).
+     * The bytes must not be modified while the view is in use.
+     * @param buf the bytes
+     * @param start the index of the first character
+     * @param length the number of characters
+     */
+    public TextSlice(ByteBuffer buf, int start, int length) {
+        this.buf = buf;
+        this.start = start;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return (char) (buf.get(start + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        if (from < 0 || to > length || from > to) {
+            throw new IndexOutOfBoundsException(from);
+        }
+        return new TextSlice(buf, start + from, to - from);
+    }
+
+    @Override
+    public String toString() {
+        if (buf.hasArray()) {
+            return new String(buf.array(), buf.arrayOffset() + start, length, StandardCharsets.ISO_8859_1);
+        }
+        byte[] bytes = new byte[length];
+        buf.get(start, bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+}
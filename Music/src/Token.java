@@ -5,46 +5,118 @@
  */
 public class Token {
 
-    public Id ident;
-    public int intNumber;
-    public char character;
-    public String string;
+    private final Id ident;
+    private final int intNumber;
+    private final char character;
+    private String string; //Only set once built from text
+    private final CharSequence text; //View of the TAGNAME or STRING text; string is only built from it on demand
+
+    //Shared Tokens handed out by the scanners instead of allocating a new Token per character.
+    //Their values are final, so they can be shared by every Scanner on every thread.
+    private static final Token[] BY_ID = new Token[Id.values().length];
+    private static final Token[] SINGLE = new Token[128];
+    private static final Token[] DIGITS = new Token[10];
+    private static final Token[] LETTERS = new Token[128];
+
+    static {
+        for (Id ident : Id.values()) {
+            BY_ID[ident.ordinal()] = new Token(ident);
+        }
+        Id[] singles = {Id.OPEN_CPAREN, Id.CLOSED_CPAREN, Id.OPEN_BRACKET, Id.CLOSED_BRACKET, Id.OPEN_ANGLE,
+                Id.CLOSED_ANGLE, Id.COMMA, Id.HYPHEN, Id.SLASH, Id.SHARP, Id.FLAT, Id.DOT, Id.ASTERISK, Id.REST,
+                Id.BACK_SLASH, Id.QUOTE_MARK};
+        String chars = "{}[]<>,-/#&.*_\\\"";
+        for (int i = 0; i < singles.length; i++) {
+            SINGLE[chars.charAt(i)] = new Token(singles[i], chars.charAt(i));
+        }
+        for (int i = 0; i < 10; i++) {
+            DIGITS[i] = new Token(i);
+        }
+        for (char ch = 'a'; ch <= 'z'; ch++) {
+            LETTERS[ch] = new Token(ch);
+            LETTERS[ch - 'a' + 'A'] = new Token((char) (ch - 'a' + 'A'));
+        }
+    }
 
     //Constructors
+    private Token(Id ident, int intNumber, char character, String string, CharSequence text) {
+        this.ident = ident;
+        this.intNumber = intNumber;
+        this.character = character;
+        this.string = string;
+        this.text = text;
+    }
+
     public Token(Token t) {
-        this.ident = t.getId();
-        this.intNumber = t.getInt();
-        this.character = t.getChar();
-        this.string = t.getString();
+        this(t.ident, t.intNumber, t.character, t.string, t.text);
     }
 
     public Token(Id ident) {
-        this.ident = ident;
+        this(ident, 0, '\0', null, null);
     }
 
     public Token(int intNum) {
-        this.intNumber = intNum;
-        this.ident = Id.INTEGER;
+        this(Id.INTEGER, intNum, '\0', null, null);
     }
 
     public Token(char character) {
-        this.character = character;
-        this.ident = Id.CHARACTER;
+        this(Id.CHARACTER, 0, character, null, null);
     }
 
     public Token(String str) {
-        this.string = str;
-        this.ident = Id.STRING;
+        this(Id.STRING, 0, '\0', str, str);
+    }
+
+    public Token(CharSequence text) {
+        this(Id.STRING, 0, '\0', null, text);
     }
 
     public Token(Id ident, char character) {
-        this.ident = ident;
-        this.character = character;
+        this(ident, 0, character, null, null);
     }
 
     public Token(Id ident, String str) {
-        this.ident = ident;
-        this.string = str;
+        this(ident, 0, '\0', str, str);
+    }
+
+    public Token(Id ident, CharSequence text) {
+        this(ident, 0, '\0', null, text);
+    }
+
+    //Shared Tokens
+
+    /**
+     * @param ident an Id
+     * @return the shared Token with the given Id and no value
+     */
+    public static Token of(Id ident) {
+        return BY_ID[ident.ordinal()];
+    }
+
+    /**
+     * @param ident the Id of a single-character Token, e.g. Id.COMMA
+     * @param character the character it was scanned from, e.g. ','
+     * @return the shared Token for the character
+     */
+    public static Token of(Id ident, char character) {
+        Token tok = character < 128 ? SINGLE[character] : null;
+        return tok != null && tok.ident == ident ? tok : new Token(ident, character);
+    }
+
+    /**
+     * @param digit a value from 0 to 9
+     * @return the shared INTEGER Token for the digit
+     */
+    public static Token of(int digit) {
+        return DIGITS[digit];
+    }
+
+    /**
+     * @param letter an ASCII letter
+     * @return the shared CHARACTER Token for the letter
+     */
+    public static Token of(char letter) {
+        return LETTERS[letter];
     }
 
     //Accessor Methods
@@ -60,14 +132,27 @@ public class Token {
         return character;
     }
 
+    /**
+     * @return the text as a String, which is copied out of the view the first time it is asked for
+     */
     public String getString() {
+        if (string == null && text != null) {
+            string = text.toString();
+        }
         return string;
     }
 
+    /**
+     * @return the text without copying it
+     */
+    public CharSequence getText() {
+        return text;
+    }
+
     @Override
     public String toString() {
         String s = "ID: " + this.ident;
-        s += "\nSTRING: " + this.string;
+        s += "\nSTRING: " + getString();
         s += "\nCHARACTER: " + this.character;
         s += "\nINTEGER: " + this.intNumber;
         return s;
@@ -0,0 +1,53 @@
+/**
+ * The TokenCursor class is a single reusable view of the current Token of a Scanner.
+ * Instead of keeping the Token objects returned by getNextToken(), a consumer calls Scanner.advance() and reads
+ * the Id, integer value, character and text of the current Token from this cursor:
+ * <pre>
+ * TokenCursor cur = scan.cursor();
+ * while (scan.advance() != Id.STOP) {
+ *     if (cur.getId() == Id.INTEGER) {
+ *         total += cur.getInt();
+ *     }
+ * }</pre>
+ * The cursor is overwritten by every call to advance().
+ */
+public class TokenCursor {
+
+    private Id ident = Id.NULL_TOKEN;
+    private int intNumber;
+    private char character;
+    private CharSequence text;
+
+    /**
+     * Copy the values of a Token into the cursor
+     * @param tok the new current Token
+     * @return the Id of the Token
+     */
+    Id load(Token tok) {
+        this.ident = tok.getId();
+        this.intNumber = tok.getInt();
+        this.character = tok.getChar();
+        this.text = tok.getText();
+        return ident;
+    }
+
+    //Accessor Methods
+    public Id getId() {
+        return ident;
+    }
+
+    public int getInt() {
+        return intNumber;
+    }
+
+    public char getChar() {
+        return character;
+    }
+
+    /**
+     * @return the text of a TAGNAME or STRING Token; null for other Tokens
+     */
+    public CharSequence getText() {
+        return text;
+    }
+}
@@ -0,0 +1,118 @@
+import java.util.EmptyStackException;
+
+/**
+ * The TokenRing class holds the Tokens a Scanner has been given back through putback().
+ * It is a fixed-size ring buffer used as a stack: the last Token put back is the first one returned.
+ * Unlike java.util.Stack, it neither synchronizes nor allocates once constructed.
+ * Each Token is held together with the offsets of its first character and of the character after it in the Input,
+ * or -1 if they are not known.
+ */
+public class TokenRing {
+
+    private final Token[] ring;
+    private final long[] starts;
+    private final long[] ends;
+    private final int mask;
+    private int head; //Index of the most recently pushed Token
+    private int size;
+
+    /**
+     * Construct an empty TokenRing
+     * @param capacity the maximum number of Tokens held at once; rounded up to a power of two
+     */
+    public TokenRing(int capacity) {
+        int n = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.ring = new Token[n];
+        this.starts = new long[n];
+        this.ends = new long[n];
+        this.mask = n - 1;
+    }
+
+    /**
+     * @return true if no Tokens are held
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the number of Tokens held
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Push a Token on top, with unknown offsets
+     * @param tok the Token
+     * @throws IllegalStateException if the ring is full
+     */
+    public void push(Token tok) {
+        push(tok, -1, -1);
+    }
+
+    /**
+     * Push a Token on top
+     * @param tok the Token
+     * @param start the offset of its first character
+     * @param end the offset of the character after it
+     * @throws IllegalStateException if the ring is full
+     */
+    public void push(Token tok, long start, long end) {
+        if (size == ring.length) {
+            throw new IllegalStateException("Lookahead of " + ring.length + " Tokens exceeded");
+        }
+        head = (head - 1) & mask;
+        ring[head] = tok;
+        starts[head] = start;
+        ends[head] = end;
+        size++;
+    }
+
+    /**
+     * Remove and return the Token on top
+     * @return the most recently pushed Token
+     * @throws EmptyStackException if the ring is empty
+     */
+    public Token pop() {
+        checkNotEmpty();
+        Token tok = ring[head];
+        ring[head] = null;
+        head = (head + 1) & mask;
+        size--;
+        return tok;
+    }
+
+    /**
+     * @return the Token on top, without removing it
+     * @throws EmptyStackException if the ring is empty
+     */
+    public Token peek() {
+        checkNotEmpty();
+        return ring[head];
+    }
+
+    /**
+     * @return the offset of the first character of the Token on top
+     * @throws EmptyStackException if the ring is empty
+     */
+    public long peekStart() {
+        checkNotEmpty();
+        return starts[head];
+    }
+
+    /**
+     * @return the offset of the character after the Token on top
+     * @throws EmptyStackException if the ring is empty
+     */
+    public long peekEnd() {
+        checkNotEmpty();
+        return ends[head];
+    }
+
+    private void checkNotEmpty() {
+        if (size == 0) {
+            throw new EmptyStackException(); //As java.util.Stack did
+        }
+    }
+}
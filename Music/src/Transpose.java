@@ -1,3 +1,14 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Scanner;
 
 /**
@@ -5,47 +16,355 @@ import java.util.Scanner;
  */
 public class Transpose {
 
+    static final long DAEMON_CACHE_BYTES = 64 << 20;
+    static final long WATCH_DEBOUNCE_MILLIS = 200;
+
     /**
      * Primary transposition method. Use this to transpose file1 a num of half steps into file2.
      * @param num number of half steps to transpose; can be negative
      * @param file1 GUIDO sheet music file to transpose
      * @param file2 empty file to receive transposed sheet music
+     * @throws GuidoException if file1 cannot be read or is not proper GUIDO syntax; file2 then holds the score up
+     * to where parsing stopped
      */
     static public void transpose(int num, String file1, String file2) {
+        try (ChannelInput in = new ChannelInput(file1); ChannelOutput out = new ChannelOutput(file2)) {
+            Parser parser = new Parser(in, out, new TranspositionContext(num));
+            if (!parser.printScore()) {
+                throw parser.syntaxError();
+            }
+        }
+    }
 
-        Note.setNumHalfSteps(num);
-        String filename = file1;
-        String otherFilename = file2;
+    /**
+     * Transpose file1 a num of half steps into file2 through a cache: if the same content was transposed by the
+     * same number of half steps before, the result is copied from the cache without parsing file1.
+     * @param cache remembers results
+     * @param num number of half steps to transpose; can be negative
+     * @param file1 GUIDO sheet music file to transpose
+     * @param file2 empty file to receive transposed sheet music
+     * @throws GuidoException if file1 cannot be read or is not proper GUIDO syntax; file2 is then left as it was
+     */
+    static public void transpose(TranspositionCache cache, int num, String file1, String file2) {
+        byte[] score;
+        try {
+            score = Files.readAllBytes(Paths.get(file1));
+        } catch (NoSuchFileException e) {
+            throw new GuidoException(file1, -1, "No such file", e);
+        } catch (IOException e) {
+            throw new GuidoException(file1, -1, "Read error", e);
+        }
+        byte[] result = cache.transpose(score, file1, num);
+        try (ChannelOutput out = new ChannelOutput(file2)) {
+            out.write(ByteBuffer.wrap(result));
+        }
+    }
+
+    /**
+     * Transpose file1 a num of half steps into file2, keeping the formatting of file1: only the notes and keys are
+     * rewritten, everything else is copied byte for byte.
+     * @param num number of half steps to transpose; can be negative
+     * @param file1 GUIDO sheet music file to transpose
+     * @param file2 empty file to receive transposed sheet music
+     * @throws GuidoException if file1 cannot be read or is not proper GUIDO syntax
+     */
+    static public void splice(int num, String file1, String file2) {
+        try (ChannelInput in = new ChannelInput(file1); ChannelOutput out = new ChannelOutput(file2)) {
+            Parser parser = new SpliceParser(in, out, new TranspositionContext(num));
+            if (!parser.printScore()) {
+                throw parser.syntaxError();
+            }
+        }
+    }
+
+    /**
+     * Transpose file1 a num of half steps into file2, transposing its voices, and chunks of its long voices, in
+     * parallel.
+     * @param num number of half steps to transpose; can be negative
+     * @param file1 GUIDO sheet music file to transpose
+     * @param file2 empty file to receive transposed sheet music
+     * @throws GuidoException if file1 cannot be read or is not proper GUIDO syntax
+     */
+    static public void parallel(int num, String file1, String file2) {
+        try (ChannelInput in = new ChannelInput(file1); ChannelOutput out = new ChannelOutput(file2)) {
+            ParallelTranspose.transposeOrThrow(in.map(), file1, num, out);
+        }
+    }
+
+    /**
+     * Transpose file1 a num of half steps into file2, reading, scanning, parsing and writing on separate threads so
+     * that waiting for the disk overlaps with parsing.
+     * @param num number of half steps to transpose; can be negative
+     * @param file1 GUIDO sheet music file to transpose
+     * @param file2 empty file to receive transposed sheet music
+     * @throws GuidoException if file1 cannot be read or is not proper GUIDO syntax
+     */
+    static public void pipeline(int num, String file1, String file2) {
+        try (ChannelInput in = new ChannelInput(file1, ChannelInput.DEFAULT_BUFFER_SIZE, false);
+             FileChannel out = FileChannel.open(Paths.get(file2), StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            PipelineTranspose.transposeOrThrow(in.channel(), file1, out, num);
+        } catch (IOException e) {
+            throw new UncheckedIOException(file2 + ": cannot write", e);
+        }
+    }
 
-        Parser parser = new Parser(filename, otherFilename);
-        parser.printScore();
+    /**
+     * Transpose file1 by several numbers of half steps at once, reading and parsing it only once.
+     * @param file1 GUIDO sheet music file to transpose
+     * @param nums numbers of half steps to transpose; can be negative
+     * @param files2 empty files to receive transposed sheet music, one for each number of half steps
+     * @throws GuidoException if file1 cannot be read or is not proper GUIDO syntax
+     */
+    static public void transpose(String file1, int[] nums, String[] files2) {
+        ChannelOutput[] outs = new ChannelOutput[files2.length];
+        try (ChannelInput in = new ChannelInput(file1)) {
+            for (int i = 0; i < files2.length; i++) {
+                outs[i] = new ChannelOutput(files2[i]);
+            }
+            Parser parser = FanOut.parser(in, nums, outs);
+            boolean proper = parser.score();
+            for (ChannelOutput out : outs) {
+                TranspositionMetrics.flush(out);
+            }
+            if (!proper) {
+                throw parser.syntaxError();
+            }
+        } finally {
+            for (ChannelOutput out : outs) {
+                if (out != null) {
+                    out.close();
+                }
+            }
+        }
     }
 
     static public void transpose(int num, String file) {
-        Note.setNumHalfSteps(num);
-        Parser parser = new Parser(file);
-        parser.printScore();
+        Parser parser = new Parser(new Input(file), new Output(), new TranspositionContext(num));
+        if (!parser.printScore()) {
+            throw parser.syntaxError();
+        }
+    }
+
+    /**
+     * Without arguments, ask for the number of half steps and the files. Otherwise, see usage().
+     * A file that cannot be read or scanned is reported with its name and offset, and the exit status is 1.
+     * @param args the command line
+     */
+    public static void main(String[] args) {
+        try {
+            if (args.length > 0) {
+                if (!run(args)) {
+                    usage();
+                    System.exit(1);
+                }
+                return;
+            }
+            interactive();
+        } catch (GuidoException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
     }
 
-    public static void main(String[] unused) {
+    private static void interactive() {
         System.out.println("Enter the number of half steps:");
         Scanner sc = new Scanner(System.in);
         int numHalfSteps = sc.nextInt();
-        Note.setNumHalfSteps(numHalfSteps);
 
         System.out.println("Enter a filename containing GUIDO music:");
         String filename = sc.next();
         System.out.println("Enter a filename for the output:");
         String otherFilename = sc.next();
 
-        Parser par = new Parser(filename, otherFilename);
-        par.printScore();
+        transpose(numHalfSteps, filename, otherFilename);
+    }
+
+    /**
+     * Run the command line
+     * @param args the command line
+     * @return false if it is not valid
+     */
+    private static boolean run(String[] args) {
+        if ("--batch".equals(args[0])) {
+            return batch(args);
+        }
+        if ("--serve".equals(args[0])) {
+            return serve(args);
+        }
+        if ("--daemon".equals(args[0])) {
+            return daemon(args);
+        }
+        if ("--watch".equals(args[0])) {
+            return watch(args);
+        }
+        if (isInteger(args[0])) {
+            if (args.length == 2) {
+                transpose(Integer.parseInt(args[0]), args[1]);
+            } else if (args.length == 3) {
+                transpose(Integer.parseInt(args[0]), args[1], args[2]);
+            } else {
+                return false;
+            }
+            return true;
+        }
+        if (args.length < 2) {
+            return false;
+        }
+        int[] nums = new int[args.length - 1];
+        String[] files = new String[args.length - 1];
+        for (int i = 1; i < args.length; i++) {
+            int eq = args[i].indexOf('=');
+            if (eq < 0 || !isInteger(args[i].substring(0, eq))) {
+                return false;
+            }
+            nums[i - 1] = Integer.parseInt(args[i].substring(0, eq));
+            files[i - 1] = args[i].substring(eq + 1);
+        }
+        transpose(args[0], nums, files);
+        return true;
+    }
+
+    /**
+     * Run the batch command line: --batch NUM IN-DIR|@LIST OUT-DIR [THREADS]. Each file is reported as it is done,
+     * and the totals at the end. Exits with status 1 if any file failed.
+     * @param args the command line
+     * @return false if it is not valid
+     */
+    private static boolean batch(String[] args) {
+        if (args.length < 4 || args.length > 5 || !isInteger(args[1]) || args.length == 5 && !isInteger(args[4])) {
+            return false;
+        }
+        int threads = args.length == 5 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        if (threads < 1) {
+            return false;
+        }
+        BatchTranspose batch = new BatchTranspose(Integer.parseInt(args[1]), threads, result -> {
+            if (result.isOk()) {
+                System.out.println(result);
+            } else {
+                System.err.println(result);
+            }
+        });
+        Path outDir = Paths.get(args[3]);
+        BatchTranspose.Summary summary = args[2].startsWith("@")
+                ? batch.transposeList(Paths.get(args[2].substring(1)), outDir)
+                : batch.transposeTree(Paths.get(args[2]), outDir);
+        System.err.println(summary);
+        if (summary.getFailed() > 0) {
+            System.exit(1);
+        }
+        return true;
+    }
+
+    /**
+     * Run the server command line: --serve PORT. Listens on the loopback address until the process is killed.
+     * @param args the command line
+     * @return false if it is not valid
+     */
+    private static boolean serve(String[] args) {
+        if (args.length != 2 || !isInteger(args[1])) {
+            return false;
+        }
+        TranspositionServer.useNoDelay();
+        try {
+            TranspositionServer server = new TranspositionServer(
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(args[1])));
+            System.err.println("Listening on http://localhost:" + server.getPort() + TranspositionServer.PATH);
+        } catch (IOException e) {
+            System.err.println("Cannot listen on port " + args[1] + ": " + e.getMessage());
+            System.exit(1);
+        }
+        return true;
+    }
+
+    /**
+     * Run the daemon command line: --daemon SOCKET-FILE [CACHE-DIR]. Listens on a Unix domain socket until the
+     * process is killed; see TranspositionDaemon for the protocol and DaemonClient for a client. Results are
+     * cached in memory, and in CACHE-DIR if given.
+     * @param args the command line
+     * @return false if it is not valid
+     */
+    private static boolean daemon(String[] args) {
+        if (args.length < 2 || args.length > 3) {
+            return false;
+        }
+        try {
+            Path dir = args.length == 3 ? Paths.get(args[2]) : null;
+            new TranspositionDaemon(Paths.get(args[1]), new TranspositionCache(DAEMON_CACHE_BYTES, dir));
+            System.err.println("Listening on " + args[1]);
+        } catch (IOException e) {
+            System.err.println("Cannot listen on " + args[1] + ": " + e.getMessage());
+            System.exit(1);
+        }
+        return true;
+    }
+
+    /**
+     * Run the watch command line: --watch NUM[,NUM...] IN-DIR OUT-DIR [THREADS]. Keeps OUT-DIR/NUM up to date
+     * with the .gmn files under IN-DIR until the process is killed, reporting each file as it is transposed.
+     * @param args the command line
+     * @return false if it is not valid
+     */
+    private static boolean watch(String[] args) {
+        if (args.length < 4 || args.length > 5 || args.length == 5 && !isInteger(args[4])) {
+            return false;
+        }
+        String[] nums = args[1].split(",");
+        int[] steps = new int[nums.length];
+        for (int i = 0; i < nums.length; i++) {
+            if (!isInteger(nums[i])) {
+                return false;
+            }
+            steps[i] = Integer.parseInt(nums[i]);
+        }
+        int threads = args.length == 5 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        if (threads < 1) {
+            return false;
+        }
+        try (WatchTranspose watch = new WatchTranspose(Paths.get(args[2]), Paths.get(args[3]), steps, threads,
+                WATCH_DEBOUNCE_MILLIS, result -> {
+                    if (result.isOk()) {
+                        System.out.println(result);
+                    } else {
+                        System.err.println(result);
+                    }
+                })) {
+            watch.run();
+        } catch (IOException e) {
+            System.err.println("Cannot watch " + args[2] + ": " + e.getMessage());
+            System.exit(1);
+        }
+        return true;
+    }
+
+    private static boolean isInteger(String s) {
+        try {
+            Integer.parseInt(s);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
     }
 
     static void usage() {
-        System.err.println("Usage: transpose NUM-HALF-STEPS MUSIC-FILE");
+        System.err.println("Usage: transpose NUM-HALF-STEPS MUSIC-FILE [OUT-FILE]");
+        System.err.println("       transpose MUSIC-FILE NUM-HALF-STEPS=OUT-FILE...");
+        System.err.println("       transpose --batch NUM-HALF-STEPS IN-DIR|@LIST-FILE OUT-DIR [THREADS]");
+        System.err.println("       transpose --serve PORT");
+        System.err.println("       transpose --daemon SOCKET-FILE [CACHE-DIR]");
+        System.err.println("       transpose --watch NUM-HALF-STEPS[,NUM-HALF-STEPS...] IN-DIR OUT-DIR [THREADS]");
         System.err.println("This tool transposes a music partition written in the GUIDO format.");
         System.err.println("NUM-HALF-STEPS specifies the transposition value.");
         System.err.println("MUSIC-FILE is the path to the music piece to be transposed.");
+        System.err.println("OUT-FILE receives the transposed piece; without it, the piece is printed.");
+        System.err.println("With several NUM-HALF-STEPS=OUT-FILE, the piece is read once and transposed into each.");
+        System.err.println("With --batch, every .gmn file under IN-DIR, or every file named in LIST-FILE, is");
+        System.err.println("transposed into the same path under OUT-DIR, by THREADS threads (one per core).");
+        System.err.println("With --serve, scores POSTed to http://localhost:PORT/transpose?steps=NUM-HALF-STEPS");
+        System.err.println("are transposed into the response.");
+        System.err.println("With --daemon, requests from DaemonClient on the Unix domain socket are transposed,");
+        System.err.println("and the results cached in memory and in CACHE-DIR.");
+        System.err.println("With --watch, OUT-DIR/NUM-HALF-STEPS is kept up to date as files under IN-DIR change.");
     }
 }
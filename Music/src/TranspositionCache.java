@@ -0,0 +1,236 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The TranspositionCache class remembers transposed scores, so that transposing the same file into the same key
+ * again skips the Scanner and the Parser. Results are keyed on the SHA-256 of the input bytes, the number of half
+ * steps and how the result is printed, so a renamed or copied file still hits and an edited one misses.
+ * <p>
+ * Results are kept in memory, least recently used first out once the memory tier holds more than its budget of
+ * bytes; a result bigger than the whole budget is not kept in memory. With a directory, every result is also
+ * written there and read back on a miss in memory, so results outlive the process:
+ * <pre>
+ * TranspositionCache cache = new TranspositionCache(64 << 20, Paths.get("cache"));
+ * byte[] transposed = cache.transpose(Files.readAllBytes(file), file.toString(), numHalfSteps);</pre>
+ * A score that is not proper GUIDO syntax is not cached; its GuidoException is thrown every time. A result that
+ * cannot be read from or written to the directory is treated as a miss there, so a broken disk tier only costs time.
+ * Instances are safe to share between threads.
+ */
+public class TranspositionCache {
+
+    //How results are printed, part of the key so that results on disk printed differently are never mixed up
+    private static final String PARSER = "parser";
+
+    private static final int ENTRY_OVERHEAD = 96; //Rough size of a key and its map entry
+
+    private final long maxBytes;
+    private final Path dir;
+    private final LinkedHashMap<Key, byte[]> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes; //Size of the memory tier
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Key of a result: what was transposed, by how much and how it is printed
+     */
+    private static final class Key {
+
+        private final byte[] hash;
+        private final int steps;
+        private final String format;
+
+        Key(byte[] hash, int steps, String format) {
+            this.hash = hash;
+            this.steps = steps;
+            this.format = format;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return steps == k.steps && format.equals(k.format) && Arrays.equals(hash, k.hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return (hash[0] & 0xFF | (hash[1] & 0xFF) << 8 | (hash[2] & 0xFF) << 16 | hash[3] << 24) + 31 * steps;
+        }
+
+        /**
+         * @return the name of the result's file in the disk tier
+         */
+        String fileName() {
+            StringBuilder s = new StringBuilder(hash.length * 2 + 24);
+            for (byte b : hash) {
+                s.append(Character.forDigit(b >> 4 & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return s.append('_').append(steps).append('_').append(format).append(".gmn").toString();
+        }
+    }
+
+    /**
+     * Construct a TranspositionCache held in memory only
+     * @param maxBytes the budget of the memory tier, in bytes of transposed scores
+     */
+    public TranspositionCache(long maxBytes) {
+        this(maxBytes, null);
+    }
+
+    /**
+     * Construct a TranspositionCache with a disk tier
+     * @param maxBytes the budget of the memory tier, in bytes of transposed scores
+     * @param dir where results are also written, or null for none; created if needed
+     */
+    public TranspositionCache(long maxBytes, Path dir) {
+        this.maxBytes = maxBytes;
+        this.dir = dir;
+        if (dir != null) {
+            try {
+                Files.createDirectories(dir);
+            } catch (IOException e) {
+                throw new UncheckedIOException(dir + ": cannot create", e);
+            }
+        }
+    }
+
+    /**
+     * Transpose a score as the Parser prints it, or get the result of an earlier call
+     * @param score the bytes of the score
+     * @param filename the name used in error messages
+     * @param numHalfSteps the number of half steps; can be negative
+     * @return the bytes of the transposed score, a copy the caller may change
+     * @throws GuidoException if the score is not proper GUIDO syntax
+     */
+    public byte[] transpose(byte[] score, String filename, int numHalfSteps) {
+        Key key = new Key(ScoreFiles.sha256(score), numHalfSteps, PARSER);
+        byte[] result = get(key);
+        if (result == null) {
+            CaptureSink out = new CaptureSink();
+            Parser parser = new IterativeParser(new TableScanner(new BufferInput(ByteBuffer.wrap(score), filename)),
+                    out, new TranspositionContext(numHalfSteps));
+            if (!parser.score()) {
+                throw parser.syntaxError();
+            }
+            result = out.toString().getBytes(StandardCharsets.ISO_8859_1);
+            put(key, result);
+        }
+        return result.clone();
+    }
+
+    private byte[] get(Key key) {
+        synchronized (this) {
+            byte[] result = memory.get(key);
+            if (result != null) {
+                hits.incrementAndGet();
+                return result;
+            }
+        }
+        if (dir != null) {
+            try {
+                byte[] result = Files.readAllBytes(dir.resolve(key.fileName()));
+                diskHits.incrementAndGet();
+                remember(key, result);
+                return result;
+            } catch (NoSuchFileException e) {
+                //A miss on disk as well
+            } catch (IOException e) {
+                //Unreadable, so a miss as well
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    private void put(Key key, byte[] result) {
+        remember(key, result);
+        if (dir != null) {
+            Path file = dir.resolve(key.fileName());
+            try {
+                ScoreFiles.writeAtomically(file, result);
+            } catch (IOException e) {
+                //Kept in memory only
+            }
+        }
+    }
+
+    private synchronized void remember(Key key, byte[] result) {
+        if (result.length + ENTRY_OVERHEAD > maxBytes) {
+            return; //Would evict everything, itself included; left to the disk tier
+        }
+        byte[] old = memory.put(key, result);
+        if (old != null) {
+            bytes -= old.length + ENTRY_OVERHEAD;
+        }
+        bytes += result.length + ENTRY_OVERHEAD;
+        Iterator<Map.Entry<Key, byte[]>> eldest = memory.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().getValue().length + ENTRY_OVERHEAD;
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return the number of results found in memory
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of results found on disk after a miss in memory
+     */
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    /**
+     * @return the number of results found in neither tier
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of results dropped from memory to stay within the budget
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return the number of results in memory
+     */
+    public synchronized int size() {
+        return memory.size();
+    }
+
+    /**
+     * @return the bytes held by the memory tier, counting a rough overhead per result
+     */
+    public synchronized long memoryBytes() {
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d hits, %d disk hits, %d misses, %d evictions, %d results in %d bytes", getHits(),
+                getDiskHits(), getMisses(), getEvictions(), size(), memoryBytes());
+    }
+}
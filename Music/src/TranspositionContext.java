@@ -0,0 +1,89 @@
+/**
+ * The TranspositionContext class holds the state of one transposition job: the number of half steps, the current
+ * key and the octave carried from one note to the next.
+ * Each Parser has its own context and passes it to the Notes it creates, so several scores can be transposed at
+ * the same time on different threads. A context must not be shared by Parsers running concurrently.
+ * It also counts the notes transposed within it.
+ */
+public class TranspositionContext {
+
+    private int numHalfSteps;
+    private int key = PitchTable.C_MAJOR; //Index of the transposed key in the PitchTable
+    private int octave = 0; //Octave of the last note that gave one; applies to following notes
+    private long notes; //Notes transposed so far
+
+    /**
+     * Construct a context for transposing a score from its beginning
+     * @param numHalfSteps the number of half steps to transpose by; can be negative
+     */
+    public TranspositionContext(int numHalfSteps) {
+        this.numHalfSteps = numHalfSteps;
+    }
+
+    /**
+     * @return the number of half steps to transpose by
+     */
+    public int getNumHalfSteps() {
+        return numHalfSteps;
+    }
+
+    /**
+     * Change the number of half steps; only used for the context behind Note's static methods
+     * @param num the number of half steps
+     */
+    void setNumHalfSteps(int num) {
+        this.numHalfSteps = num;
+    }
+
+    /**
+     * Sets the key to the one named in a \key command, transposed by numHalfSteps.
+     * The new key will always prefer D& over C# and G& over F#.
+     * @param k the String within the parameter for the \key command
+     */
+    public void setKey(String k) {
+        this.key = PitchTable.transposeKey(PitchTable.key(k), numHalfSteps);
+    }
+
+    /**
+     * @return the name of the transposed key, e.g. "B&"
+     */
+    public String getKey() {
+        return PitchTable.keyName(key);
+    }
+
+    /**
+     * @return the index of the transposed key in the PitchTable
+     */
+    public int getKeyIndex() {
+        return key;
+    }
+
+    /**
+     * Set the octave that following notes inherit
+     * @param octave the octave of the last note that gave one
+     */
+    public void setOctave(int octave) {
+        this.octave = octave;
+    }
+
+    /**
+     * @return the octave that following notes inherit
+     */
+    public int getOctave() {
+        return octave;
+    }
+
+    /**
+     * Count a note transposed within this context
+     */
+    void noteTransposed() {
+        notes++;
+    }
+
+    /**
+     * @return the number of notes transposed within this context so far
+     */
+    public long getNotes() {
+        return notes;
+    }
+}
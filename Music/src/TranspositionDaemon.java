@@ -0,0 +1,238 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * The TranspositionDaemon class keeps a warm JVM listening on a Unix domain socket, so that shell pipelines and
+ * editor plugins can transpose many scores without starting a JVM for each one.
+ * <p>
+ * A client connects, sends any number of requests, reading the response to each before sending the next, and
+ * closes the connection when done. Frames are a header line in ASCII followed by exactly the number of bytes it
+ * announces, so any language can speak them:
+ * <pre>
+ * PATH steps path\n               transpose the file at path (as seen by the daemon)
+ * DATA steps length\n bytes       transpose the score sent in the next length bytes
+ *
+ * OK length\n bytes               the transposed score
+ * ERROR length\n bytes            what went wrong, e.g. "song.gmn:1042: Missing closing quote in String"</pre>
+ * A request the daemon does not understand closes the connection. Each request gets its own Scanner, Parser and
+ * TranspositionContext, unless its result is found in the daemon's TranspositionCache; each connection runs on
+ * its own virtual thread when the JVM has them.
+ */
+public class TranspositionDaemon implements AutoCloseable {
+
+    static final int MAX_LINE = 1 << 16; //Longest header line
+    static final int MAX_DATA = 1 << 30; //Largest score sent as DATA
+
+    private final Path socket;
+    private final TranspositionCache cache; //Null for none
+    private final ServerSocketChannel server;
+    private final ExecutorService executor;
+    private final Thread acceptor;
+
+    /**
+     * Construct a TranspositionDaemon without a cache and start accepting connections
+     * @param socket the path of the socket file; a socket left there by a previous daemon is replaced
+     * @throws IOException if the socket cannot be bound, or the path is a regular file
+     */
+    public TranspositionDaemon(Path socket) throws IOException {
+        this(socket, null);
+    }
+
+    /**
+     * Construct a TranspositionDaemon and start accepting connections
+     * @param socket the path of the socket file; a socket left there by a previous daemon is replaced
+     * @param cache remembers results across requests and connections, or null for none
+     * @throws IOException if the socket cannot be bound, or the path is a regular file
+     */
+    public TranspositionDaemon(Path socket, TranspositionCache cache) throws IOException {
+        if (Files.isRegularFile(socket)) {
+            throw new IOException(socket + ": is a regular file, not a socket");
+        }
+        Files.deleteIfExists(socket);
+        this.socket = socket;
+        this.cache = cache;
+        this.server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socket));
+        this.executor = TranspositionServer.newExecutor();
+        this.acceptor = new Thread(this::accept, "transposition-daemon");
+        acceptor.start();
+    }
+
+    private void accept() {
+        try {
+            while (true) {
+                SocketChannel connection = server.accept();
+                executor.execute(() -> serve(connection));
+            }
+        } catch (IOException e) {
+            //Closed by close()
+        }
+    }
+
+    /**
+     * Stop accepting connections, close the socket and delete its file. Requests being served are finished.
+     */
+    @Override
+    public void close() {
+        try {
+            server.close();
+            acceptor.join();
+            executor.shutdown();
+            Files.deleteIfExists(socket);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Close error", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void serve(SocketChannel connection) {
+        try (connection) {
+            InputStream in = new BufferedInputStream(Channels.newInputStream(connection));
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(connection));
+            String line;
+            while ((line = readLine(in)) != null) {
+                String[] request = line.split(" ", 3);
+                if (request.length != 3 || !isInteger(request[1])) {
+                    return;
+                }
+                int steps = Integer.parseInt(request[1]);
+                Result result = new Result();
+                if ("PATH".equals(request[0])) {
+                    transpose(request[2], steps, result);
+                } else if ("DATA".equals(request[0]) && isInteger(request[2])) {
+                    int length = Integer.parseInt(request[2]);
+                    if (length < 0 || length > MAX_DATA) {
+                        return;
+                    }
+                    byte[] score = in.readNBytes(length);
+                    if (score.length < length) {
+                        return;
+                    }
+                    transpose(score, "(request)", steps, result);
+                } else {
+                    return;
+                }
+                writeFrame(out, result.error == null ? "OK" : "ERROR", result.bytes);
+                out.flush();
+            }
+        } catch (IOException e) {
+            //The client went away
+        }
+    }
+
+    /**
+     * The response to a request: the transposed score, or an error message
+     */
+    private static final class Result {
+        byte[] bytes;
+        String error;
+    }
+
+    private void transpose(String path, int steps, Result result) {
+        if (cache != null) {
+            byte[] score;
+            try {
+                score = Files.readAllBytes(Path.of(path));
+            } catch (IOException e) {
+                fail(new GuidoException(path, -1, e instanceof NoSuchFileException ? "No such file" : "Read error", e),
+                        result);
+                return;
+            }
+            transpose(score, path, steps, result);
+            return;
+        }
+        try (ChannelInput in = new ChannelInput(path)) {
+            transpose(new IterativeParser(new TableScanner(in), new CaptureSink(), new TranspositionContext(steps)),
+                    result);
+        } catch (GuidoException e) {
+            fail(e, result);
+        }
+    }
+
+    private void transpose(byte[] score, String filename, int steps, Result result) {
+        try {
+            if (cache != null) {
+                result.bytes = cache.transpose(score, filename, steps);
+                return;
+            }
+            Input in = new BufferInput(ByteBuffer.wrap(score), filename);
+            transpose(new IterativeParser(new TableScanner(in), new CaptureSink(), new TranspositionContext(steps)),
+                    result);
+        } catch (GuidoException e) {
+            fail(e, result);
+        }
+    }
+
+    private static void transpose(Parser parser, Result result) {
+        if (parser.score()) {
+            result.bytes = parser.getFile().getBytes(StandardCharsets.ISO_8859_1);
+        } else {
+            fail(parser.syntaxError(), result);
+        }
+    }
+
+    private static void fail(GuidoException e, Result result) {
+        result.error = e.getMessage();
+        result.bytes = result.error.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Write a header line and its bytes
+     * @param out where the frame goes; not flushed
+     * @param kind the first word of the header line
+     * @param bytes the bytes that follow
+     */
+    static void writeFrame(OutputStream out, String kind, byte[] bytes) throws IOException {
+        out.write((kind + " " + bytes.length + "\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(bytes);
+    }
+
+    /**
+     * Read a header line
+     * @return the line without its line feed, or null at the end of the stream
+     * @throws IOException if the stream ends inside the line or the line is too long
+     */
+    static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                if (line.length() == 0) {
+                    return null;
+                }
+                throw new EOFException("End of stream inside a header line");
+            }
+            if (line.length() == MAX_LINE) {
+                throw new IOException("Header line too long");
+            }
+            line.append((char) b);
+        }
+        return line.toString();
+    }
+
+    static boolean isInteger(String s) {
+        try {
+            Integer.parseInt(s);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
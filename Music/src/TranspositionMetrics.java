@@ -0,0 +1,384 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The TranspositionMetrics class counts the work of every Parser in the JVM: scores, bytes read, Tokens by Id,
+ * notes transposed, tags, bytes written, and the time spent parsing and flushing. A Parser counts into plain fields
+ * as it goes, in its Scanner, its TranspositionContext and itself, and adds them here once per score, so counting
+ * costs one increment per Token, note or tag.
+ * <p>
+ * The same numbers are recorded as JDK Flight Recorder events, to be opened in JDK Mission Control:
+ * <pre>
+ * java -XX:StartFlightRecording=filename=transpose.jfr Transpose 2 in.gmn out.gmn
+ * jfr print --categories Music transpose.jfr</pre>
+ * music.Transposition is recorded for each score, with its file, number of half steps and counts, and lasts as
+ * long as the score was scanned, parsed and transposed; those take turns Token by Token on one thread, so the
+ * method samples of the recording tell them apart. music.TokenCount follows it for each Id of Token seen.
+ * music.Flush lasts as long as a Sink took to write what was left in it at the end of a score. music.Statistics
+ * gives the counters of this class every second.
+ * <p>
+ * Loading an event class starts the Flight Recorder, which takes hundreds of milliseconds, so no event is created
+ * unless a recording has started it already, e.g. with -XX:StartFlightRecording or jcmd JFR.start.
+ */
+public final class TranspositionMetrics {
+
+    private static final Id[] IDS = Id.values();
+
+    private static final LongAdder SCORES = new LongAdder();
+    private static final LongAdder IMPROPER = new LongAdder();
+    private static final LongAdder BYTES_READ = new LongAdder();
+    private static final LongAdder[] TOKENS = new LongAdder[IDS.length];
+    private static final LongAdder NOTES = new LongAdder();
+    private static final LongAdder TAGS = new LongAdder();
+    private static final LongAdder BYTES_WRITTEN = new LongAdder();
+    private static final LongAdder PARSE_NANOS = new LongAdder();
+    private static final LongAdder FLUSH_NANOS = new LongAdder();
+
+    private static final AtomicBoolean PERIODIC = new AtomicBoolean(); //Whether Statistics is registered
+
+    static {
+        for (int i = 0; i < TOKENS.length; i++) {
+            TOKENS[i] = new LongAdder();
+        }
+    }
+
+    private TranspositionMetrics() {
+    }
+
+    @Name("music.Transposition")
+    @Label("Transposition")
+    @Category("Music")
+    @Description("A score scanned, parsed and transposed")
+    static final class Transposition extends Event {
+
+        @Label("File")
+        String filename;
+
+        @Label("Half Steps")
+        int halfSteps;
+
+        @Label("Parser")
+        String parser;
+
+        @Label("Proper Syntax")
+        boolean proper;
+
+        @Label("Bytes Read")
+        @DataAmount
+        long bytesRead;
+
+        @Label("Tokens")
+        long tokens;
+
+        @Label("Notes")
+        long notes;
+
+        @Label("Tags")
+        long tags;
+
+        @Label("Bytes Written")
+        @Description("Including those still buffered; -1 if the Sink does not count them")
+        @DataAmount
+        long bytesWritten;
+    }
+
+    @Name("music.TokenCount")
+    @Label("Token Count")
+    @Category("Music")
+    @Description("The Tokens of one Id in a score")
+    @StackTrace(false)
+    static final class TokenCount extends Event {
+
+        @Label("File")
+        String filename;
+
+        @Label("Id")
+        String id;
+
+        @Label("Count")
+        long count;
+    }
+
+    @Name("music.Flush")
+    @Label("Flush")
+    @Category("Music")
+    @Description("A Sink writing what was left in it at the end of a score")
+    static final class Flush extends Event {
+
+        @Label("Sink")
+        String sink;
+
+        @Label("Bytes Written")
+        @Description("Since the Sink was created; -1 if it does not count them")
+        @DataAmount
+        long bytesWritten;
+    }
+
+    @Name("music.Statistics")
+    @Label("Transposition Statistics")
+    @Category("Music")
+    @Description("The counters of TranspositionMetrics, since the JVM started")
+    @StackTrace(false)
+    @Period("1 s")
+    static final class Statistics extends Event {
+
+        @Label("Scores")
+        long scores;
+
+        @Label("Improper Scores")
+        long improperScores;
+
+        @Label("Bytes Read")
+        @DataAmount
+        long bytesRead;
+
+        @Label("Tokens")
+        long tokens;
+
+        @Label("Notes")
+        long notes;
+
+        @Label("Tags")
+        long tags;
+
+        @Label("Bytes Written")
+        @DataAmount
+        long bytesWritten;
+
+        @Label("Parse Time")
+        @Timespan
+        long parseNanos;
+
+        @Label("Flush Time")
+        @Timespan
+        long flushNanos;
+    }
+
+    /**
+     * Start the event of a score, if the Flight Recorder is running
+     * @return the event to give to scored(), or null
+     */
+    static Transposition begin() {
+        if (!FlightRecorder.isInitialized()) {
+            return null;
+        }
+        if (!PERIODIC.get() && PERIODIC.compareAndSet(false, true)) {
+            FlightRecorder.addPeriodicEvent(Statistics.class, TranspositionMetrics::statistics);
+        }
+        Transposition event = new Transposition();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Add the counts of a Parser that has just parsed a score, and commit its event. A Parser parses one score,
+     * so its counts are those since it was constructed.
+     * @param parser the Parser
+     * @param proper what its score() returned
+     * @param nanos how long score() took
+     * @param event what begin() returned
+     */
+    static void scored(Parser parser, boolean proper, long nanos, Transposition event) {
+        Scanner scan = parser.getScanner();
+        long[] tokens = new long[IDS.length];
+        for (int i = 0; i < IDS.length; i++) {
+            tokens[i] = scan.getTokenCount(IDS[i]);
+        }
+        scored(parser.getClass().getSimpleName(), scan.in.getFilename(), parser.getContext().getNumHalfSteps(),
+                proper, scan.bytesRead(), tokens, parser.getContext().getNotes(), parser.getTags(),
+                parser.getSink().size(), nanos, event);
+    }
+
+    /**
+     * Add the counts of a score, and commit its event. For scores not parsed by a single Parser, such as those
+     * of ParallelTranspose, which adds up the counts of its parts.
+     * @param parser the name of what parsed the score
+     * @param filename the name of the score
+     * @param halfSteps the number of half steps
+     * @param proper whether it was proper GUIDO syntax
+     * @param bytesRead the number of bytes read
+     * @param tokens the number of Tokens scanned, by the ordinal of their Id
+     * @param notes the number of notes transposed
+     * @param tags the number of tags parsed
+     * @param bytesWritten the number of bytes printed, or -1 if unknown
+     * @param nanos how long parsing took
+     * @param event what begin() returned
+     */
+    static void scored(String parser, String filename, int halfSteps, boolean proper, long bytesRead, long[] tokens,
+                       long notes, long tags, long bytesWritten, long nanos, Transposition event) {
+        SCORES.increment();
+        if (!proper) {
+            IMPROPER.increment();
+        }
+        BYTES_READ.add(bytesRead);
+        long total = 0;
+        for (int i = 0; i < IDS.length; i++) {
+            if (tokens[i] > 0) {
+                TOKENS[i].add(tokens[i]);
+                total += tokens[i];
+            }
+        }
+        NOTES.add(notes);
+        TAGS.add(tags);
+        if (bytesWritten > 0) {
+            BYTES_WRITTEN.add(bytesWritten);
+        }
+        PARSE_NANOS.add(nanos);
+        if (event == null) {
+            return;
+        }
+        if (event.shouldCommit()) {
+            event.filename = filename;
+            event.halfSteps = halfSteps;
+            event.parser = parser;
+            event.proper = proper;
+            event.bytesRead = bytesRead;
+            event.tokens = total;
+            event.notes = notes;
+            event.tags = tags;
+            event.bytesWritten = bytesWritten;
+            event.commit();
+        }
+        if (new TokenCount().isEnabled()) {
+            for (int i = 0; i < IDS.length; i++) {
+                if (tokens[i] > 0) {
+                    TokenCount count = new TokenCount();
+                    count.filename = filename;
+                    count.id = IDS[i].name();
+                    count.count = tokens[i];
+                    count.commit();
+                }
+            }
+        }
+    }
+
+    /**
+     * Flush a Sink at the end of a score, counting the time it takes as the write phase
+     * @param out the Sink
+     */
+    static void flush(Sink out) {
+        Flush event = null;
+        if (FlightRecorder.isInitialized()) {
+            event = new Flush();
+            event.begin();
+        }
+        long start = System.nanoTime();
+        out.flush();
+        FLUSH_NANOS.add(System.nanoTime() - start);
+        if (event != null && event.shouldCommit()) {
+            event.sink = out.getClass().getSimpleName();
+            event.bytesWritten = out.size();
+            event.commit();
+        }
+    }
+
+    private static void statistics() {
+        Statistics event = new Statistics();
+        event.scores = getScores();
+        event.improperScores = getImproperScores();
+        event.bytesRead = getBytesRead();
+        event.tokens = getTokens();
+        event.notes = getNotes();
+        event.tags = getTags();
+        event.bytesWritten = getBytesWritten();
+        event.parseNanos = getParseNanos();
+        event.flushNanos = getFlushNanos();
+        event.commit();
+    }
+
+    /**
+     * @return the number of scores parsed
+     */
+    public static long getScores() {
+        return SCORES.sum();
+    }
+
+    /**
+     * @return the number of scores that were not proper GUIDO syntax
+     */
+    public static long getImproperScores() {
+        return IMPROPER.sum();
+    }
+
+    /**
+     * @return the number of bytes read by the Scanners of the scores parsed
+     */
+    public static long getBytesRead() {
+        return BYTES_READ.sum();
+    }
+
+    /**
+     * @return the number of Tokens scanned
+     */
+    public static long getTokens() {
+        long n = 0;
+        for (LongAdder count : TOKENS) {
+            n += count.sum();
+        }
+        return n;
+    }
+
+    /**
+     * @param ident an Id
+     * @return the number of Tokens with that Id scanned
+     */
+    public static long getTokens(Id ident) {
+        return TOKENS[ident.ordinal()].sum();
+    }
+
+    /**
+     * @return the number of notes transposed by the Parsers; those transposed again by a ScoreRenderer are not
+     * counted twice
+     */
+    public static long getNotes() {
+        return NOTES.sum();
+    }
+
+    /**
+     * @return the number of tags parsed
+     */
+    public static long getTags() {
+        return TAGS.sum();
+    }
+
+    /**
+     * @return the number of bytes printed into the Sinks of the Parsers, for those that count them
+     */
+    public static long getBytesWritten() {
+        return BYTES_WRITTEN.sum();
+    }
+
+    /**
+     * @return the time spent in Parser.score(), in nanoseconds
+     */
+    public static long getParseNanos() {
+        return PARSE_NANOS.sum();
+    }
+
+    /**
+     * @return the time spent flushing Sinks at the end of scores, in nanoseconds
+     */
+    public static long getFlushNanos() {
+        return FLUSH_NANOS.sum();
+    }
+
+    /**
+     * @return the counters, on one line
+     */
+    public static String summary() {
+        return String.format("%d scores (%d improper), %d bytes read, %d tokens, %d notes, %d tags, "
+                        + "%d bytes written, %.1f ms parsing, %.1f ms flushing", getScores(), getImproperScores(),
+                getBytesRead(), getTokens(), getNotes(), getTags(), getBytesWritten(), getParseNanos() / 1e6,
+                getFlushNanos() / 1e6);
+    }
+}
@@ -0,0 +1,201 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The TranspositionServer class transposes scores sent over HTTP, so that a client pays for a request instead of
+ * a JVM start:
+ * <pre>
+ * curl --data-binary @song.gmn 'http://localhost:8080/transpose?steps=-3'</pre>
+ * The body of a POST to /transpose is read as a GUIDO score and the transposed score is streamed back as it is
+ * parsed, in ISO-8859-1 like the files. Each request has its own Scanner, Parser and TranspositionContext, so
+ * nothing is shared between requests; each runs on its own virtual thread when the JVM has them, otherwise on a
+ * thread of a cached pool.
+ * <p>
+ * A missing or invalid steps parameter, or a score that is not proper GUIDO syntax, gets a 400 response with the
+ * file offset of the problem, as long as the error is found before the first 64 KB of the response are sent.
+ * Past that point the status has gone out, so the connection is closed without ending the response instead.
+ * <p>
+ * The status line and the body are separate writes; without TCP_NODELAY the second one waits for the client's
+ * delayed acknowledgement of the first, about 40 ms per request. The JDK's HttpServer only sets it when the JVM is
+ * started with -Dsun.net.httpserver.nodelay=true, a setting of the whole JVM, so it is left to the process:
+ * Transpose --serve sets it, see useNoDelay().
+ */
+public class TranspositionServer implements AutoCloseable {
+
+    public static final String PATH = "/transpose";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Make every HttpServer created from now on in this JVM, not only TranspositionServers, set TCP_NODELAY, unless
+     * sun.net.httpserver.nodelay was given on the command line. For the main() of a process that serves; the JDK
+     * reads the property once, when the first HttpServer is created.
+     */
+    static void useNoDelay() {
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    /**
+     * Construct a TranspositionServer and start it
+     * @param address where to listen; port 0 picks a free port
+     * @throws IOException if the address cannot be bound
+     */
+    public TranspositionServer(InetSocketAddress address) throws IOException {
+        server = HttpServer.create(address, 0);
+        executor = newExecutor();
+        server.setExecutor(executor);
+        server.createContext(PATH, this::handle);
+        server.start();
+    }
+
+    /**
+     * @return an executor starting one virtual thread per request if the JVM has virtual threads, or a cached
+     * thread pool
+     */
+    static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stop accepting requests, wait up to a second for the current ones, and stop
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Allow", "POST");
+            respond(exchange, 405, "Use POST with a GUIDO score as the body");
+            return;
+        }
+        Integer steps = steps(exchange.getRequestURI());
+        if (steps == null) {
+            respond(exchange, 400, "Missing or invalid steps parameter, e.g. " + PATH + "?steps=-3");
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=ISO-8859-1");
+        ResponseChannel channel = new ResponseChannel(exchange);
+        ChannelOutput out = new ChannelOutput(channel, ChannelOutput.DEFAULT_BUFFER_SIZE);
+        GuidoException error;
+        try {
+            Input in = new Input(exchange.getRequestBody(), "(request)");
+            Parser parser = new IterativeParser(in, out, new TranspositionContext(steps));
+            error = parser.score() ? null : parser.syntaxError();
+        } catch (GuidoException e) {
+            error = e;
+        }
+        if (error == null) {
+            channel.last = true;
+            out.flush();
+            if (!channel.started) {
+                exchange.sendResponseHeaders(200, -1); //Nothing to send
+            }
+            exchange.close();
+        } else if (!channel.started) {
+            respond(exchange, 400, error.getMessage());
+        } else {
+            //Left open, so the server drops the connection instead of ending the response normally
+            throw new IOException(error.getMessage(), error);
+        }
+    }
+
+    /**
+     * @return the value of the steps query parameter, or null if it is missing or not an int
+     */
+    private static Integer steps(URI uri) {
+        String query = uri.getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String param : query.split("&")) {
+            if (param.startsWith("steps=")) {
+                try {
+                    return Integer.parseInt(param.substring(6));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] bytes = (message + "\n").getBytes(StandardCharsets.ISO_8859_1);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=ISO-8859-1");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(bytes);
+        }
+    }
+
+    /**
+     * The response body as a channel that sends a 200 status before its first bytes, so that an error found before
+     * then can still get its own status. A response written all at once gets a Content-Length; a longer one is
+     * chunked.
+     */
+    private static final class ResponseChannel implements WritableByteChannel {
+
+        private final HttpExchange exchange;
+        private OutputStream body;
+        boolean started;
+        boolean last; //The next write is the whole rest of the response
+
+        ResponseChannel(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (!started) {
+                exchange.sendResponseHeaders(200, last ? src.remaining() : 0);
+                body = exchange.getResponseBody();
+                started = true;
+            }
+            int n = src.remaining();
+            if (src.hasArray()) {
+                body.write(src.array(), src.arrayOffset() + src.position(), n);
+                src.position(src.limit());
+            } else {
+                byte[] bytes = new byte[n];
+                src.get(bytes);
+                body.write(bytes);
+            }
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,279 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * The WatchTranspose class keeps transposed copies of a directory tree up to date while its .gmn files are edited.
+ * Each file is transposed into every number of half steps, into OUT-DIR/steps/ followed by the path of the file
+ * under the watched directory:
+ * <pre>
+ * try (WatchTranspose watch = new WatchTranspose(inDir, outDir, new int[] {-2, 3}, 4, 200, System.out::println)) {
+ *     watch.run(); //Until watch.close() is called from another thread
+ * }</pre>
+ * Every file is transposed once at the start. After that, a file is transposed again once no change to it has been
+ * seen for the debounce delay, so that an editor saving in several steps causes one transposition. It is skipped if
+ * its content is the same as the last time it was transposed, e.g. when it was only touched. All the numbers of half
+ * steps come from one parse, and every output is written to a temporary file moved into place, so a preview never
+ * shows half a file. A deleted file has its outputs deleted.
+ * <p>
+ * Files are transposed by a fixed number of worker threads, with a bounded queue as in BatchTranspose. A file is
+ * never transposed by two workers at once; a change seen while it is being transposed waits for that to finish.
+ */
+public class WatchTranspose implements AutoCloseable {
+
+    private final Path inDir;
+    private final Path outDir;
+    private final int[] steps;
+    private final long debounceNanos;
+    private final Consumer<BatchTranspose.Result> results;
+    private final WatchService watcher;
+    private final Map<WatchKey, Path> dirs = new HashMap<>();
+    private final ThreadPoolExecutor pool;
+
+    //Used by run() only
+    private final Map<Path, Long> pending = new HashMap<>(); //File and when it was last seen changing
+
+    //Shared with the workers
+    private final Map<Path, byte[]> hashes = new ConcurrentHashMap<>(); //Content last transposed
+    private final Set<Path> running = ConcurrentHashMap.newKeySet();
+    private final AtomicLong transposed = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+
+    /**
+     * Construct a WatchTranspose and start watching
+     * @param inDir the directory tree to watch
+     * @param outDir receives a directory for each number of half steps; created as needed
+     * @param steps the numbers of half steps; can be negative
+     * @param threads the number of worker threads; at least 1
+     * @param debounceMillis how long a file must stay unchanged before it is transposed again
+     * @param results receives the outcome of each file and number of half steps, from the worker threads
+     * @throws IOException if the tree cannot be watched
+     * @throws IllegalArgumentException if outDir is inside inDir, where its outputs would be seen as changes
+     */
+    public WatchTranspose(Path inDir, Path outDir, int[] steps, int threads, long debounceMillis,
+                          Consumer<BatchTranspose.Result> results) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads: " + threads);
+        }
+        if (outDir.toAbsolutePath().normalize().startsWith(inDir.toAbsolutePath().normalize())) {
+            throw new IllegalArgumentException(outDir + ": the output directory cannot be inside " + inDir);
+        }
+        this.inDir = inDir;
+        this.outDir = outDir;
+        this.steps = steps.clone();
+        this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+        this.results = results;
+        this.watcher = FileSystems.getDefault().newWatchService();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(4 * threads), new ThreadPoolExecutor.CallerRunsPolicy());
+        register(inDir, 0);
+    }
+
+    /**
+     * Transpose every file, then keep transposing changed files until close() is called
+     */
+    public void run() {
+        try {
+            while (true) {
+                WatchKey key;
+                if (pending.isEmpty()) {
+                    key = watcher.take();
+                } else {
+                    long wait = pending.values().stream().mapToLong(Long::longValue).min().getAsLong()
+                            + debounceNanos - System.nanoTime();
+                    key = watcher.poll(Math.max(wait, 0), TimeUnit.NANOSECONDS);
+                }
+                if (key != null) {
+                    events(key);
+                }
+                submitDue();
+            }
+        } catch (ClosedWatchServiceException e) {
+            //Closed by close()
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stop watching, and wait for the files being transposed
+     */
+    @Override
+    public void close() throws IOException {
+        watcher.close();
+        pool.shutdown();
+        try {
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the number of files transposed
+     */
+    public long getTransposed() {
+        return transposed.get();
+    }
+
+    /**
+     * @return the number of changes skipped because the content was the same as the last time
+     */
+    public long getUnchanged() {
+        return unchanged.get();
+    }
+
+    /**
+     * Watch a directory and the directories under it, and mark their .gmn files as changed
+     * @param now when they were seen, so that they are due right away at the start
+     */
+    private void register(Path dir, long now) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Iterator<Path> it = files.iterator(); it.hasNext(); ) {
+                Path file = it.next();
+                if (Files.isDirectory(file)) {
+                    dirs.put(file.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE), file);
+                } else if (isScore(file)) {
+                    pending.put(file, now);
+                }
+            }
+        }
+    }
+
+    private static boolean isScore(Path file) {
+        return file.getFileName().toString().endsWith(".gmn");
+    }
+
+    private void events(WatchKey key) {
+        Path dir = dirs.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                rescan();
+                continue;
+            }
+            Path file = dir.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(file)) {
+                try {
+                    register(file, System.nanoTime());
+                } catch (IOException e) {
+                    results.accept(new BatchTranspose.Result(file, null, 0, "Cannot watch: " + e));
+                }
+            } else if (isScore(file)) {
+                pending.put(file, System.nanoTime());
+            }
+        }
+        if (!key.reset()) {
+            dirs.remove(key);
+        }
+    }
+
+    /**
+     * Events were lost: look at every file again; unchanged ones are skipped by their hash
+     */
+    private void rescan() {
+        for (WatchKey key : dirs.keySet()) {
+            key.cancel();
+        }
+        dirs.clear();
+        try {
+            register(inDir, System.nanoTime());
+        } catch (IOException e) {
+            results.accept(new BatchTranspose.Result(inDir, null, 0, "Cannot watch: " + e));
+        }
+    }
+
+    private void submitDue() {
+        long now = System.nanoTime();
+        for (Iterator<Map.Entry<Path, Long>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Path, Long> e = it.next();
+            Path file = e.getKey();
+            if (now - e.getValue() < debounceNanos) {
+                continue;
+            }
+            if (!running.add(file)) {
+                e.setValue(now); //Look again once the worker is likely done
+            } else {
+                it.remove();
+                pool.execute(() -> {
+                    try {
+                        transpose(file);
+                    } finally {
+                        running.remove(file);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Transpose one file into every number of half steps, or delete its outputs if it is gone
+     */
+    private void transpose(Path source) {
+        Path[] targets = new Path[steps.length];
+        for (int i = 0; i < steps.length; i++) {
+            targets[i] = outDir.resolve(Integer.toString(steps[i])).resolve(inDir.relativize(source));
+        }
+        String error = null;
+        long size = 0;
+        try {
+            if (!Files.isRegularFile(source)) {
+                hashes.remove(source);
+                for (Path target : targets) {
+                    Files.deleteIfExists(target);
+                }
+                return;
+            }
+            byte[] score = Files.readAllBytes(source);
+            size = score.length;
+            byte[] hash = ScoreFiles.sha256(score);
+            if (Arrays.equals(hash, hashes.get(source))) {
+                unchanged.incrementAndGet();
+                return;
+            }
+            CaptureSink[] outs = new CaptureSink[steps.length];
+            for (int i = 0; i < outs.length; i++) {
+                outs[i] = new CaptureSink();
+            }
+            Parser parser = FanOut.parser(new BufferInput(ByteBuffer.wrap(score), source.toString()), steps, outs);
+            if (!parser.score()) {
+                throw parser.syntaxError();
+            }
+            for (int i = 0; i < targets.length; i++) {
+                Files.createDirectories(targets[i].getParent());
+                ScoreFiles.writeAtomically(targets[i], outs[i].toString().getBytes(StandardCharsets.ISO_8859_1));
+            }
+            hashes.put(source, hash);
+            transposed.incrementAndGet();
+        } catch (GuidoException e) {
+            error = e.getOffset() < 0 ? e.getReason() : "offset " + e.getOffset() + ": " + e.getReason();
+            hashes.remove(source);
+        } catch (IOException | RuntimeException e) {
+            error = e.toString();
+            hashes.remove(source);
+        }
+        for (Path target : targets) {
+            results.accept(new BatchTranspose.Result(source, target, size, error));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Measures BatchTranspose on a generated corpus: the resource scores copied into a tree of the given number of
+ * files, 100 per directory, and transposed with 1 to 16 threads. Run with the test classpath:
+ * <pre>
+ * java BatchBenchmark [FILES]</pre>
+ */
+public class BatchBenchmark {
+
+    private static final String[] SCORES = {"/bach.gmn", "/full_simple_notes.gmn", "/one_voice_only_notes.gmn",
+            "/correctly_transposed_mozart_-4steps.gmn", "/transpose_these_notes.gmn", "/16th_note.gmn"};
+
+    private static Path corpus(int files) throws IOException {
+        byte[][] scores = new byte[SCORES.length][];
+        for (int i = 0; i < SCORES.length; i++) {
+            try (InputStream in = BatchBenchmark.class.getResourceAsStream(SCORES[i])) {
+                scores[i] = in.readAllBytes();
+            }
+        }
+        Path dir = Files.createTempDirectory("batch-corpus");
+        for (int i = 0; i < files; i++) {
+            Path file = dir.resolve("d" + i / 100).resolve("score" + i + ".gmn");
+            Files.createDirectories(file.getParent());
+            Files.write(file, scores[i % scores.length]);
+        }
+        return dir;
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int files = args.length == 0 ? 5000 : Integer.parseInt(args[0]);
+        Path in = corpus(files);
+        System.out.printf("%d files, %d cores, best of 3%n", files, Runtime.getRuntime().availableProcessors());
+        for (int threads = 1; threads <= 16; threads *= 2) {
+            BatchTranspose.Summary best = null;
+            for (int i = 0; i < 3; i++) {
+                Path out = Files.createTempDirectory("batch-out");
+                BatchTranspose.Summary summary = new BatchTranspose(2, threads, result -> { }).transposeTree(in, out);
+                delete(out);
+                if (best == null || summary.getNanos() < best.getNanos()) {
+                    best = summary;
+                }
+            }
+            System.out.printf("%-12s %s%n", threads + " threads", best);
+        }
+        delete(in);
+    }
+}
@@ -0,0 +1,135 @@
+import org.junit.Assert;
+import org.junit.Test;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class BatchTransposeTest {
+
+    private static final String[] SCORES = {"/bach.gmn", "/full_simple_notes.gmn", "/one_voice_only_notes.gmn",
+            "/correctly_transposed_mozart_-4steps.gmn", "/transpose_these_notes.gmn"};
+
+    @Test
+    public void transposeTree_MirrorsEveryScoreAndReportsFailures() throws IOException {
+        Path in = Files.createTempDirectory("batch-in");
+        Path out = Files.createTempDirectory("batch-out");
+        try {
+            List<Path> expected = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                Path file = in.resolve("d" + i % 3).resolve("e" + i % 2).resolve("score" + i + ".gmn");
+                Files.createDirectories(file.getParent());
+                Files.write(file, ScoreFixtures.resource(SCORES[i % SCORES.length]));
+                expected.add(out.resolve(in.relativize(file)));
+            }
+            Files.write(in.resolve("notes.txt"), "not a score".getBytes(StandardCharsets.ISO_8859_1));
+            Files.write(in.resolve("d1").resolve("bad.gmn"), "{[c d ] [e]}".getBytes(StandardCharsets.ISO_8859_1));
+            Files.write(in.resolve("d2").resolve("quote.gmn"), "{[c \\t<\"d]}".getBytes(StandardCharsets.ISO_8859_1));
+
+            List<BatchTranspose.Result> results = Collections.synchronizedList(new ArrayList<>());
+            BatchTranspose.Summary summary = new BatchTranspose(-3, 4, results::add).transposeTree(in, out);
+
+            Assert.assertEquals(42, summary.getFiles());
+            Assert.assertEquals(2, summary.getFailed());
+            Assert.assertEquals(42, results.size());
+            for (BatchTranspose.Result result : results) {
+                if (result.getSource().endsWith("bad.gmn")) {
+                    Assert.assertEquals("offset 8: Improper GUIDO syntax", result.getError());
+                    Assert.assertFalse(Files.exists(result.getTarget()));
+                } else if (result.getSource().endsWith("quote.gmn")) {
+                    Assert.assertEquals("offset 7: Missing closing quote in String", result.getError());
+                    Assert.assertFalse(Files.exists(result.getTarget()));
+                } else {
+                    Assert.assertTrue(result.toString(), result.isOk());
+                }
+            }
+            for (int i = 0; i < expected.size(); i++) {
+                byte[] score = ScoreFixtures.resource(SCORES[i % SCORES.length]);
+                Assert.assertEquals(expected.get(i).toString(), ScoreFixtures.parse(score, -3),
+                        new String(Files.readAllBytes(expected.get(i)), StandardCharsets.ISO_8859_1));
+            }
+            Assert.assertFalse(Files.exists(out.resolve("notes.txt")));
+        } finally {
+            ScoreFixtures.delete(in);
+            ScoreFixtures.delete(out);
+        }
+    }
+
+    @Test
+    public void transposeList_KeepsGoingAfterMissingFile() throws IOException {
+        Path dir = Files.createTempDirectory("batch-list");
+        try {
+            Path score = dir.resolve("in").resolve("bach.gmn");
+            Files.createDirectories(score.getParent());
+            Files.write(score, ScoreFixtures.resource("/bach.gmn"));
+            Path list = dir.resolve("list.txt");
+            Files.write(list, (dir.resolve("missing.gmn") + "\n\n" + score + "\n").getBytes(StandardCharsets.ISO_8859_1));
+            Path out = dir.resolve("out");
+
+            List<BatchTranspose.Result> results = Collections.synchronizedList(new ArrayList<>());
+            BatchTranspose.Summary summary = new BatchTranspose(2, 1, results::add).transposeList(list, out);
+
+            Assert.assertEquals(2, summary.getFiles());
+            Assert.assertEquals(1, summary.getFailed());
+            Assert.assertTrue(results.get(0).getError().contains("No such file"));
+            Path target = out.resolve(score.getRoot().relativize(score));
+            Assert.assertEquals(ScoreFixtures.parse(ScoreFixtures.resource("/bach.gmn"), 2),
+                    new String(Files.readAllBytes(target), StandardCharsets.ISO_8859_1));
+        } finally {
+            ScoreFixtures.delete(dir);
+        }
+    }
+
+    @Test
+    public void transposeTree_SkipsTheOutputDirectoryInside() throws IOException {
+        Path in = Files.createTempDirectory("batch-nested");
+        try {
+            for (int i = 0; i < 20; i++) {
+                Files.write(in.resolve("score" + i + ".gmn"), ScoreFixtures.resource(SCORES[i % SCORES.length]));
+            }
+            Path out = in.resolve("out");
+
+            BatchTranspose.Summary summary = new BatchTranspose(1, 4, result -> { }).transposeTree(in, out);
+
+            Assert.assertEquals(20, summary.getFiles());
+            Assert.assertEquals(0, summary.getFailed());
+            Assert.assertFalse(Files.exists(out.resolve("out")));
+            try {
+                new BatchTranspose(1, 1, result -> { }).transposeTree(in, in.resolve("."));
+                Assert.fail();
+            } catch (IllegalArgumentException e) {
+                //Outputs would overwrite their sources
+            }
+        } finally {
+            ScoreFixtures.delete(in);
+        }
+    }
+
+    @Test
+    public void transposeList_RejectsTargetsOutsideTheOutputDirectory() throws IOException {
+        Path dir = Files.createTempDirectory("batch-escape");
+        try {
+            Path sentinel = dir.resolve("escape.gmn");
+            Files.write(sentinel, ScoreFixtures.resource("/bach.gmn"));
+            Path list = dir.resolve("list.txt");
+            Files.write(list, "../escape.gmn\nin/../../escape.gmn\n".getBytes(StandardCharsets.ISO_8859_1));
+            Path out = dir.resolve("out");
+
+            List<BatchTranspose.Result> results = Collections.synchronizedList(new ArrayList<>());
+            BatchTranspose.Summary summary = new BatchTranspose(2, 1, results::add).transposeList(list, out);
+
+            Assert.assertEquals(2, summary.getFiles());
+            Assert.assertEquals(2, summary.getFailed());
+            for (BatchTranspose.Result result : results) {
+                Assert.assertEquals("Outside the output directory", result.getError());
+                Assert.assertNull(result.getTarget());
+            }
+            Assert.assertArrayEquals(ScoreFixtures.resource("/bach.gmn"), Files.readAllBytes(sentinel));
+        } finally {
+            ScoreFixtures.delete(dir);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+import java.io.InputStream;
+
+/**
+ * Compares transposing a score every time with getting it from a TranspositionCache: the resource scores, each
+ * into 12 keys, over and over. Run with the test classpath:
+ * <pre>
+ * java CacheBenchmark [ROUNDS]</pre>
+ */
+public class CacheBenchmark {
+
+    private static final String[] SCORES = {"/bach.gmn", "/full_simple_notes.gmn", "/one_voice_only_notes.gmn",
+            "/correctly_transposed_mozart_-4steps.gmn", "/transpose_these_notes.gmn", "/16th_note.gmn"};
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length == 0 ? 2000 : Integer.parseInt(args[0]);
+        byte[][] scores = new byte[SCORES.length][];
+        for (int i = 0; i < SCORES.length; i++) {
+            try (InputStream in = CacheBenchmark.class.getResourceAsStream(SCORES[i])) {
+                scores[i] = in.readAllBytes();
+            }
+        }
+        int calls = rounds * scores.length * 12;
+        System.out.printf("%d transpositions, best of 5%n", calls);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                for (byte[] score : scores) {
+                    for (int n = 1; n <= 12; n++) {
+                        new TranspositionCache(0).transpose(score, "score", n); //Never keeps anything
+                    }
+                }
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-24s %8.2f us per call%n", "Scanner + Parser", best / 1e3 / calls);
+        TranspositionCache cache = new TranspositionCache(64 << 20);
+        best = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                for (byte[] score : scores) {
+                    for (int n = 1; n <= 12; n++) {
+                        cache.transpose(score, "score", n);
+                    }
+                }
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-24s %8.2f us per call%n", "Cache hit (with SHA-256)", best / 1e3 / calls);
+        System.out.println(cache);
+    }
+}
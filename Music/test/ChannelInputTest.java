@@ -0,0 +1,75 @@
+import org.junit.Assert;
+import org.junit.Test;
+import java.io.File;
+import java.nio.ByteBuffer;
+
+public class ChannelInputTest {
+
+    private String resource(String name) {
+        return new File(getClass().getResource(name).getPath()).getPath();
+    }
+
+    private void assertSameChars(Input expected, Input actual) {
+        int c;
+        do {
+            c = expected.getChar();
+            Assert.assertEquals(c, actual.getChar());
+        } while (c != -1);
+        Assert.assertEquals(-1, actual.getChar());
+    }
+
+    @Test
+    public void getChar_MatchesInput() {
+        String bach = resource("/bach.gmn");
+        assertSameChars(new Input(bach), new ChannelInput(bach));
+    }
+
+    @Test
+    public void getChar_SmallReadBuffer() {
+        String bach = resource("/bach.gmn");
+        assertSameChars(new Input(bach), new ChannelInput(bach, 7, false));
+    }
+
+    @Test
+    public void getChar_SmallMappedWindows() {
+        String bach = resource("/bach.gmn");
+        assertSameChars(new Input(bach), new ChannelInput(bach, 5, true));
+    }
+
+    @Test
+    public void bulkAccess_ReadsWholeFile() {
+        String bach = resource("/bach.gmn");
+        ChannelInput in = new ChannelInput(bach, 100, false);
+        long count = 0;
+        while (in.fill()) {
+            ByteBuffer buf = in.buffer();
+            count += buf.remaining();
+            buf.position(buf.limit());
+        }
+        Assert.assertEquals(new File(bach).length(), count);
+        Assert.assertEquals(in.size(), in.offset());
+        in.close();
+    }
+
+    @Test
+    public void scanner_ReturnsSameTokens() {
+        String mozart = resource("/full_simple_notes.gmn");
+        assertSameTokens(new Scanner(new Input(mozart)), new Scanner(new ChannelInput(mozart)));
+    }
+
+    @Test
+    public void scanner_ReturnsSameTokensFromMappedViews() {
+        String bach = resource("/bach.gmn");
+        assertSameTokens(new Scanner(new Input(bach)), new Scanner(new ChannelInput(bach, 64, true)));
+    }
+
+    private void assertSameTokens(Scanner expected, Scanner actual) {
+        while (expected.hasNext()) {
+            Token tok = expected.getNextToken();
+            Token other = actual.getNextToken();
+            Assert.assertEquals(tok.getId(), other.getId());
+            Assert.assertEquals(tok.getString(), other.getString());
+        }
+        Assert.assertFalse(actual.hasNext());
+    }
+}
@@ -0,0 +1,104 @@
+import org.junit.Assert;
+import org.junit.Test;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class ChannelOutputTest {
+
+    @Test
+    public void print_StringsCharsAndInts() {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ChannelOutput out = new ChannelOutput(Channels.newChannel(os), 16);
+        out.print("hello, ");
+        out.print('w');
+        out.print(0);
+        out.print(-12);
+        out.print(345);
+        out.print(Integer.MIN_VALUE);
+        out.print(Integer.MAX_VALUE);
+        out.close();
+        Assert.assertEquals("hello, w0-12345" + Integer.MIN_VALUE + Integer.MAX_VALUE,
+                new String(os.toByteArray(), StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void nothingWrittenUntilFlush() {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ChannelOutput out = new ChannelOutput(Channels.newChannel(os), 64);
+        out.print("{[c d e]}");
+        Assert.assertEquals(0, os.size());
+        Assert.assertEquals(9, out.size());
+        out.flush();
+        Assert.assertEquals("{[c d e]}", os.toString());
+    }
+
+    @Test
+    public void transpose_SameAsOutput() throws IOException {
+        File expected = File.createTempFile("expected", ".gmn");
+        File actual = File.createTempFile("actual", ".gmn");
+        try {
+            String bach = new File(getClass().getResource("/bach.gmn").getPath()).getPath();
+            try (Output out = new Output(expected.getPath())) {
+                new Parser(new Input(bach), out, new TranspositionContext(5)).printScore();
+            }
+            Transpose.transpose(5, bach, actual.getPath());
+            Assert.assertArrayEquals(Files.readAllBytes(expected.toPath()), Files.readAllBytes(actual.toPath()));
+        } finally {
+            expected.delete();
+            actual.delete();
+        }
+    }
+
+    @Test
+    public void writeError_ThrownAgainByClose() {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        WritableByteChannel full = new WritableByteChannel() {
+            private final WritableByteChannel channel = Channels.newChannel(os);
+            private boolean open = true;
+
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                if (os.size() > 0) {
+                    throw new IOException("No space left on device");
+                }
+                return channel.write(src);
+            }
+
+            @Override
+            public boolean isOpen() {
+                return open;
+            }
+
+            @Override
+            public void close() {
+                open = false;
+            }
+        };
+        ChannelOutput out = new ChannelOutput(full, 16);
+        out.print("{[c d e]}");
+        out.flush();
+        out.print("[f g a]");
+        try {
+            out.flush();
+            Assert.fail();
+        } catch (UncheckedIOException e) {
+            Assert.assertEquals("No space left on device", e.getCause().getMessage());
+        }
+        out.print("}");
+        try {
+            out.close();
+            Assert.fail();
+        } catch (UncheckedIOException e) {
+            Assert.assertEquals("No space left on device", e.getCause().getMessage());
+        }
+        Assert.assertFalse(full.isOpen());
+        Assert.assertEquals("{[c d e]}", os.toString());
+    }
+}
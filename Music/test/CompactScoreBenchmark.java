@@ -0,0 +1,65 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Compares rendering a score in 12 keys by parsing it 12 times with rendering it 12 times from one CompactScore,
+ * and with one parse fanned out to 12 ScoreRenderers.
+ * The score is bach.gmn scaled up to a given size; output goes to a NullSink. Run with the test classpath:
+ * <pre>
+ * java CompactScoreBenchmark [MEGABYTES]</pre>
+ */
+public class CompactScoreBenchmark {
+
+    private static long parseEveryKey(Path score) {
+        long start = System.nanoTime();
+        for (int n = -5; n <= 6; n++) {
+            ChannelInput in = new ChannelInput(score.toString());
+            new IterativeParser(new TableScanner(in), new NullSink(), new TranspositionContext(n)).printScore();
+            in.close();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long renderEveryKey(Path score) {
+        long start = System.nanoTime();
+        ChannelInput in = new ChannelInput(score.toString());
+        CompactScore compact = CompactScore.parse(in);
+        in.close();
+        for (int n = -5; n <= 6; n++) {
+            compact.render(n, new NullSink());
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long fanOutEveryKey(Path score) {
+        long start = System.nanoTime();
+        int[] nums = new int[12];
+        Sink[] outs = new Sink[12];
+        for (int i = 0; i < 12; i++) {
+            nums[i] = i - 5;
+            outs[i] = new NullSink();
+        }
+        ChannelInput in = new ChannelInput(score.toString());
+        FanOut.transpose(in, nums, outs);
+        in.close();
+        return System.nanoTime() - start;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int mb = args.length == 0 ? 16 : Integer.parseInt(args[0]);
+        Path score = ScannerBenchmark.scaledBach(mb);
+        long parse = Long.MAX_VALUE;
+        long render = Long.MAX_VALUE;
+        long fanOut = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            parse = Math.min(parse, parseEveryKey(score));
+            render = Math.min(render, renderEveryKey(score));
+            fanOut = Math.min(fanOut, fanOutEveryKey(score));
+        }
+        System.out.println(mb + " MB in 12 keys, best of 5");
+        System.out.printf("%-28s %8.0f ms%n", "Parse 12 times", parse / 1e6);
+        System.out.printf("%-28s %8.0f ms%n", "Parse once, render 12 times", render / 1e6);
+        System.out.printf("%-28s %8.0f ms%n", "Parse once, fan out to 12", fanOut / 1e6);
+        Files.delete(score);
+    }
+}
@@ -0,0 +1,83 @@
+import org.junit.Assert;
+import org.junit.Test;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+public class CompactScoreTest {
+
+    private static final String[] SCORES = {"/bach.gmn", "/full_simple_notes.gmn", "/one_voice_only_notes.gmn",
+            "/correctly_transposed_mozart_-4steps.gmn", "/transpose_these_notes.gmn", "/16th_note.gmn",
+            "/empty_voices.gmn", "/tripleFlat.gmn"};
+
+    private Input input(String resource) {
+        return new Input(getClass().getResourceAsStream(resource));
+    }
+
+    @Test
+    public void render_SameAsParserForEveryStep() {
+        for (String resource : SCORES) {
+            CompactScore score = CompactScore.parse(input(resource));
+            for (int n = -11; n <= 12; n++) {
+                CaptureSink expected = new CaptureSink();
+                boolean proper = new Parser(input(resource), expected, new TranspositionContext(n)).score();
+                Assert.assertEquals(resource, proper, score != null);
+                if (proper) {
+                    CaptureSink actual = new CaptureSink();
+                    score.render(n, actual);
+                    Assert.assertEquals(resource + " by " + n, expected.toString(), actual.toString());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void parse_KeepsDurationsAndOctaves() {
+        String text = "{[ \\clef<\"g\"> c#2*3/8.. e _/4 {d-1, f} ]}";
+        CompactScore score = CompactScore.parse(new Input(new ByteArrayInputStream(
+                text.getBytes(StandardCharsets.UTF_8))));
+        Assert.assertEquals(5, score.durations());
+        StringBuilder events = new StringBuilder();
+        score.replay(new ScoreListener() {
+            public void scoreStart() { events.append('{'); }
+            public void scoreEnd() { events.append('}'); }
+            public void voiceStart() { events.append('['); }
+            public void voiceEnd() { events.append(']'); }
+            public void chordStart() { events.append('('); }
+            public void chordEnd() { events.append(')'); }
+            public void note(int pitch, int octave, boolean octaveGiven, int mul, int div, int dots) {
+                events.append(' ').append(PitchTable.name(pitch)).append(octave).append(octaveGiven ? "!" : "")
+                        .append(' ').append(mul).append(' ').append(div).append(' ').append(dots);
+            }
+            public void rest(int mul, int div, int dots) {
+                events.append(" _ ").append(mul).append(' ').append(div).append(' ').append(dots);
+            }
+            public void tag(CharSequence name, CharSequence param) {
+                events.append(' ').append(name).append('=').append(param);
+            }
+        });
+        Assert.assertEquals("{[ clef=g c#2! 3 8 2 e2 -1 -1 0 _ -1 4 0( d-1! -1 -1 0 f-1 -1 -1 0)]}",
+                events.toString());
+    }
+
+    @Test
+    public void parse_ImproperSyntaxIsNull() {
+        Assert.assertNull(CompactScore.parse(new Input(new ByteArrayInputStream(
+                "{[ c d ".getBytes(StandardCharsets.UTF_8)))));
+    }
+
+    @Test
+    public void render_KeepsTheSignOfARestWithoutNumber() {
+        for (String text : new String[] {"{[ c _/ d ]}", "{[ _*2/ e ]}", "{[ _* f _/. g ]}"}) {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            CompactScore score = CompactScore.parse(new Input(new ByteArrayInputStream(bytes)));
+            for (int n = -2; n <= 2; n++) {
+                CaptureSink expected = new CaptureSink();
+                Assert.assertTrue(text, new IterativeParser(new Input(new ByteArrayInputStream(bytes)), expected,
+                        new TranspositionContext(n)).score());
+                CaptureSink actual = new CaptureSink();
+                score.render(n, actual);
+                Assert.assertEquals(text + " by " + n, expected.toString(), actual.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Compares the latency of transposing bach.gmn through a TranspositionDaemon, over one connection and over a new
+ * connection per request, with starting a JVM per file as scripts used to. Run with the test classpath:
+ * <pre>
+ * java DaemonBenchmark [REQUESTS] [LAUNCHES]</pre>
+ */
+public class DaemonBenchmark {
+
+    private static void report(String name, long[] nanos) {
+        Arrays.sort(nanos);
+        System.out.printf("%-28s p50 %8.3f ms, p99 %8.3f ms%n", name, nanos[nanos.length / 2] / 1e6,
+                nanos[(int) (nanos.length * 0.99)] / 1e6);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int launches = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        byte[] score;
+        try (InputStream in = DaemonBenchmark.class.getResourceAsStream("/bach.gmn")) {
+            score = in.readAllBytes();
+        }
+        Path dir = Files.createTempDirectory("daemon-benchmark");
+        Path socket = dir.resolve("transpose.sock");
+        Path file = dir.resolve("bach.gmn");
+        Files.write(file, score);
+        System.out.printf("%d requests of %d bytes, %d cores%n", requests, score.length,
+                Runtime.getRuntime().availableProcessors());
+        TranspositionDaemon daemon = new TranspositionDaemon(socket);
+        try {
+            long[] nanos = new long[requests];
+            try (DaemonClient client = new DaemonClient(socket)) {
+                for (int pass = 0; pass < 2; pass++) { //The first pass warms up
+                    for (int i = 0; i < requests; i++) {
+                        long start = System.nanoTime();
+                        client.transpose(2, score);
+                        nanos[i] = System.nanoTime() - start;
+                    }
+                }
+            }
+            report("DATA, one connection", nanos);
+            try (DaemonClient client = new DaemonClient(socket)) {
+                for (int i = 0; i < requests; i++) {
+                    long start = System.nanoTime();
+                    client.transposeFile(2, file.toString());
+                    nanos[i] = System.nanoTime() - start;
+                }
+            }
+            report("PATH, one connection", nanos);
+            for (int i = 0; i < requests; i++) {
+                long start = System.nanoTime();
+                try (DaemonClient client = new DaemonClient(socket)) {
+                    client.transpose(2, score);
+                }
+                nanos[i] = System.nanoTime() - start;
+            }
+            report("DATA, connection per request", nanos);
+        } finally {
+            daemon.close();
+        }
+        long[] nanos = new long[launches];
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        for (int i = 0; i < launches; i++) {
+            long start = System.nanoTime();
+            new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), "Transpose", "2", file.toString(),
+                    dir.resolve("out.gmn").toString()).inheritIO().start().waitFor();
+            nanos[i] = System.nanoTime() - start;
+        }
+        report("JVM per file", nanos);
+        for (File f : dir.toFile().listFiles()) {
+            f.delete();
+        }
+        Files.delete(dir);
+    }
+}
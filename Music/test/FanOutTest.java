@@ -0,0 +1,82 @@
+import org.junit.Assert;
+import org.junit.Test;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class FanOutTest {
+
+    private static final String[] SCORES = {"/bach.gmn", "/full_simple_notes.gmn", "/one_voice_only_notes.gmn",
+            "/correctly_transposed_mozart_-4steps.gmn", "/transpose_these_notes.gmn"};
+    private static final int[] NUMS = {-2, 3, 5, -11, 12};
+
+    private String parse(String resource, int numHalfSteps) {
+        CaptureSink out = new CaptureSink();
+        new Parser(new Input(getClass().getResourceAsStream(resource)), out, new TranspositionContext(numHalfSteps))
+                .printScore();
+        return out.toString();
+    }
+
+    @Test
+    public void transpose_EachOutputSameAsParser() {
+        for (String resource : SCORES) {
+            CaptureSink[] outs = new CaptureSink[NUMS.length];
+            for (int i = 0; i < outs.length; i++) {
+                outs[i] = new CaptureSink();
+            }
+            Assert.assertTrue(FanOut.transpose(new Input(getClass().getResourceAsStream(resource)), NUMS, outs));
+            for (int i = 0; i < outs.length; i++) {
+                Assert.assertEquals(resource + " by " + NUMS[i], parse(resource, NUMS[i]), outs[i].toString());
+            }
+        }
+    }
+
+    @Test
+    public void transpose_IntoFiles() throws IOException {
+        String bach = new File(getClass().getResource("/bach.gmn").getPath()).getPath();
+        String[] files = new String[3];
+        try {
+            for (int i = 0; i < files.length; i++) {
+                files[i] = File.createTempFile("fan-out", ".gmn").getPath();
+            }
+            Transpose.transpose(bach, new int[] {-2, 3, 5}, files);
+            Assert.assertEquals(parse("/bach.gmn", -2), read(files[0]));
+            Assert.assertEquals(parse("/bach.gmn", 3), read(files[1]));
+            Assert.assertEquals(parse("/bach.gmn", 5), read(files[2]));
+        } finally {
+            for (String file : files) {
+                if (file != null) {
+                    new File(file).delete();
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void transpose_OneOutputPerInterval() {
+        FanOut.transpose(new Input(getClass().getResourceAsStream("/bach.gmn")), new int[] {1, 2},
+                new Sink[] {new NullSink()});
+    }
+
+    private static String read(String file) throws IOException {
+        return new String(Files.readAllBytes(new File(file).toPath()), StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    public void transpose_RestWithoutNumberSameAsParser() {
+        byte[] score = "{[ c _/ d _*2/ e _* f ]}".getBytes(StandardCharsets.ISO_8859_1);
+        CaptureSink[] outs = new CaptureSink[NUMS.length];
+        for (int i = 0; i < outs.length; i++) {
+            outs[i] = new CaptureSink();
+        }
+        Assert.assertTrue(FanOut.transpose(new Input(new ByteArrayInputStream(score)), NUMS, outs));
+        for (int i = 0; i < outs.length; i++) {
+            CaptureSink expected = new CaptureSink();
+            new Parser(new Input(new ByteArrayInputStream(score)), expected, new TranspositionContext(NUMS[i]))
+                    .printScore();
+            Assert.assertEquals("by " + NUMS[i], expected.toString(), outs[i].toString());
+        }
+    }
+}
@@ -24,4 +24,13 @@ public class InputTest {
         Assertions.assertEquals(-1, in.getChar());
     }
 
+    @Test
+    public void missingFile_ThrowsWithFilename() {
+        GuidoException e = Assertions.assertThrows(GuidoException.class, () -> new Input("no/such/file.gmn"));
+        Assertions.assertEquals("no/such/file.gmn: No such file", e.getMessage());
+        Assertions.assertEquals(-1, e.getOffset());
+        e = Assertions.assertThrows(GuidoException.class, () -> new ChannelInput("no/such/file.gmn"));
+        Assertions.assertEquals("no/such/file.gmn", e.getFilename());
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,64 @@
+import org.junit.Assert;
+import org.junit.Test;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+public class IterativeParserTest {
+
+    private static final String[] SCORES = {"/bach.gmn", "/full_simple_notes.gmn", "/one_voice_only_notes.gmn",
+            "/16th_note.gmn", "/tripleFlat.gmn", "/empty_voices.gmn", "/transpose_these_notes.gmn"};
+
+    private static void resetNote(int numHalfSteps) {
+        Note.setNumHalfSteps(0);
+        Note.setKey("C");
+        Note.setStaticOctave(0);
+        Note.setNumHalfSteps(numHalfSteps);
+    }
+
+    private void assertSameAsParser(Input expected, Input actual, int numHalfSteps) {
+        resetNote(numHalfSteps);
+        Parser p = new Parser(expected, new CaptureSink());
+        boolean b = p.score();
+        resetNote(numHalfSteps);
+        Parser it = new IterativeParser(actual, new CaptureSink());
+        Assert.assertEquals(b, it.score());
+        Assert.assertEquals(p.getFile(), it.getFile());
+    }
+
+    @Test
+    public void sameOutputAsParser() {
+        for (String score : SCORES) {
+            for (int n = -11; n <= 11; n++) {
+                assertSameAsParser(new Input(getClass().getResourceAsStream(score)),
+                        new Input(getClass().getResourceAsStream(score)), n);
+            }
+        }
+    }
+
+    @Test
+    public void sameOutputAsParser_InvalidScores() {
+        String[] invalid = {"{[c d e", "{[c, d]}", "{[{c, }]}", "{[\\bar c]}", "{[c/]}", "{[c]", "{[c] [d]}"};
+        for (String score : invalid) {
+            byte[] bytes = score.getBytes(StandardCharsets.UTF_8);
+            assertSameAsParser(new Input(new ByteArrayInputStream(bytes)),
+                    new Input(new ByteArrayInputStream(bytes)), 2);
+        }
+    }
+
+    @Test
+    public void longVoice_SmallStack() throws InterruptedException {
+        StringBuilder score = new StringBuilder("{[");
+        for (int i = 0; i < 200000; i++) {
+            score.append(i % 2 == 0 ? "c1/4 " : "{e, g} ");
+        }
+        score.append("]}");
+        byte[] bytes = score.toString().getBytes(StandardCharsets.UTF_8);
+        boolean[] result = new boolean[1];
+        resetNote(0);
+        Parser parser = new IterativeParser(new Input(new ByteArrayInputStream(bytes)), new NullSink());
+        Thread t = new Thread(null, () -> result[0] = parser.score(), "parser", 1 << 17);
+        t.start();
+        t.join();
+        Assert.assertTrue(result[0]);
+    }
+}
@@ -0,0 +1,109 @@
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NoteTest {
+
+    private static final String[] KEYS = {"A", "B&", "B", "C", "D&", "D", "E&", "E", "F", "G&", "G", "A&"};
+    private static final String[] ACCIDENTALS = {"", "#", "&", "##", "&&", "###", "&&&", "&#", "&&#"};
+
+    /**
+     * The string-matching transposition Note used before the PitchTable, kept as the reference
+     * @return the transposed name followed by the octave
+     */
+    private static String legacyTranspose(String noteName, int octave, int numHalfSteps, String key) {
+        int index = 0;
+        String[] doubleSharps = {"a##", "c##", "d##", "f##", "g##"};
+        String[] doubleFlats = {"a&&", "b&&", "d&&", "e&&", "g&&"};
+        for (int i = 0; i < 5; i++) {
+            if (noteName.equals(doubleSharps[i])) {
+                char s = (char) (noteName.charAt(0) + 1);
+                noteName = (s == 'h' ? 'a' : s) + "";
+            }
+            if (noteName.equals(doubleFlats[i])) {
+                char s = (char) (noteName.charAt(0) - 1);
+                noteName = (s == 96 ? 'g' : s) + "";
+            }
+        }
+        String[][] odd = {{"e#", "f", "5"}, {"b#", "c", "0"}, {"c&", "b", "11"}, {"f&", "e", "4"},
+                {"e##", "f#", "6"}, {"b##", "c#", "1"}, {"c&&", "b&", "10"}, {"f&&", "e&", "3"}};
+        for (String[] o : odd) {
+            if (noteName.equals(o[0])) {
+                noteName = o[1];
+                index = Integer.parseInt(o[2]);
+            }
+        }
+        String[] sharpChromatics = {"c", "c#", "d", "d#", "e", "f", "f#", "g", "g#", "a", "a#", "b"};
+        String[] flatChromatics = {"c", "d&", "d", "e&", "e", "f", "g&", "g", "a&", "a", "b&", "b"};
+        for (int i = 0; i < 12; i++) {
+            if (noteName.equals(sharpChromatics[i]) || noteName.equals(flatChromatics[i])) {
+                index = i;
+            }
+        }
+        index += numHalfSteps;
+        if (index > 11) {
+            index -= 12;
+            octave += 1;
+        }
+        if (index < 0) {
+            index += 12;
+            octave -= 1;
+        }
+        boolean flats = key.equals("B&") || key.equals("D&") || key.equals("E&") || key.equals("F")
+                || key.equals("G&") || key.equals("A&");
+        return (flats ? flatChromatics[index] : sharpChromatics[index]) + octave;
+    }
+
+    private static void setState(int numHalfSteps, String key, int octave) {
+        Note.setNumHalfSteps(0);
+        Note.setKey(key);
+        Note.setStaticOctave(octave);
+        Note.setNumHalfSteps(numHalfSteps);
+    }
+
+    @After
+    public void resetState() {
+        setState(0, "C", 0);
+    }
+
+    @Test
+    public void transpose_MatchesLegacyForEverySpellingStepAndKey() {
+        for (char letter = 'A'; letter <= 'z'; letter++) {
+            for (String acc : ACCIDENTALS) {
+                for (int n = -11; n <= 11; n++) {
+                    for (String key : KEYS) {
+                        setState(n, key, 2);
+                        Note note = new Note(letter + acc);
+                        note.transpose();
+                        Assert.assertEquals(letter + acc + " by " + n + " in " + key,
+                                legacyTranspose(letter + acc, 2, n, key), note.getNote() + note.getOctave());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void transpose_MoreThanAnOctave() {
+        setState(14, "C", 1);
+        Note note = new Note("b");
+        note.transpose();
+        Assert.assertEquals("c#", note.getNote());
+        Assert.assertEquals(3, note.getOctave());
+
+        setState(-13, "C", 1);
+        note = new Note("c");
+        note.transpose();
+        Assert.assertEquals("b", note.getNote());
+        Assert.assertEquals(-1, note.getOctave());
+    }
+
+    @Test
+    public void setKey_TransposesKey() {
+        setState(2, "C", 0);
+        Note.setKey("F#");
+        Assert.assertEquals("A&", Note.getKey());
+        Note.setKey("unknown");
+        Assert.assertEquals("B", Note.getKey());
+    }
+}
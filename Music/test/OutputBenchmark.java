@@ -0,0 +1,103 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Compares Output (PrintStream) with ChannelOutput, both on their own and at the end of a full transposition of
+ * bach.gmn scaled up to a given size, and the SpliceParser with the IterativeParser. Run with the test classpath:
+ * <pre>
+ * java OutputBenchmark [MEGABYTES]</pre>
+ */
+public class OutputBenchmark {
+
+    /**
+     * Print the calls a Parser makes for "c2/16. {e,g} " until about the given number of bytes are printed
+     */
+    private static void printNotes(Sink out, long bytes) {
+        for (long n = 0; n < bytes; n += 17) {
+            out.print("c");
+            out.print(2);
+            out.print('/');
+            out.print(16);
+            out.print('.');
+            out.print(" ");
+            out.print('{');
+            out.print("e");
+            out.print(2);
+            out.print(',');
+            out.print("g");
+            out.print(2);
+            out.print('}');
+            out.print(" ");
+        }
+        out.flush();
+    }
+
+    private static void report(String name, long bytes, long nanos) {
+        System.out.printf("%-36s %8.1f MB/s%n", name, bytes / 1048576.0 / (nanos / 1e9));
+    }
+
+    private static long timeSink(boolean channel, File file, long bytes) throws IOException {
+        long start = System.nanoTime();
+        if (channel) {
+            try (ChannelOutput out = new ChannelOutput(file.getPath())) {
+                printNotes(out, bytes);
+            }
+        } else {
+            try (Output out = new Output(file.getPath())) {
+                printNotes(out, bytes);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long timeTranspose(int sink, Path score, File file) {
+        long start = System.nanoTime();
+        ChannelInput in = new ChannelInput(score.toString());
+        if (sink == 0) {
+            new IterativeParser(in, new NullSink(), new TranspositionContext(2)).printScore();
+        } else if (sink == 1) {
+            try (Output out = new Output(file.getPath())) {
+                new IterativeParser(in, out, new TranspositionContext(2)).printScore();
+            }
+        } else if (sink == 2) {
+            try (ChannelOutput out = new ChannelOutput(file.getPath())) {
+                new IterativeParser(in, out, new TranspositionContext(2)).printScore();
+            }
+        } else {
+            try (ChannelOutput out = new ChannelOutput(file.getPath())) {
+                new SpliceParser(in, out, new TranspositionContext(2)).printScore();
+            }
+        }
+        in.close();
+        return System.nanoTime() - start;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int mb = args.length == 0 ? 64 : Integer.parseInt(args[0]);
+        long bytes = (long) mb << 20;
+        File file = File.createTempFile("output-benchmark", ".gmn");
+        file.deleteOnExit();
+        Path score = ScannerBenchmark.scaledBach(mb);
+
+        long[] best = {Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE};
+        for (int i = 0; i < 5; i++) {
+            best[0] = Math.min(best[0], timeSink(false, file, bytes));
+            best[1] = Math.min(best[1], timeSink(true, file, bytes));
+            best[2] = Math.min(best[2], timeTranspose(0, score, file));
+            best[3] = Math.min(best[3], timeTranspose(1, score, file));
+            best[4] = Math.min(best[4], timeTranspose(2, score, file));
+            best[5] = Math.min(best[5], timeTranspose(3, score, file));
+        }
+        System.out.println(mb + " MB, best of 5");
+        report("Sink only: Output", bytes, best[0]);
+        report("Sink only: ChannelOutput", bytes, best[1]);
+        long size = Files.size(score);
+        report("Transpose into NullSink", size, best[2]);
+        report("Transpose into Output", size, best[3]);
+        report("Transpose into ChannelOutput", size, best[4]);
+        report("Splice into ChannelOutput", size, best[5]);
+        Files.delete(score);
+    }
+}
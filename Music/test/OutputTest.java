@@ -1,5 +1,10 @@
 import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -16,4 +21,42 @@ public class OutputTest {
             System.err.println("Should never occur");
         }
     }
-}
\ No newline at end of file
+
+    @org.junit.Test
+    public void close_LeavesTheCallersStreamOpen() {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        PrintStream ps = new PrintStream(os);
+        try (Output out = new Output(ps)) {
+            out.print('a');
+        }
+        ps.print('b');
+        Assertions.assertFalse(ps.checkError());
+        Assertions.assertEquals("ab", os.toString());
+    }
+
+    @org.junit.Test
+    public void close_ClosesTheFileItOpened() throws IOException {
+        Path file = Files.createTempFile("output", ".gmn");
+        try {
+            try (Output out = new Output(file.toString())) {
+                out.print("{[c]}");
+            }
+            Assertions.assertEquals("{[c]}", Files.readString(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @org.junit.Test
+    public void constructor_NamesAFileThatCannotBeCreated() throws IOException {
+        Path dir = Files.createTempDirectory("output");
+        try {
+            String filename = dir.resolve("missing").resolve("out.gmn").toString();
+            GuidoException e = Assertions.assertThrows(GuidoException.class, () -> new Output(filename));
+            Assertions.assertEquals(filename + ": Cannot write", e.getMessage());
+            Assertions.assertTrue(e.getCause() instanceof FileNotFoundException);
+        } finally {
+            Files.delete(dir);
+        }
+    }
+}
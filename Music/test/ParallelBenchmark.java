@@ -0,0 +1,70 @@
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures how ParallelTranspose scales with the number of worker threads on a wide score: bach.gmn's first voice
+ * repeated to fill the given number of voices of about 256 KB each, and on a tall score of the same size made of
+ * one voice only, which is split into chunks. Both are printed into a CaptureSink. Run with the test classpath:
+ * <pre>
+ * java ParallelBenchmark [VOICES]</pre>
+ */
+public class ParallelBenchmark {
+
+    private static ByteBuffer score(int voices, int voiceBytes) throws Exception {
+        String bach;
+        try (InputStream in = ParallelBenchmark.class.getResourceAsStream("/bach.gmn")) {
+            bach = new String(in.readAllBytes(), StandardCharsets.US_ASCII);
+        }
+        String body = bach.substring(bach.indexOf('[') + 1, bach.indexOf(']'));
+        StringBuilder voice = new StringBuilder("[");
+        while (voice.length() < voiceBytes) {
+            voice.append(body);
+        }
+        voice.append(']');
+        StringBuilder score = new StringBuilder("{");
+        for (int v = 0; v < voices; v++) {
+            score.append(v == 0 ? "" : ",").append(voice);
+        }
+        score.append('}');
+        return ByteBuffer.wrap(score.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static long time(ByteBuffer score, ForkJoinPool pool) {
+        long start = System.nanoTime();
+        if (pool == null) {
+            new IterativeParser(new TableScanner(new BufferInput(score, "(score)")), new CaptureSink(),
+                    new TranspositionContext(2)).printScore();
+        } else {
+            ParallelTranspose.transpose(score, "(score)", 2, new CaptureSink(), pool);
+        }
+        return System.nanoTime() - start;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int voices = args.length == 0 ? 32 : Integer.parseInt(args[0]);
+        System.out.printf("%d cores, best of 5%n", Runtime.getRuntime().availableProcessors());
+        run(voices + " voices", score(voices, 1 << 18));
+        run("1 voice", score(1, voices << 18));
+    }
+
+    private static void run(String name, ByteBuffer score) {
+        double mb = score.remaining() / 1048576.0;
+        System.out.printf("%s, %.0f MB%n", name, mb);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            best = Math.min(best, time(score, null));
+        }
+        System.out.printf("%-20s %8.1f MB/s%n", "Sequential", mb / (best / 1e9));
+        for (int threads = 1; threads <= 16; threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            best = Long.MAX_VALUE;
+            for (int i = 0; i < 5; i++) {
+                best = Math.min(best, time(score, pool));
+            }
+            pool.shutdown();
+            System.out.printf("%-20s %8.1f MB/s%n", threads + " threads", mb / (best / 1e9));
+        }
+    }
+}
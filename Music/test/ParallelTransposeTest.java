@@ -0,0 +1,142 @@
+import org.junit.Assert;
+import org.junit.Test;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+
+public class ParallelTransposeTest {
+
+    private static final String[] SCORES = {"/bach.gmn", "/full_simple_notes.gmn", "/one_voice_only_notes.gmn",
+            "/correctly_transposed_mozart_-4steps.gmn", "/transpose_these_notes.gmn", "/16th_note.gmn",
+            "/empty_voices.gmn", "/tripleFlat.gmn", "/fill_with_transposed_mozart_-4steps.gmn"};
+
+    private static String sequential(byte[] score, int numHalfSteps) {
+        CaptureSink out = new CaptureSink();
+        new IterativeParser(new Input(new ByteArrayInputStream(score)), out, new TranspositionContext(numHalfSteps))
+                .printScore();
+        return out.toString();
+    }
+
+    private static String parallel(byte[] score, int numHalfSteps, ForkJoinPool pool) {
+        CaptureSink out = new CaptureSink();
+        ParallelTranspose.transpose(ByteBuffer.wrap(score), "(test)", numHalfSteps, out, pool);
+        return out.toString();
+    }
+
+    private static String chunked(byte[] score, int numHalfSteps, ForkJoinPool pool, int chunkSize) {
+        CaptureSink out = new CaptureSink();
+        ParallelTranspose.transpose(ByteBuffer.wrap(score), "(test)", numHalfSteps, out, pool, chunkSize);
+        return out.toString();
+    }
+
+    @Test
+    public void transpose_SameAsSequentialForEveryStep() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (String name : SCORES) {
+                byte[] score = ScoreFixtures.resource(name);
+                for (int n = -11; n <= 12; n++) {
+                    Assert.assertEquals(name + " by " + n, sequential(score, n), parallel(score, n, pool));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void transpose_WideScoreCarriesOctaveAndKeyAcrossVoices() throws IOException {
+        StringBuilder text = new StringBuilder("{\n");
+        String mozart = new String(ScoreFixtures.resource("/full_simple_notes.gmn"), StandardCharsets.ISO_8859_1);
+        String voice = mozart.substring(mozart.indexOf('['), mozart.indexOf(']') + 1);
+        for (int v = 0; v < 60; v++) {
+            if (v > 0) {
+                text.append(",\n");
+            }
+            switch (v % 4) {
+                case 0:
+                    text.append(voice);
+                    break;
+                case 1:
+                    text.append("[ c d {e, g} f-1 \\key<\"E&\"> b/8 ]"); //Inherits the octave of the last voice
+                    break;
+                case 2:
+                    text.append("[ \\text<\"a ] b\"> e&  _/4 g*3/2.. ]"); //A ] in a String does not end the voice
+                    break;
+                default:
+                    text.append("[ ]");
+                    break;
+            }
+        }
+        text.append("\n}\n");
+        byte[] score = text.toString().getBytes(StandardCharsets.ISO_8859_1);
+        ForkJoinPool pool = new ForkJoinPool(8);
+        try {
+            for (int n = -11; n <= 12; n++) {
+                Assert.assertEquals("by " + n, sequential(score, n), parallel(score, n, pool));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void transpose_HugeVoiceSplitIntoChunks() throws IOException {
+        StringBuilder text = new StringBuilder("{[\n");
+        String bach = new String(ScoreFixtures.resource("/bach.gmn"), StandardCharsets.ISO_8859_1);
+        String symbols = bach.substring(bach.indexOf('[') + 1, bach.indexOf(']'));
+        for (int i = 0; i < 40; i++) {
+            text.append(symbols);
+            text.append(i % 3 == 0 ? " c d {e, g2} f-1 \\key<\"E&\"> b/8 " : " e&*3/2.. _/4 {c, e} ");
+        }
+        text.append("],[ a b ]}\n");
+        byte[] score = text.toString().getBytes(StandardCharsets.ISO_8859_1);
+        Assert.assertTrue(ParallelTranspose.parts(ByteBuffer.wrap(score), 1024).length / 3 > 10);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int chunkSize : new int[] {1, 64, 1024}) {
+                for (int n = -11; n <= 12; n++) {
+                    Assert.assertEquals(chunkSize + " by " + n, sequential(score, n), chunked(score, n, pool, chunkSize));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void transpose_ImproperSyntaxFallsBackToSequential() {
+        String[] scores = {"{[c d ] [e]}", "{[c d ], }", "{[c \\bar ]}", "{[c d"};
+        for (String text : scores) {
+            byte[] score = text.getBytes(StandardCharsets.ISO_8859_1);
+            Assert.assertEquals(text, sequential(score, 2), parallel(score, 2, ForkJoinPool.commonPool()));
+        }
+    }
+
+    @Test
+    public void transpose_ScanningErrorReportedForWholeScore() {
+        byte[] score = "{[c d], [e \\text<\"f g]}".getBytes(StandardCharsets.ISO_8859_1);
+        try {
+            ParallelTranspose.transpose(ByteBuffer.wrap(score), "(test)", 2, new CaptureSink(), ForkJoinPool.commonPool());
+            Assert.fail();
+        } catch (GuidoException e) {
+            Assert.assertEquals("(test):17: Missing closing quote in String", e.getMessage());
+        }
+    }
+
+    @Test
+    public void parts_FindsBrackets() {
+        String text = "{ [c \\bar<\"]\">] ,[], \n [\\t ] }";
+        ByteBuffer score = ByteBuffer.wrap(text.getBytes(StandardCharsets.ISO_8859_1));
+        Assert.assertArrayEquals(new int[] {3, 14, 3, 18, 18, 3, 24, 27, 3}, ParallelTranspose.parts(score, 1 << 20));
+        Assert.assertNull(ParallelTranspose.parts(ByteBuffer.wrap("[c]".getBytes(StandardCharsets.ISO_8859_1)), 4));
+    }
+
+    @Test
+    public void parts_SplitsBeforeSymbolsOutsideChords() {
+        ByteBuffer score = ByteBuffer.wrap("{[c d {e,g} f]}".getBytes(StandardCharsets.ISO_8859_1));
+        Assert.assertArrayEquals(new int[] {2, 6, 1, 6, 12, 0, 12, 13, 2}, ParallelTranspose.parts(score, 4));
+    }
+}
@@ -1,6 +1,7 @@
 import org.junit.Assert;
 import org.junit.Test;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.nio.charset.StandardCharsets;
 
 public class ParserTest {
@@ -60,4 +61,21 @@ public class ParserTest {
         Token b = parse.peak();
         Assert.assertEquals(Id.OPEN_ANGLE, b.getId());
     }
+
+    @Test
+    public void captureSink_MatchesOutput() {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        Parser printed = new Parser(new Input(getClass().getResourceAsStream("/bach.gmn")), new Output(os));
+        printed.score();
+        Parser captured = new Parser(new Input(getClass().getResourceAsStream("/bach.gmn")), new CaptureSink());
+        captured.score();
+        Assert.assertEquals(os.toString(), captured.getFile());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void getFile_RequiresCaptureSink() {
+        Parser parser = new Parser(new Input(getClass().getResourceAsStream("/16th_note.gmn")), new NullSink());
+        parser.score();
+        parser.getFile();
+    }
 }
@@ -0,0 +1,125 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Compares PipelineTranspose with the serial path, an IterativeParser reading a ChannelInput and printing into a
+ * ChannelOutput, end to end from file to file: the latency of a small score (median of many), and the throughput
+ * of large ones. The large ones are also read through a channel that waits in proportion to what it reads, as a
+ * cold disk or a network share would, which is where overlapping the stages pays. Run with the test classpath:
+ * <pre>
+ * java PipelineBenchmark [MEGABYTES [MICROS-PER-CHUNK]]</pre>
+ */
+public class PipelineBenchmark {
+
+    private static Path score(int bytes) throws Exception {
+        String bach;
+        try (InputStream in = PipelineBenchmark.class.getResourceAsStream("/bach.gmn")) {
+            bach = new String(in.readAllBytes(), StandardCharsets.US_ASCII);
+        }
+        if (bytes <= bach.length()) {
+            Path file = Files.createTempFile("pipeline", ".gmn");
+            Files.write(file, bach.getBytes(StandardCharsets.US_ASCII));
+            return file;
+        }
+        String body = bach.substring(bach.indexOf('[') + 1, bach.indexOf(']'));
+        StringBuilder s = new StringBuilder("{[");
+        while (s.length() < bytes) {
+            s.append(body);
+        }
+        Path file = Files.createTempFile("pipeline", ".gmn");
+        Files.write(file, s.append("]}").toString().getBytes(StandardCharsets.US_ASCII));
+        return file;
+    }
+
+    /**
+     * A file that takes a while to read: every read waits in proportion to the bytes it returns
+     */
+    private static ReadableByteChannel slow(FileChannel file, long microsPerChunk) {
+        return new ReadableByteChannel() {
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                int n = file.read(dst);
+                if (n > 0) {
+                    LockSupport.parkNanos(microsPerChunk * 1000 * n / ChannelInput.DEFAULT_BUFFER_SIZE);
+                }
+                return n;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return file.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException {
+                file.close();
+            }
+        };
+    }
+
+    private static long time(Path in, Path out, boolean pipeline, long micros) throws Exception {
+        long start = System.nanoTime();
+        try (FileChannel src = FileChannel.open(in);
+             FileChannel dst = FileChannel.open(out, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ReadableByteChannel channel = micros > 0 ? slow(src, micros) : src;
+            if (pipeline) {
+                PipelineTranspose.transpose(channel, in.toString(), dst, 2);
+            } else {
+                Input input = micros > 0 ? new Input(Channels.newInputStream(channel), in.toString())
+                        : new ChannelInput(in.toString(), ChannelInput.DEFAULT_BUFFER_SIZE, false);
+                ChannelOutput sink = new ChannelOutput((WritableByteChannel) dst, ChannelOutput.DEFAULT_BUFFER_SIZE);
+                new IterativeParser(new TableScanner(input), sink, new TranspositionContext(2)).printScore();
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        long micros = args.length > 1 ? Long.parseLong(args[1]) : 2000;
+        Path out = Files.createTempFile("pipeline", ".out");
+        System.out.printf("%d cores%n", Runtime.getRuntime().availableProcessors());
+
+        Path small = score(0);
+        System.out.printf("Latency, %d bytes, median of 1000%n", Files.size(small));
+        for (boolean pipeline : new boolean[] {false, true}) {
+            long[] times = new long[1000];
+            for (int i = 0; i < 200; i++) {
+                time(small, out, pipeline, 0);
+            }
+            for (int i = 0; i < times.length; i++) {
+                times[i] = time(small, out, pipeline, 0);
+            }
+            Arrays.sort(times);
+            System.out.printf("%-20s %8.1f us (p99 %.1f us)%n", pipeline ? "Pipeline" : "Serial", times[500] / 1e3,
+                    times[990] / 1e3);
+        }
+
+        Path large = score(megabytes << 20);
+        double mb = Files.size(large) / 1048576.0;
+        for (long wait : new long[] {0, micros}) {
+            System.out.printf("Throughput, %.0f MB, %d us per 64 KB read, best of 3%n", mb, wait);
+            for (boolean pipeline : new boolean[] {false, true}) {
+                long best = Long.MAX_VALUE;
+                for (int i = 0; i < 3; i++) {
+                    best = Math.min(best, time(large, out, pipeline, wait));
+                }
+                System.out.printf("%-20s %8.1f MB/s%n", pipeline ? "Pipeline" : "Serial", mb / (best / 1e9));
+            }
+        }
+        Files.delete(small);
+        Files.delete(large);
+        Files.delete(out);
+    }
+}
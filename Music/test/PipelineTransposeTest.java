@@ -0,0 +1,173 @@
+import org.junit.Assert;
+import org.junit.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+public class PipelineTransposeTest {
+
+    private static final String[] SCORES = {"/bach.gmn", "/full_simple_notes.gmn", "/one_voice_only_notes.gmn",
+            "/correctly_transposed_mozart_-4steps.gmn", "/transpose_these_notes.gmn"};
+    private static final int[] NUMS = {-2, 3, 5, -11, 12};
+
+    private static String pipeline(ReadableByteChannel in, int numHalfSteps, boolean proper) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Assert.assertEquals(proper, PipelineTranspose.transpose(in, "(score)", Channels.newChannel(out),
+                numHalfSteps));
+        return new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+
+    private static String pipeline(byte[] score, int numHalfSteps, boolean proper) {
+        return pipeline(Channels.newChannel(new ByteArrayInputStream(score)), numHalfSteps, proper);
+    }
+
+    /**
+     * A channel returning at most a few bytes per read, as a pipe may
+     */
+    private static ReadableByteChannel trickle(byte[] score, int bytesPerRead) {
+        ByteBuffer src = ByteBuffer.wrap(score);
+        return new ReadableByteChannel() {
+            @Override
+            public int read(ByteBuffer dst) {
+                if (!src.hasRemaining()) {
+                    return -1;
+                }
+                int n = Math.min(Math.min(bytesPerRead, src.remaining()), dst.remaining());
+                dst.put(src.slice().limit(n));
+                src.position(src.position() + n);
+                return n;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @Test
+    public void transpose_SameAsParser() throws IOException {
+        for (String resource : SCORES) {
+            byte[] score = ScoreFixtures.resource(resource);
+            for (int num : NUMS) {
+                Assert.assertEquals(resource + " by " + num, ScoreFixtures.parse(score, num),
+                        pipeline(score, num, true));
+            }
+        }
+    }
+
+    @Test
+    public void transpose_ManyChunksAndBatches() throws IOException {
+        String bach = new String(ScoreFixtures.resource("/bach.gmn"), StandardCharsets.ISO_8859_1);
+        String body = bach.substring(bach.indexOf('[') + 1, bach.indexOf(']'));
+        StringBuilder s = new StringBuilder("{[");
+        while (s.length() < 20 * PipelineTranspose.CHUNK_SIZE) {
+            s.append(body);
+        }
+        byte[] score = s.append("], [").append(body).append("]}").toString().getBytes(StandardCharsets.ISO_8859_1);
+        Assert.assertEquals(ScoreFixtures.parse(score, -3), pipeline(score, -3, true));
+        Assert.assertEquals(ScoreFixtures.parse(score, 7), pipeline(trickle(score, 1000), 7, true));
+    }
+
+    @Test
+    public void transpose_SmallReads() throws IOException {
+        byte[] score = ScoreFixtures.resource("/bach.gmn");
+        Assert.assertEquals(ScoreFixtures.parse(score, 2), pipeline(trickle(score, 1), 2, true));
+    }
+
+    @Test
+    public void transpose_ImproperSyntaxPrintedAsParser() {
+        byte[] score = "{[c d ) e]}".getBytes(StandardCharsets.ISO_8859_1);
+        Assert.assertEquals(ScoreFixtures.parse(score, 2), pipeline(score, 2, false));
+    }
+
+    @Test
+    public void transpose_ScannerErrorAtSameOffset() {
+        byte[] score = "{[c d \\title<\"Unfinished".getBytes(StandardCharsets.ISO_8859_1);
+        try {
+            pipeline(score, 0, false);
+            Assert.fail("No GuidoException");
+        } catch (GuidoException e) {
+            Assert.assertEquals("(score)", e.getFilename());
+            Assert.assertEquals(13, e.getOffset());
+            Assert.assertEquals("Missing closing quote in String", e.getReason());
+        }
+    }
+
+    @Test
+    public void transpose_ReadErrorIsGuidoException() {
+        ReadableByteChannel failing = new ReadableByteChannel() {
+            private boolean first = true;
+
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                if (first) {
+                    first = false;
+                    dst.put("{[c d e".getBytes(StandardCharsets.ISO_8859_1));
+                    return 7;
+                }
+                throw new IOException("Disk on fire");
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        try {
+            pipeline(failing, 0, false);
+            Assert.fail("No GuidoException");
+        } catch (GuidoException e) {
+            Assert.assertEquals(7, e.getOffset());
+            Assert.assertEquals("Read error", e.getReason());
+        }
+    }
+
+    @Test
+    public void transpose_WriteErrorStopsEveryStage() throws IOException {
+        byte[] bach = ScoreFixtures.resource("/bach.gmn");
+        StringBuilder s = new StringBuilder("{");
+        for (int i = 0; i < 2000; i++) {
+            s.append(i == 0 ? "" : ",").append("[c d e f g a b]");
+        }
+        byte[] score = s.append('}').toString().getBytes(StandardCharsets.ISO_8859_1);
+        WritableByteChannel failing = new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                throw new IOException("Disk full");
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        for (byte[] input : new byte[][] {score, bach}) {
+            try {
+                PipelineTranspose.transpose(Channels.newChannel(new ByteArrayInputStream(input)), "(score)", failing,
+                        0);
+                Assert.fail("No UncheckedIOException");
+            } catch (UncheckedIOException e) {
+                Assert.assertEquals("Disk full", e.getCause().getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+
+/**
+ * Measures the cost of consuming a score through a ScorePublisher compared with a ScoreRenderer printing into a
+ * NullSink on the parsing thread: bach.gmn's first voice repeated to about 16 MB, subscribed to with a demand of one
+ * event at a time, of 64 at a time, and unbounded. Run with the test classpath:
+ * <pre>
+ * java PublisherBenchmark [MEGABYTES]</pre>
+ */
+public class PublisherBenchmark {
+
+    private static final class Counter implements Flow.Subscriber<ScoreEvent> {
+
+        private final long batch;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private Flow.Subscription subscription;
+        private long events;
+
+        Counter(long batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(batch);
+        }
+
+        @Override
+        public void onNext(ScoreEvent event) {
+            if (++events % batch == 0) {
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            throwable.printStackTrace();
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+
+    private static long time(ByteBuffer score, long batch) throws InterruptedException {
+        long start = System.nanoTime();
+        if (batch == 0) {
+            FanOut.transpose(new BufferInput(score.duplicate(), "(score)"), new int[] {2}, new Sink[] {new NullSink()});
+        } else {
+            Counter counter = new Counter(batch);
+            new ScorePublisher(() -> new BufferInput(score.duplicate(), "(score)"), 2).subscribe(counter);
+            counter.done.await();
+        }
+        return System.nanoTime() - start;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int megabytes = args.length == 0 ? 16 : Integer.parseInt(args[0]);
+        String bach;
+        try (InputStream in = PublisherBenchmark.class.getResourceAsStream("/bach.gmn")) {
+            bach = new String(in.readAllBytes(), StandardCharsets.US_ASCII);
+        }
+        String body = bach.substring(bach.indexOf('[') + 1, bach.indexOf(']'));
+        StringBuilder s = new StringBuilder("{[");
+        while (s.length() < megabytes << 20) {
+            s.append(body);
+        }
+        ByteBuffer score = ByteBuffer.wrap(s.append("]}").toString().getBytes(StandardCharsets.US_ASCII));
+        double mb = score.remaining() / 1048576.0;
+        System.out.printf("%d cores, %.0f MB, best of 5%n", Runtime.getRuntime().availableProcessors(), mb);
+        String[] names = {"ScoreRenderer", "request(1)", "request(64)", "request(MAX)"};
+        long[] batches = {0, 1, 64, Long.MAX_VALUE};
+        for (int i = 0; i < names.length; i++) {
+            long best = Long.MAX_VALUE;
+            for (int run = 0; run < 5; run++) {
+                best = Math.min(best, time(score, batches[i]));
+            }
+            System.out.printf("%-20s %8.1f MB/s%n", names[i], mb / (best / 1e9));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Compares the tokens per second of the Scanner and the TableScanner on bach.gmn repeated until the score reaches
+ * a given size. Run with the test classpath:
+ * <pre>
+ * java ScannerBenchmark [MEGABYTES...]</pre>
+ */
+public class ScannerBenchmark {
+
+    /**
+     * Write a score made of the body of bach.gmn's first voice, repeated until the file is at least the given size
+     * @param megabytes the minimum size of the score
+     * @return the path of a temporary file holding the score
+     */
+    static Path scaledBach(int megabytes) throws IOException {
+        String bach;
+        try (InputStream in = ScannerBenchmark.class.getResourceAsStream("/bach.gmn")) {
+            bach = new String(in.readAllBytes(), StandardCharsets.US_ASCII);
+        }
+        String body = bach.substring(bach.indexOf('[') + 1, bach.indexOf(']'));
+        Path file = Files.createTempFile("bach-" + megabytes + "mb-", ".gmn");
+        file.toFile().deleteOnExit();
+        long target = (long) megabytes << 20;
+        try (Writer w = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            w.write("{[");
+            for (long written = 0; written < target; written += body.length()) {
+                w.write(body);
+            }
+            w.write("]}");
+        }
+        return file;
+    }
+
+    private static long countTokens(Scanner scan) {
+        long n = 0;
+        while (scan.getNextToken().getId() != Id.STOP) {
+            n++;
+        }
+        return n;
+    }
+
+    private static void run(String name, Path file, boolean table, boolean channel) {
+        long best = Long.MAX_VALUE;
+        long tokens = 0;
+        for (int i = 0; i < 5; i++) {
+            Input in = channel ? new ChannelInput(file.toString()) : new Input(file.toString());
+            Scanner scan = table ? new TableScanner(in) : new Scanner(in);
+            long start = System.nanoTime();
+            tokens = countTokens(scan);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-28s %,12d tokens %,14.0f tokens/s%n", name, tokens, tokens * 1e9 / best);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = args.length == 0 ? new int[] {1, 16, 64} : new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+        for (int mb : sizes) {
+            Path file = scaledBach(mb);
+            System.out.println("bach.gmn scaled to " + mb + " MB");
+            run("Scanner + Input", file, false, false);
+            run("TableScanner + Input", file, true, false);
+            run("Scanner + ChannelInput", file, false, true);
+            run("TableScanner + ChannelInput", file, true, true);
+            Files.delete(file);
+        }
+    }
+}
@@ -105,4 +105,154 @@ public class ScannerTest {
         Token test2 = scan.getNextToken();
         Assert.assertEquals((new Token(Id.REST)).getId(), test2.getId());
     }
+
+    @Test
+    public void punctuationDigitsAndLetters_AreSharedTokens() {
+        Input in = new Input(new ByteArrayInputStream("{a1,a1}".getBytes(StandardCharsets.UTF_8)));
+        Scanner scan = new Scanner(in);
+        Token open = scan.getNextToken();
+        Token a = scan.getNextToken();
+        Token one = scan.getNextToken();
+        Token comma = scan.getNextToken();
+        Assert.assertSame(Token.of(Id.OPEN_CPAREN, '{'), open);
+        Assert.assertSame(a, scan.getNextToken());
+        Assert.assertSame(one, scan.getNextToken());
+        Assert.assertSame(Token.of(Id.COMMA, ','), comma);
+    }
+
+    @Test
+    public void advance_FillsCursor() {
+        Input in = new Input(new ByteArrayInputStream("c#3 \\key<\"D\">".getBytes(StandardCharsets.UTF_8)));
+        Scanner scan = new Scanner(in);
+        TokenCursor cur = scan.cursor();
+        Assert.assertEquals(Id.CHARACTER, scan.advance());
+        Assert.assertEquals('c', cur.getChar());
+        Assert.assertEquals(Id.SHARP, scan.advance());
+        Assert.assertEquals(Id.INTEGER, scan.advance());
+        Assert.assertEquals(3, cur.getInt());
+        Assert.assertEquals(Id.BACK_SLASH, scan.advance());
+        Assert.assertEquals(Id.TAGNAME, scan.advance());
+        Assert.assertEquals("key", cur.getText().toString());
+        Assert.assertEquals(Id.OPEN_ANGLE, scan.advance());
+        Assert.assertEquals(Id.QUOTE_MARK, scan.advance());
+        Assert.assertEquals(Id.STRING, scan.advance());
+        Assert.assertEquals("D", cur.getText().toString());
+        Assert.assertEquals(Id.QUOTE_MARK, scan.advance());
+        Assert.assertEquals(Id.CLOSED_ANGLE, scan.advance());
+        Assert.assertEquals(Id.STOP, scan.advance());
+    }
+
+    @Test
+    public void tokenRing_IsLastInFirstOut() {
+        TokenRing ring = new TokenRing(2);
+        ring.push(Token.of(Id.COMMA));
+        ring.push(Token.of(Id.DOT));
+        Assert.assertEquals(Id.DOT, ring.pop().getId());
+        ring.push(Token.of(Id.SLASH));
+        Assert.assertEquals(Id.SLASH, ring.pop().getId());
+        Assert.assertEquals(Id.COMMA, ring.pop().getId());
+        Assert.assertTrue(ring.isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void tokenRing_IsBounded() {
+        TokenRing ring = new TokenRing(2);
+        ring.push(Token.of(Id.COMMA));
+        ring.push(Token.of(Id.COMMA));
+        ring.push(Token.of(Id.COMMA));
+    }
+
+    @Test
+    public void getString_LongTextsStayValid() {
+        StringBuilder first = new StringBuilder();
+        for (int i = 0; i < 3 * Scanner.ARENA_SIZE; i++) {
+            first.append((char) ('a' + i % 26));
+        }
+        String text = "\\lyrics<\"" + first + "\"> \\text<\"second\">";
+        Scanner scan = new Scanner(new Input(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))));
+        ArrayList<CharSequence> strings = new ArrayList<>();
+        while (scan.hasNext()) {
+            Token tok = scan.getNextToken();
+            if (tok.getId() == Id.STRING || tok.getId() == Id.TAGNAME) {
+                strings.add(tok.getText());
+            }
+        }
+        Assert.assertEquals(4, strings.size());
+        Assert.assertTrue("lyrics".contentEquals(strings.get(0)));
+        Assert.assertEquals(first.toString(), strings.get(1).toString());
+        Assert.assertTrue("text".contentEquals(strings.get(2)));
+        Assert.assertTrue("second".contentEquals(strings.get(3)));
+    }
+
+    @Test
+    public void tokenOffsets_LocateEachToken() {
+        String text = "{ \\key<\"D\">\n  c#2/16 }";
+        Scanner scan = new Scanner(new Input(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))));
+        ArrayList<String> spans = new ArrayList<>();
+        Token tok = scan.getNextToken();
+        while (tok.getId() != Id.STOP) {
+            spans.add(text.substring((int) scan.tokenStart(), (int) scan.tokenEnd()));
+            if (tok.getId() == Id.SHARP) {
+                scan.putback(tok); //Put back Tokens keep their offsets
+                Assert.assertEquals("c", text.substring((int) scan.tokenStart(), (int) scan.tokenEnd()));
+                scan.getNextToken();
+            }
+            tok = scan.getNextToken();
+        }
+        Assert.assertEquals(text.length(), scan.tokenStart());
+        Assert.assertEquals(java.util.Arrays.asList("{", "\\", "key", "<", "\"", "D", "\"", ">", "c", "#", "2", "/",
+                "1", "6", "}"), spans);
+    }
+
+    @Test
+    public void tokenOffsets_RestoredAfterSeveralPutbacks() {
+        String text = "c#2/16";
+        Scanner scan = new Scanner(new Input(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))));
+        Token c = scan.getNextToken();
+        Token sharp = scan.getNextToken();
+        Token two = scan.getNextToken();
+        scan.putback(two);
+        scan.putback(sharp);
+        Assert.assertEquals(0, scan.tokenStart()); //Back to c, not to the sharp
+        Assert.assertEquals(1, scan.tokenEnd());
+        scan.putback(c);
+        Assert.assertEquals(-1, scan.tokenStart());
+        Assert.assertSame(c, scan.getNextToken());
+        Assert.assertSame(sharp, scan.getNextToken());
+        Assert.assertEquals(1, scan.tokenStart());
+        Assert.assertSame(two, scan.getNextToken());
+        Assert.assertEquals(2, scan.tokenStart());
+        Assert.assertEquals(3, scan.tokenEnd());
+    }
+
+    @Test
+    public void getString_MissingQuoteThrowsAtOpeningQuote() {
+        Input in = new Input(new ByteArrayInputStream("{[c \\t<\"open]}".getBytes(StandardCharsets.UTF_8)));
+        Scanner scan = new Scanner(in);
+        try {
+            while (scan.getNextToken().getId() != Id.STOP) {
+                //Scan up to the String
+            }
+            Assert.fail();
+        } catch (GuidoException e) {
+            Assert.assertEquals("(in)", e.getFilename());
+            Assert.assertEquals(7, e.getOffset());
+            Assert.assertEquals("(in):7: Missing closing quote in String", e.getMessage());
+        }
+    }
+
+    @Test
+    public void getTagname_UnterminatedThrowsAtBackSlash() {
+        for (boolean table : new boolean[] {false, true}) {
+            Input in = new Input(new ByteArrayInputStream("{[c \\bar".getBytes(StandardCharsets.UTF_8)));
+            Scanner scan = table ? new TableScanner(in) : new Scanner(in);
+            try {
+                new IterativeParser(scan, new NullSink(), new TranspositionContext(0)).score();
+                Assert.fail();
+            } catch (GuidoException e) {
+                Assert.assertEquals(4, e.getOffset());
+                Assert.assertEquals("Scanning error when getting Tagname", e.getReason());
+            }
+        }
+    }
 }
@@ -0,0 +1,51 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * The ScoreFixtures class holds what the tests of the transposition front ends share: reading a score from the
+ * test resources, the output a Parser gives for it, and removing the directories they write into.
+ */
+final class ScoreFixtures {
+
+    private ScoreFixtures() {
+    }
+
+    /**
+     * @param name the name of a test resource, e.g. /bach.gmn
+     * @return its bytes
+     */
+    static byte[] resource(String name) throws IOException {
+        try (InputStream in = ScoreFixtures.class.getResourceAsStream(name)) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * @param score the bytes of a score
+     * @param numHalfSteps the number of half steps; can be negative
+     * @return what an IterativeParser prints for it
+     */
+    static String parse(byte[] score, int numHalfSteps) {
+        CaptureSink out = new CaptureSink();
+        new IterativeParser(new Input(new ByteArrayInputStream(score)), out, new TranspositionContext(numHalfSteps))
+                .printScore();
+        return out.toString();
+    }
+
+    /**
+     * Delete a directory and everything under it
+     * @param dir the directory
+     */
+    static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+}
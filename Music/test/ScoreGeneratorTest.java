@@ -0,0 +1,134 @@
+import org.junit.Assert;
+import org.junit.Test;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class ScoreGeneratorTest {
+
+    /**
+     * Counts the elements of a score
+     */
+    private static final class Counter implements ScoreListener {
+
+        int voices;
+        int chords;
+        int notes;
+        int rests;
+        int tags;
+        int lyrics;
+        int accidentals;
+
+        @Override
+        public void scoreStart() {
+        }
+
+        @Override
+        public void scoreEnd() {
+        }
+
+        @Override
+        public void voiceStart() {
+            voices++;
+        }
+
+        @Override
+        public void voiceEnd() {
+        }
+
+        @Override
+        public void chordStart() {
+            chords++;
+        }
+
+        @Override
+        public void chordEnd() {
+        }
+
+        @Override
+        public void note(int pitch, int octave, boolean octaveGiven, int mul, int div, int dots) {
+            notes++;
+            if (PitchTable.name(pitch).length() > 1) {
+                accidentals++;
+            }
+        }
+
+        @Override
+        public void rest(int mul, int div, int dots) {
+            rests++;
+        }
+
+        @Override
+        public void tag(CharSequence name, CharSequence param) {
+            tags++;
+            if ("lyrics".contentEquals(name)) {
+                lyrics++;
+            }
+        }
+    }
+
+    private static Counter parse(String score) {
+        Counter counter = new Counter();
+        Parser parser = new IterativeParser(new TableScanner(new BufferInput(
+                ByteBuffer.wrap(score.getBytes(StandardCharsets.ISO_8859_1)), "(generated)")), new NullSink(),
+                new TranspositionContext(3));
+        parser.setListener(counter);
+        Assert.assertTrue(parser.score());
+        return counter;
+    }
+
+    @Test
+    public void generate_ProperSyntaxOfTheSize() {
+        for (long bytes : new long[] {0, 100, 10000, 1 << 20}) {
+            for (int voices : new int[] {1, 3, 16}) {
+                String score = new ScoreGenerator(bytes + voices).voices(voices).generate(bytes);
+                Assert.assertTrue(score.length() >= bytes);
+                Assert.assertTrue(score.length() < bytes + voices * 400L);
+                Assert.assertEquals(voices, parse(score).voices);
+            }
+        }
+    }
+
+    @Test
+    public void generate_SameSeedSameScore() {
+        Assert.assertEquals(new ScoreGenerator(7).generate(50000), new ScoreGenerator(7).generate(50000));
+        Assert.assertNotEquals(new ScoreGenerator(7).generate(50000), new ScoreGenerator(8).generate(50000));
+        ScoreGenerator generator = new ScoreGenerator(7);
+        Assert.assertEquals(generator.generate(50000), generator.generate(50000));
+    }
+
+    @Test
+    public void write_CountsWhatItPrints() {
+        CaptureSink out = new CaptureSink();
+        long size = new ScoreGenerator(1).voices(5).write(123456, out);
+        Assert.assertEquals(out.length(), size);
+    }
+
+    @Test
+    public void densities_ShapeTheScore() {
+        Counter plain = parse(new ScoreGenerator(1).chordDensity(0).restDensity(0).tagDensity(0).lyricDensity(0)
+                .accidentalDensity(0).voices(2).generate(100000));
+        Assert.assertEquals(0, plain.chords);
+        Assert.assertEquals(0, plain.rests);
+        Assert.assertEquals(0, plain.lyrics);
+        Assert.assertEquals(6, plain.tags); //Clef, key and meter of each voice
+        Assert.assertEquals(0, plain.accidentals);
+
+        Counter dense = parse(new ScoreGenerator(1).chordDensity(0.5).restDensity(0.1).lyricDensity(0.1)
+                .accidentalDensity(1).generate(100000));
+        Assert.assertTrue(dense.chords > dense.rests);
+        Assert.assertTrue(dense.lyrics > 0);
+        Assert.assertEquals(dense.notes, dense.accidentals); //Pitches as written
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void write_DensitiesOverOne() {
+        new ScoreGenerator(1).chordDensity(0.6).restDensity(0.6).generate(100);
+    }
+
+    @Test
+    public void parseSize_Suffixes() {
+        Assert.assertEquals(100, ScoreGenerator.parseSize("100"));
+        Assert.assertEquals(64 << 10, ScoreGenerator.parseSize("64k"));
+        Assert.assertEquals(3L << 30, ScoreGenerator.parseSize("3G"));
+    }
+}
@@ -0,0 +1,204 @@
+import org.junit.Assert;
+import org.junit.Test;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ScorePublisherTest {
+
+    private static final String[] SCORES = {"/bach.gmn", "/full_simple_notes.gmn", "/one_voice_only_notes.gmn",
+            "/correctly_transposed_mozart_-4steps.gmn", "/transpose_these_notes.gmn"};
+    private static final int[] NUMS = {-2, 3, 5, -11, 12};
+
+    /**
+     * Records what it receives, requesting a batch of events at a time
+     */
+    private static final class Recorder implements Flow.Subscriber<ScoreEvent> {
+
+        final List<ScoreEvent> events = new ArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        final long batch; //0 to request nothing by itself
+        Flow.Subscription subscription;
+        Throwable error;
+        boolean completed;
+        int received; //Since the last request
+
+        Recorder(long batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (batch > 0) {
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public synchronized void onNext(ScoreEvent event) {
+            events.add(event);
+            if (batch > 0 && ++received == batch) {
+                received = 0;
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            done.countDown();
+        }
+
+        synchronized int size() {
+            return events.size();
+        }
+
+        void await() throws InterruptedException {
+            Assert.assertTrue("Timed out", done.await(10, TimeUnit.SECONDS));
+        }
+    }
+
+    private Recorder publish(String score, int numHalfSteps, long batch) throws InterruptedException {
+        Recorder recorder = new Recorder(batch);
+        byte[] bytes = score.getBytes(StandardCharsets.ISO_8859_1);
+        new ScorePublisher(() -> new Input(new ByteArrayInputStream(bytes)), numHalfSteps).subscribe(recorder);
+        return recorder;
+    }
+
+    /**
+     * Print events as a ScoreRenderer prints the Parser's: commas between voices and between chord notes, and a
+     * space after every symbol of a voice
+     */
+    private static String render(List<ScoreEvent> events) {
+        StringBuilder s = new StringBuilder();
+        boolean inChord = false;
+        ScoreEvent.Kind previous = null;
+        for (ScoreEvent e : events) {
+            ScoreEvent.Kind kind = e.getKind();
+            if (kind == ScoreEvent.Kind.VOICE_START && previous == ScoreEvent.Kind.VOICE_END
+                    || inChord && kind == ScoreEvent.Kind.NOTE && previous == ScoreEvent.Kind.NOTE) {
+                s.append(',');
+            }
+            s.append(e);
+            inChord = kind == ScoreEvent.Kind.CHORD_START || inChord && kind != ScoreEvent.Kind.CHORD_END;
+            if (kind == ScoreEvent.Kind.CHORD_END || kind == ScoreEvent.Kind.TAG || kind == ScoreEvent.Kind.REST
+                    || kind == ScoreEvent.Kind.NOTE && !inChord) {
+                s.append(' ');
+            }
+            previous = kind;
+        }
+        return s.toString();
+    }
+
+    @Test
+    public void subscribe_EventsSameAsParser() throws Exception {
+        for (String resource : SCORES) {
+            byte[] score = getClass().getResourceAsStream(resource).readAllBytes();
+            for (int num : NUMS) {
+                CaptureSink out = new CaptureSink();
+                new Parser(new Input(new ByteArrayInputStream(score)), out, new TranspositionContext(num))
+                        .printScore();
+                Recorder recorder = publish(new String(score, StandardCharsets.ISO_8859_1), num, 1);
+                recorder.await();
+                Assert.assertTrue(recorder.completed);
+                Assert.assertEquals(resource + " by " + num, out.toString(), render(recorder.events));
+            }
+        }
+    }
+
+    @Test
+    public void subscribe_TransposedParts() throws Exception {
+        Recorder recorder = publish("{[\\key<\"D\"> c#1*3/8. _/4 {e,g}], [b&-1]}", 2, Long.MAX_VALUE);
+        recorder.await();
+        Assert.assertNull(recorder.error);
+        Assert.assertEquals("[{, [, \\key<\"E\">, d#1*3/8., _/4, {, f#1, a1, }, ], [, c0, ], }]",
+                recorder.events.toString());
+        ScoreEvent note = recorder.events.get(3);
+        Assert.assertEquals(ScoreEvent.Kind.NOTE, note.getKind());
+        Assert.assertEquals("d#", note.getPitchName());
+        Assert.assertEquals(1, note.getOctave());
+        Assert.assertEquals(3, note.getMul());
+        Assert.assertEquals(8, note.getDiv());
+        Assert.assertEquals(1, note.getDots());
+        Assert.assertEquals(ScoreEvent.NONE, recorder.events.get(4).getMul());
+        Assert.assertEquals("key", recorder.events.get(2).getName());
+    }
+
+    @Test
+    public void subscribe_PublishesOnlyWhatIsRequested() throws Exception {
+        Recorder recorder = publish("{[c d e f g a b c2]}", 0, 0);
+        recorder.subscription.request(3);
+        Thread.sleep(200);
+        Assert.assertEquals(3, recorder.size());
+        Assert.assertFalse(recorder.completed);
+        recorder.subscription.request(7);
+        Thread.sleep(200);
+        Assert.assertEquals(10, recorder.size());
+        Assert.assertFalse(recorder.completed);
+        recorder.subscription.request(2); //VOICE_END and SCORE_END
+        recorder.await();
+        Assert.assertEquals(12, recorder.size());
+        Assert.assertTrue(recorder.completed);
+    }
+
+    @Test
+    public void cancel_StopsTheParse() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Recorder recorder = new Recorder(0);
+        String bach = new File(getClass().getResource("/bach.gmn").getPath()).getPath();
+        AtomicInteger closed = new AtomicInteger();
+        long scores = TranspositionMetrics.getScores();
+        long improper = TranspositionMetrics.getImproperScores();
+        new ScorePublisher(() -> new ChannelInput(bach) {
+            @Override
+            public void close() {
+                closed.incrementAndGet();
+                super.close();
+            }
+        }, 2, executor).subscribe(recorder);
+        recorder.subscription.request(5);
+        Thread.sleep(100);
+        recorder.subscription.cancel();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        Assert.assertEquals(5, recorder.size());
+        Assert.assertEquals(1, recorder.done.getCount());
+        Assert.assertEquals(1, closed.get());
+        Assert.assertEquals(scores, TranspositionMetrics.getScores());
+        Assert.assertEquals(improper, TranspositionMetrics.getImproperScores());
+    }
+
+    @Test
+    public void subscribe_ImproperSyntaxIsAnError() throws Exception {
+        Recorder recorder = publish("{[c d ) e]}", 0, Long.MAX_VALUE);
+        recorder.await();
+        Assert.assertFalse(recorder.completed);
+        Assert.assertTrue(recorder.error instanceof GuidoException);
+        Assert.assertEquals(6, ((GuidoException) recorder.error).getOffset());
+        Assert.assertEquals("[{, [, c0, d0]", recorder.events.toString());
+    }
+
+    @Test
+    public void request_NotPositiveIsAnError() throws Exception {
+        Recorder recorder = publish("{[c d e]}", 0, 0);
+        recorder.subscription.request(0);
+        recorder.await();
+        Assert.assertTrue(recorder.error instanceof IllegalArgumentException);
+        Assert.assertEquals(0, recorder.size());
+    }
+}
@@ -0,0 +1,76 @@
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test of TranspositionServer on localhost: CLIENTS threads each POST bach.gmn, one request at a time, until
+ * REQUESTS requests are done, after a warm-up of the same size. Reports requests per second and the latency
+ * percentiles. Without a port, a server is started in this JVM. Run with the test classpath:
+ * <pre>
+ * java ServerBenchmark [REQUESTS] [CLIENTS] [PORT]</pre>
+ */
+public class ServerBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        TranspositionServer.useNoDelay();
+        TranspositionServer server = args.length > 2 ? null
+                : new TranspositionServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        int port = server == null ? Integer.parseInt(args[2]) : server.getPort();
+        byte[] score;
+        try (InputStream in = ServerBenchmark.class.getResourceAsStream("/bach.gmn")) {
+            score = in.readAllBytes();
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/transpose?steps=2"))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(score)).build();
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        run(client, request, requests, clients); //Warm-up
+        long start = System.nanoTime();
+        long[] latencies = run(client, request, requests, clients);
+        long nanos = System.nanoTime() - start;
+        Arrays.sort(latencies);
+        System.out.printf("%d requests of %d bytes, %d clients, %d cores%n", requests, score.length, clients,
+                Runtime.getRuntime().availableProcessors());
+        System.out.printf("%.0f requests/s, p50 %.2f ms, p99 %.2f ms, max %.2f ms%n", requests / (nanos / 1e9),
+                latencies[requests / 2] / 1e6, latencies[(int) (requests * 0.99)] / 1e6,
+                latencies[requests - 1] / 1e6);
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    private static long[] run(HttpClient client, HttpRequest request, int requests, int clients) throws Exception {
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        Future<?>[] done = new Future<?>[clients];
+        for (int c = 0; c < clients; c++) {
+            done[c] = pool.submit(() -> {
+                for (int i = next.getAndIncrement(); i < requests; i = next.getAndIncrement()) {
+                    long start = System.nanoTime();
+                    HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                    latencies[i] = System.nanoTime() - start;
+                    if (response.statusCode() != 200) {
+                        throw new IllegalStateException("Status " + response.statusCode());
+                    }
+                }
+                return null;
+            });
+        }
+        for (Future<?> f : done) {
+            f.get();
+        }
+        pool.shutdown();
+        return latencies;
+    }
+}
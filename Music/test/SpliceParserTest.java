@@ -0,0 +1,88 @@
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SpliceParserTest {
+
+    private static final String[] SCORES = {"/bach.gmn", "/full_simple_notes.gmn", "/one_voice_only_notes.gmn",
+            "/correctly_transposed_mozart_-4steps.gmn", "/transpose_these_notes.gmn"};
+
+    private final List<File> files = new ArrayList<>();
+
+    private File write(String text) throws IOException {
+        File file = File.createTempFile("splice", ".gmn");
+        files.add(file);
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.ISO_8859_1));
+        return file;
+    }
+
+    private String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.ISO_8859_1);
+    }
+
+    private String parse(File file, int numHalfSteps) {
+        CaptureSink out = new CaptureSink();
+        new IterativeParser(new Input(file.getPath()), out, new TranspositionContext(numHalfSteps)).printScore();
+        return out.toString();
+    }
+
+    private String splice(ChannelInput in, int numHalfSteps) throws IOException {
+        File actual = write("");
+        try (ChannelOutput out = new ChannelOutput(actual.getPath())) {
+            new SpliceParser(in, out, new TranspositionContext(numHalfSteps)).printScore();
+        }
+        in.close();
+        return read(actual);
+    }
+
+    @After
+    public void deleteFiles() {
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void splice_KeepsFormatting() throws IOException {
+        File score = write("{[ \\key<\"D\">  c#2/4\n  e  {c, e&1}\t_/8 ],\n\n[ \\clef<\"bass\"> b*3/2.. ]}\n");
+        Transpose.splice(2, score.getPath(), score.getPath() + ".out");
+        File out = new File(score.getPath() + ".out");
+        files.add(out);
+        Assert.assertEquals("{[ \\key<\"E\">  d#2/4\n  f#2  {d2, f1}\t_/8 ],\n\n[ \\clef<\"bass\"> c#2*3/2.. ]}\n",
+                read(out));
+    }
+
+    @Test
+    public void splice_SameAsParserOnParserOutput() throws IOException {
+        for (String resource : SCORES) {
+            //Scores printed by the Parser are already formatted the way it prints them
+            File score = write(parse(new File(getClass().getResource(resource).getPath()), 0));
+            for (int n = -11; n <= 12; n += 5) {
+                String expected = parse(score, n);
+                Assert.assertEquals(resource + " by " + n, expected, splice(new ChannelInput(score.getPath()), n));
+                Assert.assertEquals(resource + " by " + n + ", 16-byte buffer", expected,
+                        splice(new ChannelInput(score.getPath(), 16, false), n));
+                Assert.assertEquals(resource + " by " + n + ", mapped", expected,
+                        splice(new ChannelInput(score.getPath(), 1 << 12, true), n));
+            }
+        }
+    }
+
+    @Test
+    public void splice_LongGapsAreTransferred() throws IOException {
+        StringBuilder text = new StringBuilder("{[ c1 ");
+        for (int i = 0; i < 2 * SpliceParser.TRANSFER_THRESHOLD / 16; i++) {
+            text.append("\\text<\"la la\"> ");
+        }
+        text.append("d ]}");
+        File score = write(text.toString());
+        String expected = text.toString().replace("c1", "d#1").replace("d ]", "f1 ]");
+        Assert.assertEquals(expected, splice(new ChannelInput(score.getPath()), 3));
+    }
+}
@@ -0,0 +1,58 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SpscRingTest {
+
+    @Test
+    public void putTake_InOrderAcrossThreads() throws InterruptedException {
+        SpscRing<Integer> ring = new SpscRing<>(4);
+        int count = 200000;
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < count; i++) {
+                ring.put(i);
+            }
+        });
+        producer.start();
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals(Integer.valueOf(i), ring.take());
+        }
+        producer.join();
+        Assert.assertEquals(0, ring.size());
+    }
+
+    @Test
+    public void close_TakeReturnsItemsLeftThenNull() {
+        SpscRing<String> ring = new SpscRing<>(2);
+        Assert.assertTrue(ring.put("a"));
+        Assert.assertTrue(ring.put("b"));
+        ring.close();
+        Assert.assertFalse(ring.put("c"));
+        Assert.assertEquals("a", ring.take());
+        Assert.assertEquals("b", ring.take());
+        Assert.assertNull(ring.take());
+    }
+
+    @Test
+    public void close_WakesWaitingProducer() throws InterruptedException {
+        SpscRing<String> ring = new SpscRing<>(2);
+        ring.put("a");
+        ring.put("b");
+        boolean[] put = {true};
+        Thread producer = new Thread(() -> put[0] = ring.put("c"));
+        producer.start();
+        Thread.sleep(50);
+        ring.close();
+        producer.join(5000);
+        Assert.assertFalse(producer.isAlive());
+        Assert.assertFalse(put[0]);
+    }
+
+    @Test
+    public void capacity_RoundedUpToPowerOfTwo() {
+        SpscRing<String> ring = new SpscRing<>(3);
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(ring.put("x"));
+        }
+        Assert.assertEquals(4, ring.size());
+    }
+}
@@ -0,0 +1,51 @@
+import org.junit.Assert;
+import org.junit.Test;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+public class TableScannerTest {
+
+    private void assertSameTokens(InputStream expected, InputStream actual) {
+        Scanner scan = new Scanner(new Input(expected));
+        Scanner table = new TableScanner(new Input(actual));
+        Token tok;
+        do {
+            tok = scan.getNextToken();
+            Token other = table.getNextToken();
+            Assert.assertEquals(tok.getId(), other.getId());
+            Assert.assertEquals(tok.getChar(), other.getChar());
+            Assert.assertEquals(tok.getInt(), other.getInt());
+            Assert.assertEquals(tok.getString(), other.getString());
+        } while (tok.getId() != Id.STOP);
+    }
+
+    private void assertSameTokens(String resource) {
+        assertSameTokens(getClass().getResourceAsStream(resource), getClass().getResourceAsStream(resource));
+    }
+
+    @Test
+    public void sameTokensAsScanner_Resources() {
+        assertSameTokens("/bach.gmn");
+        assertSameTokens("/full_simple_notes.gmn");
+        assertSameTokens("/one_voice_only_notes.gmn");
+        assertSameTokens("/transpose_these_notes.gmn");
+        assertSameTokens("/empty_voices.gmn");
+    }
+
+    @Test
+    public void sameTokensAsScanner_AllBytes() {
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < 256; i++) {
+            bytes[i] = (byte) i;
+        }
+        bytes['\\'] = ' '; //Keep the tagname and string rules from swallowing the rest of the input
+        bytes['\"'] = ' ';
+        assertSameTokens(new ByteArrayInputStream(bytes), new ByteArrayInputStream(bytes));
+    }
+
+    @Test
+    public void parserAcceptsTableScanner() {
+        Parser parser = new Parser(new TableScanner(new Input(getClass().getResourceAsStream("/bach.gmn"))));
+        Assert.assertTrue(parser.score());
+    }
+}
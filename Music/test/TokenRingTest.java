@@ -0,0 +1,38 @@
+import org.junit.Assert;
+import org.junit.Test;
+import java.util.EmptyStackException;
+
+public class TokenRingTest {
+
+    @Test
+    public void pushPop_LastInFirstOut() {
+        TokenRing ring = new TokenRing(2);
+        ring.push(Token.of(Id.COMMA, ','), 3, 4);
+        ring.push(Token.of(Id.DOT, '.'), 5, 6);
+        Assert.assertEquals(5, ring.peekStart());
+        Assert.assertEquals(Id.DOT, ring.pop().getId());
+        Assert.assertEquals(4, ring.peekEnd());
+        Assert.assertEquals(Id.COMMA, ring.pop().getId());
+        Assert.assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    public void empty_Throws() {
+        TokenRing ring = new TokenRing(2);
+        Assert.assertThrows(EmptyStackException.class, ring::pop);
+        Assert.assertThrows(EmptyStackException.class, ring::peek);
+        Assert.assertThrows(EmptyStackException.class, ring::peekStart);
+        Assert.assertThrows(EmptyStackException.class, ring::peekEnd);
+        Assert.assertEquals(0, ring.size()); //Still usable
+        ring.push(Token.of(Id.COMMA, ','));
+        Assert.assertEquals(Id.COMMA, ring.pop().getId());
+    }
+
+    @Test
+    public void full_Throws() {
+        TokenRing ring = new TokenRing(2);
+        ring.push(Token.of(Id.COMMA, ','));
+        ring.push(Token.of(Id.COMMA, ','));
+        Assert.assertThrows(IllegalStateException.class, () -> ring.push(Token.of(Id.DOT, '.')));
+    }
+}
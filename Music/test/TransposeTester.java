@@ -1,5 +1,10 @@
 import org.junit.Test;
 import org.junit.jupiter.api.Assertions;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 public class TransposeTester {
 
@@ -13,12 +18,14 @@ public class TransposeTester {
 
     @Test
     public void testOneVoice() {
-        Parser p = new Parser(new Input(getClass().getResourceAsStream("/correctly_transposed_2steps.gmn")));
+        Parser p = new Parser(new Input(getClass().getResourceAsStream("/correctly_transposed_2steps.gmn")),
+                new CaptureSink());
         p.printScore();
 
         Note.setNumHalfSteps(2);
 
-        Parser p2 = new Parser(new Input(getClass().getResourceAsStream("/one_voice_only_notes.gmn")));
+        Parser p2 = new Parser(new Input(getClass().getResourceAsStream("/one_voice_only_notes.gmn")),
+                new CaptureSink());
         p2.printScore();
 
         Assertions.assertEquals(p.getFile(), p2.getFile());
@@ -28,27 +35,86 @@ public class TransposeTester {
     public void testMozart() {
         Note.setNumHalfSteps(0);
 
-        Parser p = new Parser(new Input(getClass().getResourceAsStream("/correctly_transposed_mozart_-4steps.gmn")));
+        Parser p = new Parser(new Input(getClass().getResourceAsStream("/correctly_transposed_mozart_-4steps.gmn")),
+                new CaptureSink());
         p.printScore();
 
         Note.setNumHalfSteps(-4);
 
-        Parser p2 = new Parser(new Input(getClass().getResourceAsStream("/full_simple_notes.gmn")));
+        Parser p2 = new Parser(new Input(getClass().getResourceAsStream("/full_simple_notes.gmn")),
+                new CaptureSink());
         p2.printScore();
 
         Assertions.assertEquals(p2.getFile(), p.getFile());
     }
 
     /**
-     * Note that this test method will fill a desired file with the transpose sheet music, so you'll have
-     * to fill in your own file path.
+     * Fills a file with the transposed sheet music, as Transpose does with two file names; here a temporary file,
+     * compared with the same score transposed in memory.
      */
     @Test
-    public void fillScore() {
+    public void fillScore() throws IOException {
         Note.setNumHalfSteps(2);
 
-        Parser p = new Parser("C:\\Users\\jackb\\IdeaProjects\\Music\\resources\\bach.gmn",
-                "C:\\Users\\jackb\\IdeaProjects\\Music\\resources\\fill_with_transposed_mozart_-4steps.gmn");
-        p.printScore();
+        Path filled = Files.createTempFile("fill_with_transposed_bach", ".gmn");
+        try {
+            Parser p = new Parser(new File(getClass().getResource("/bach.gmn").getPath()).getPath(),
+                    filled.toString());
+            p.printScore();
+
+            Parser p2 = new Parser(new Input(getClass().getResourceAsStream("/bach.gmn")), new CaptureSink());
+            p2.printScore();
+
+            Assertions.assertEquals(p2.getFile(), Files.readString(filled));
+        } finally {
+            Files.deleteIfExists(filled);
+        }
+    }
+
+    @Test
+    public void improperSyntax_ThrownByEveryEntryPoint() throws IOException {
+        Path bad = Files.createTempFile("bad", ".gmn");
+        Path out = Files.createTempFile("out", ".gmn");
+        try {
+            Files.writeString(bad, "{[c d ] [e]}");
+            String file1 = bad.toString();
+            String file2 = out.toString();
+            String expected = file1 + ":8: Improper GUIDO syntax";
+            Assertions.assertEquals(expected, Assertions.assertThrows(GuidoException.class,
+                    () -> Transpose.transpose(2, file1, file2)).getMessage());
+            Assertions.assertEquals(expected, Assertions.assertThrows(GuidoException.class,
+                    () -> Transpose.transpose(new TranspositionCache(1 << 20), 2, file1, file2)).getMessage());
+            Assertions.assertEquals(expected, Assertions.assertThrows(GuidoException.class,
+                    () -> Transpose.splice(2, file1, file2)).getMessage());
+            Assertions.assertEquals(expected, Assertions.assertThrows(GuidoException.class,
+                    () -> Transpose.parallel(2, file1, file2)).getMessage());
+            Assertions.assertEquals(expected, Assertions.assertThrows(GuidoException.class,
+                    () -> Transpose.pipeline(2, file1, file2)).getMessage());
+            Assertions.assertEquals(expected, Assertions.assertThrows(GuidoException.class,
+                    () -> Transpose.transpose(file1, new int[] {2}, new String[] {file2})).getMessage());
+        } finally {
+            Files.deleteIfExists(bad);
+            Files.deleteIfExists(out);
+        }
+    }
+
+    @Test
+    public void improperSyntax_ExitStatusIsOne() throws Exception {
+        Path bad = Files.createTempFile("bad", ".gmn");
+        Path out = Files.createTempFile("out", ".gmn");
+        try {
+            Files.writeString(bad, "{[c d ] [e]}");
+            String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+            String classes = Path.of(Transpose.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                    .toString();
+            Process process = new ProcessBuilder(java, "-cp", classes, "Transpose", "2", bad.toString(),
+                    out.toString()).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+            String error = new String(process.getErrorStream().readAllBytes(), StandardCharsets.UTF_8);
+            Assertions.assertEquals(1, process.waitFor());
+            Assertions.assertEquals(bad + ":8: Improper GUIDO syntax", error.trim());
+        } finally {
+            Files.deleteIfExists(bad);
+            Files.deleteIfExists(out);
+        }
     }
 }
@@ -0,0 +1,149 @@
+import org.junit.Assert;
+import org.junit.Test;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class TranspositionCacheTest {
+
+    private static final String[] SCORES = {"/bach.gmn", "/full_simple_notes.gmn", "/one_voice_only_notes.gmn",
+            "/correctly_transposed_mozart_-4steps.gmn", "/transpose_these_notes.gmn"};
+
+    private static String text(byte[] bytes) {
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    public void transpose_SameAsParserAndHitsSecondTime() throws IOException {
+        TranspositionCache cache = new TranspositionCache(1 << 20);
+        for (int pass = 0; pass < 2; pass++) {
+            for (String name : SCORES) {
+                for (int n = -2; n <= 2; n++) {
+                    Assert.assertEquals(name + " by " + n, ScoreFixtures.parse(ScoreFixtures.resource(name), n),
+                            text(cache.transpose(ScoreFixtures.resource(name), name, n)));
+                }
+            }
+        }
+        Assert.assertEquals(25, cache.getMisses());
+        Assert.assertEquals(25, cache.getHits());
+        Assert.assertEquals(0, cache.getEvictions());
+        Assert.assertEquals(25, cache.size());
+    }
+
+    @Test
+    public void memoryTier_EvictsLeastRecentlyUsed() throws IOException {
+        byte[] bach = ScoreFixtures.resource("/bach.gmn");
+        int size = cacheSize(bach);
+        TranspositionCache cache = new TranspositionCache(3L * size);
+        //Whole octaves, so that every result has the same size
+        cache.transpose(bach, "bach", 12);
+        cache.transpose(bach, "bach", 24);
+        cache.transpose(bach, "bach", 36);
+        cache.transpose(bach, "bach", 12); //Now the most recently used
+        cache.transpose(bach, "bach", 48); //Evicts 24
+        Assert.assertEquals(1, cache.getEvictions());
+        Assert.assertEquals(3, cache.size());
+        cache.transpose(bach, "bach", 12);
+        Assert.assertEquals(2, cache.getHits());
+        cache.transpose(bach, "bach", 24);
+        Assert.assertEquals(5, cache.getMisses());
+        Assert.assertTrue(cache.memoryBytes() <= 3L * size);
+    }
+
+    @Test
+    public void memoryTier_SkipsAResultBiggerThanItsBudget() throws IOException {
+        byte[] small = "{[c d e]}".getBytes(StandardCharsets.ISO_8859_1);
+        byte[] bach = ScoreFixtures.resource("/bach.gmn");
+        TranspositionCache cache = new TranspositionCache(cacheSize(bach) - 1);
+        cache.transpose(small, "small", 1);
+        cache.transpose(small, "small", 2);
+        long warm = cache.memoryBytes();
+        for (int i = 0; i < 2; i++) {
+            Assert.assertEquals(ScoreFixtures.parse(bach, 3), text(cache.transpose(bach, "bach", 3)));
+        }
+        Assert.assertEquals(0, cache.getEvictions());
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(warm, cache.memoryBytes());
+        Assert.assertEquals(4, cache.getMisses());
+        cache.transpose(small, "small", 1);
+        cache.transpose(small, "small", 2);
+        Assert.assertEquals(2, cache.getHits());
+    }
+
+    private static int cacheSize(byte[] score) {
+        TranspositionCache cache = new TranspositionCache(Long.MAX_VALUE);
+        cache.transpose(score, "score", 0);
+        return (int) cache.memoryBytes();
+    }
+
+    @Test
+    public void diskTier_OutlivesTheCache() throws IOException {
+        Path dir = Files.createTempDirectory("cache");
+        try {
+            byte[] mozart = ScoreFixtures.resource("/full_simple_notes.gmn");
+            new TranspositionCache(1 << 20, dir).transpose(mozart, "mozart", -4);
+            TranspositionCache cache = new TranspositionCache(1 << 20, dir);
+            Assert.assertEquals(ScoreFixtures.parse(mozart, -4), text(cache.transpose(mozart, "mozart", -4)));
+            Assert.assertEquals(1, cache.getDiskHits());
+            Assert.assertEquals(0, cache.getMisses());
+            cache.transpose(mozart, "mozart", -4);
+            Assert.assertEquals(1, cache.getHits());
+        } finally {
+            for (File f : dir.toFile().listFiles()) {
+                f.delete();
+            }
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void transpose_ImproperSyntaxNotCached() {
+        TranspositionCache cache = new TranspositionCache(1 << 20);
+        byte[] score = "{[c d ] [e]}".getBytes(StandardCharsets.ISO_8859_1);
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.transpose(score, "bad.gmn", 2);
+                Assert.fail();
+            } catch (GuidoException e) {
+                Assert.assertEquals("bad.gmn:8: Improper GUIDO syntax", e.getMessage());
+            }
+        }
+        Assert.assertEquals(2, cache.getMisses());
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void transpose_ReturnsACopy() throws IOException {
+        TranspositionCache cache = new TranspositionCache(1 << 20);
+        byte[] bach = ScoreFixtures.resource("/bach.gmn");
+        byte[] first = cache.transpose(bach, "bach", 3);
+        first[0] = 'x';
+        Assert.assertEquals(ScoreFixtures.parse(bach, 3), text(cache.transpose(bach, "bach", 3)));
+        cache.transpose(bach, "bach", 3)[0] = 'x';
+        Assert.assertEquals(ScoreFixtures.parse(bach, 3), text(cache.transpose(bach, "bach", 3)));
+        Assert.assertEquals(3, cache.getHits());
+    }
+
+    @Test
+    public void diskTier_UnreadableIsAMiss() throws IOException {
+        Path dir = Files.createTempDirectory("cache");
+        try {
+            byte[] bach = ScoreFixtures.resource("/bach.gmn");
+            new TranspositionCache(1 << 20, dir).transpose(bach, "bach", 1);
+            File[] results = dir.toFile().listFiles();
+            Assert.assertEquals(1, results.length);
+            results[0].delete();
+            Files.createDirectories(results[0].toPath().resolve("taken")); //A directory cannot be read or replaced
+            TranspositionCache cache = new TranspositionCache(1 << 20, dir);
+            Assert.assertEquals(ScoreFixtures.parse(bach, 1), text(cache.transpose(bach, "bach", 1)));
+            Assert.assertEquals(0, cache.getDiskHits());
+            Assert.assertEquals(1, cache.getMisses());
+            Assert.assertEquals(ScoreFixtures.parse(bach, 1), text(cache.transpose(bach, "bach", 1)));
+            Assert.assertEquals(1, cache.getHits());
+        } finally {
+            ScoreFixtures.delete(dir);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+import org.junit.Assert;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class TranspositionContextTest {
+
+    private static final String[] SCORES = {"/bach.gmn", "/full_simple_notes.gmn", "/one_voice_only_notes.gmn",
+            "/correctly_transposed_mozart_-4steps.gmn", "/transpose_these_notes.gmn"};
+    private static final int JOBS = 400;
+
+    private String transpose(int job) {
+        String score = SCORES[job % SCORES.length];
+        int numHalfSteps = job % 23 - 11;
+        Parser parser = new Parser(new Input(getClass().getResourceAsStream(score)), new CaptureSink(),
+                new TranspositionContext(numHalfSteps));
+        Assert.assertTrue(parser.score());
+        return parser.getFile();
+    }
+
+    @Test
+    public void parallelTranspositions_MatchSequential() throws Exception {
+        List<String> expected = new ArrayList<>();
+        for (int job = 0; job < JOBS; job++) {
+            expected.add(transpose(job));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int job = 0; job < JOBS; job++) {
+                int j = job;
+                results.add(pool.submit(() -> transpose(j)));
+            }
+            for (int job = 0; job < JOBS; job++) {
+                Assert.assertEquals("job " + job, expected.get(job), results.get(job).get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void parser_LeavesNoteDefaultsAlone() {
+        int octave = Note.getStaticOctave();
+        String key = Note.getKey();
+        transpose(0);
+        Assert.assertEquals(octave, Note.getStaticOctave());
+        Assert.assertEquals(key, Note.getKey());
+    }
+
+    @Test
+    public void setKey_IsTransposed() {
+        TranspositionContext context = new TranspositionContext(-4);
+        context.setKey("A");
+        Assert.assertEquals("F", context.getKey());
+    }
+}
@@ -0,0 +1,95 @@
+import org.junit.Assert;
+import org.junit.Test;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class TranspositionDaemonTest {
+
+    private static final String[] SCORES = {"/bach.gmn", "/full_simple_notes.gmn", "/one_voice_only_notes.gmn",
+            "/correctly_transposed_mozart_-4steps.gmn", "/transpose_these_notes.gmn"};
+
+    private static Path socket() throws IOException {
+        Path dir = Files.createTempDirectory("daemon");
+        dir.toFile().deleteOnExit();
+        return dir.resolve("transpose.sock");
+    }
+
+    @Test
+    public void requests_ManyPerConnectionSameAsParser() throws Exception {
+        Path socket = socket();
+        String bach = new File(getClass().getResource("/bach.gmn").getPath()).getPath();
+        TranspositionDaemon daemon = new TranspositionDaemon(socket);
+        try (DaemonClient client = new DaemonClient(socket)) {
+            for (int n = -11; n <= 12; n++) {
+                for (String name : SCORES) {
+                    byte[] score = ScoreFixtures.resource(name);
+                    Assert.assertEquals(name + " by " + n, ScoreFixtures.parse(score, n), client.transpose(n, score));
+                }
+                Assert.assertEquals(ScoreFixtures.parse(ScoreFixtures.resource("/bach.gmn"), n),
+                        client.transposeFile(n, bach));
+            }
+        } finally {
+            daemon.close();
+        }
+        Assert.assertFalse(Files.exists(socket));
+    }
+
+    @Test
+    public void errors_ReportedAndConnectionKept() throws Exception {
+        Path socket = socket();
+        TranspositionDaemon daemon = new TranspositionDaemon(socket);
+        try (DaemonClient client = new DaemonClient(socket)) {
+            try {
+                client.transpose(2, "{[c \\t<\"d]}".getBytes(StandardCharsets.ISO_8859_1));
+                Assert.fail();
+            } catch (DaemonClient.RemoteException e) {
+                Assert.assertEquals("(request):7: Missing closing quote in String", e.getMessage());
+            }
+            try {
+                client.transposeFile(2, "no/such/file.gmn");
+                Assert.fail();
+            } catch (DaemonClient.RemoteException e) {
+                Assert.assertEquals("no/such/file.gmn: No such file", e.getMessage());
+            }
+            Assert.assertEquals("{[d0 ]}", client.transpose(2, "{[c]}".getBytes(StandardCharsets.ISO_8859_1)));
+        } finally {
+            daemon.close();
+        }
+    }
+
+    @Test
+    public void clients_ServedConcurrently() throws Exception {
+        Path socket = socket();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        TranspositionDaemon daemon = new TranspositionDaemon(socket);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int c = 0; c < 8; c++) {
+                int steps = c - 4;
+                done.add(pool.submit(() -> {
+                    try (DaemonClient client = new DaemonClient(socket)) {
+                        for (int i = 0; i < 50; i++) {
+                            byte[] score = ScoreFixtures.resource(SCORES[i % SCORES.length]);
+                            Assert.assertEquals(ScoreFixtures.parse(score, steps), client.transpose(steps, score));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : done) {
+                f.get();
+            }
+        } finally {
+            daemon.close();
+            pool.shutdown();
+        }
+    }
+}
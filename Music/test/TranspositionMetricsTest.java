@@ -0,0 +1,181 @@
+import org.junit.Assert;
+import org.junit.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class TranspositionMetricsTest {
+
+    private static final String SCORE = "{[\\clef<\"g\"> \\key<\"F\"> c1 d#/4 e*2 _ {c,e}],[\\meter<\"3/4\"> f&2]}";
+
+    private static Parser parser(String score, Sink out) {
+        return new IterativeParser(new TableScanner(new BufferInput(
+                ByteBuffer.wrap(score.getBytes(StandardCharsets.US_ASCII)), "metrics.gmn")), out,
+                new TranspositionContext(2));
+    }
+
+    @Test
+    public void parser_CountsItsScore() {
+        Parser parser = parser(SCORE, new CaptureSink());
+        Assert.assertTrue(parser.score());
+        Scanner scan = parser.getScanner();
+        Assert.assertEquals(SCORE.length(), scan.bytesRead());
+        Assert.assertEquals(6, parser.getContext().getNotes());
+        Assert.assertEquals(3, parser.getTags());
+        Assert.assertEquals(6, scan.getTokenCount(Id.CHARACTER));
+        Assert.assertEquals(3, scan.getTokenCount(Id.TAGNAME));
+        Assert.assertEquals(3, scan.getTokenCount(Id.STRING));
+        Assert.assertEquals(3, scan.getTokenCount(Id.OPEN_ANGLE));
+        Assert.assertEquals(6, scan.getTokenCount(Id.QUOTE_MARK));
+        Assert.assertEquals(1, scan.getTokenCount(Id.REST));
+        Assert.assertEquals(2, scan.getTokenCount(Id.OPEN_BRACKET));
+        long total = 0;
+        for (Id ident : Id.values()) {
+            total += scan.getTokenCount(ident);
+        }
+        Assert.assertEquals(total, scan.getTokenCount());
+    }
+
+    @Test
+    public void scores_AddToTheCounters() {
+        long scores = TranspositionMetrics.getScores();
+        long improper = TranspositionMetrics.getImproperScores();
+        long bytesRead = TranspositionMetrics.getBytesRead();
+        long notes = TranspositionMetrics.getNotes();
+        long tags = TranspositionMetrics.getTags();
+        long characters = TranspositionMetrics.getTokens(Id.CHARACTER);
+        long bytesWritten = TranspositionMetrics.getBytesWritten();
+        CaptureSink out = new CaptureSink();
+        parser(SCORE, out).printScore();
+        parser("{[c d e", new NullSink()).printScore();
+        Assert.assertEquals(scores + 2, TranspositionMetrics.getScores());
+        Assert.assertEquals(improper + 1, TranspositionMetrics.getImproperScores());
+        Assert.assertEquals(bytesRead + SCORE.length() + 7, TranspositionMetrics.getBytesRead());
+        Assert.assertEquals(notes + 6 + 3, TranspositionMetrics.getNotes());
+        Assert.assertEquals(tags + 3, TranspositionMetrics.getTags());
+        Assert.assertEquals(characters + 6 + 3, TranspositionMetrics.getTokens(Id.CHARACTER));
+        Assert.assertEquals(bytesWritten + out.length(), TranspositionMetrics.getBytesWritten()); //NullSink: -1
+    }
+
+    @Test
+    public void pipeline_CountsTheSameTokens() {
+        long tokens = TranspositionMetrics.getTokens();
+        parser(SCORE, new NullSink()).score();
+        long serial = TranspositionMetrics.getTokens() - tokens;
+        tokens = TranspositionMetrics.getTokens();
+        Assert.assertTrue(PipelineTranspose.transpose(Channels.newChannel(new ByteArrayInputStream(
+                SCORE.getBytes(StandardCharsets.US_ASCII))), "metrics.gmn",
+                Channels.newChannel(new ByteArrayOutputStream()), 2));
+        Assert.assertEquals(serial, TranspositionMetrics.getTokens() - tokens);
+    }
+
+    @Test
+    public void score_CountedWhenItThrows() {
+        long scores = TranspositionMetrics.getScores();
+        long improper = TranspositionMetrics.getImproperScores();
+        try {
+            parser("{[c \\t<\"d]}", new NullSink()).score();
+            Assert.fail();
+        } catch (GuidoException e) {
+            Assert.assertEquals(scores + 1, TranspositionMetrics.getScores());
+            Assert.assertEquals(improper + 1, TranspositionMetrics.getImproperScores());
+        }
+    }
+
+    @Test
+    public void parallel_CountsLikeTheParser() throws IOException {
+        for (String name : new String[] {"/bach.gmn", "/full_simple_notes.gmn", "/empty_voices.gmn"}) {
+            byte[] score;
+            try (InputStream in = getClass().getResourceAsStream(name)) {
+                score = in.readAllBytes();
+            }
+            String text = new String(score, StandardCharsets.ISO_8859_1);
+            long[] serial = counters();
+            parser(text, new CaptureSink()).printScore();
+            serial = delta(serial);
+            for (int chunkSize : new int[] {8, ParallelTranspose.DEFAULT_CHUNK_SIZE}) {
+                long[] parallel = counters();
+                Assert.assertTrue(ParallelTranspose.transpose(ByteBuffer.wrap(score), name, 2, new CaptureSink(),
+                        ForkJoinPool.commonPool(), chunkSize));
+                Assert.assertArrayEquals(name + " in parts of " + chunkSize, serial, delta(parallel));
+            }
+        }
+    }
+
+    private static long[] counters() {
+        Id[] ids = Id.values();
+        long[] counters = new long[ids.length + 6];
+        for (int i = 0; i < ids.length; i++) {
+            counters[i] = TranspositionMetrics.getTokens(ids[i]);
+        }
+        counters[ids.length] = TranspositionMetrics.getScores();
+        counters[ids.length + 1] = TranspositionMetrics.getImproperScores();
+        counters[ids.length + 2] = TranspositionMetrics.getBytesRead();
+        counters[ids.length + 3] = TranspositionMetrics.getNotes();
+        counters[ids.length + 4] = TranspositionMetrics.getTags();
+        counters[ids.length + 5] = TranspositionMetrics.getBytesWritten();
+        return counters;
+    }
+
+    private static long[] delta(long[] before) {
+        long[] after = counters();
+        for (int i = 0; i < after.length; i++) {
+            after[i] -= before[i];
+        }
+        return after;
+    }
+
+    @Test
+    public void recording_HasTheEventsOfAScore() throws IOException {
+        Path file = Files.createTempFile("metrics", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("music.Transposition");
+            recording.enable("music.TokenCount");
+            recording.enable("music.Flush");
+            recording.start();
+            parser(SCORE, new CaptureSink()).printScore();
+            recording.stop();
+            recording.dump(file);
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            RecordedEvent score = null;
+            RecordedEvent characters = null;
+            RecordedEvent flush = null;
+            for (RecordedEvent event : events) {
+                String name = event.getEventType().getName();
+                if (name.equals("music.Transposition")) {
+                    score = event;
+                } else if (name.equals("music.TokenCount") && event.getString("id").equals("CHARACTER")) {
+                    characters = event;
+                } else if (name.equals("music.Flush")) {
+                    flush = event;
+                }
+            }
+            Assert.assertNotNull(score);
+            Assert.assertEquals("metrics.gmn", score.getString("filename"));
+            Assert.assertEquals(2, score.getInt("halfSteps"));
+            Assert.assertEquals("IterativeParser", score.getString("parser"));
+            Assert.assertTrue(score.getBoolean("proper"));
+            Assert.assertEquals(SCORE.length(), score.getLong("bytesRead"));
+            Assert.assertEquals(6, score.getLong("notes"));
+            Assert.assertEquals(3, score.getLong("tags"));
+            Assert.assertNotNull(characters);
+            Assert.assertEquals(6, characters.getLong("count"));
+            Assert.assertNotNull(flush);
+            Assert.assertEquals("CaptureSink", flush.getString("sink"));
+            Assert.assertEquals(score.getLong("bytesWritten"), flush.getLong("bytesWritten"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
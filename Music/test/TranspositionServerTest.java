@@ -0,0 +1,85 @@
+import org.junit.Assert;
+import org.junit.Test;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class TranspositionServerTest {
+
+    private static final String[] SCORES = {"/bach.gmn", "/full_simple_notes.gmn", "/one_voice_only_notes.gmn",
+            "/correctly_transposed_mozart_-4steps.gmn", "/transpose_these_notes.gmn"};
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private static TranspositionServer start() throws IOException {
+        return new TranspositionServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    private static HttpRequest post(TranspositionServer server, String query, byte[] body) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + "/transpose" + query))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body)).build();
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void post_ConcurrentRequestsSameAsParser() throws Exception {
+        try (TranspositionServer server = start()) {
+            List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                byte[] score = ScoreFixtures.resource(SCORES[i % SCORES.length]);
+                responses.add(client.sendAsync(post(server, "?steps=" + (i % 23 - 11), score),
+                        HttpResponse.BodyHandlers.ofString(StandardCharsets.ISO_8859_1)));
+            }
+            for (int i = 0; i < responses.size(); i++) {
+                HttpResponse<String> response = responses.get(i).get();
+                Assert.assertEquals(200, response.statusCode());
+                byte[] score = ScoreFixtures.resource(SCORES[i % SCORES.length]);
+                Assert.assertEquals("request " + i, ScoreFixtures.parse(score, i % 23 - 11), response.body());
+            }
+        }
+    }
+
+    @Test
+    public void post_BadRequestsGetStatusAndOffset() throws Exception {
+        try (TranspositionServer server = start()) {
+            byte[] score = "{[c d ] [e]}".getBytes(StandardCharsets.ISO_8859_1);
+            HttpResponse<String> response = send(post(server, "?steps=2", score));
+            Assert.assertEquals(400, response.statusCode());
+            Assert.assertEquals("(request):8: Improper GUIDO syntax\n", response.body());
+
+            score = "{[c \\t<\"d]}".getBytes(StandardCharsets.ISO_8859_1);
+            response = send(post(server, "?steps=2", score));
+            Assert.assertEquals(400, response.statusCode());
+            Assert.assertEquals("(request):7: Missing closing quote in String\n", response.body());
+
+            Assert.assertEquals(400, send(post(server, "?steps=two", score)).statusCode());
+            Assert.assertEquals(400, send(post(server, "", score)).statusCode());
+            HttpRequest get = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + "/transpose"))
+                    .build();
+            Assert.assertEquals(405, send(get).statusCode());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void post_LateErrorBreaksResponse() throws Exception {
+        StringBuilder text = new StringBuilder("{[");
+        while (text.length() < 4 * ChannelOutput.DEFAULT_BUFFER_SIZE) {
+            text.append("c d e ");
+        }
+        text.append("\\t<\"d]}");
+        try (TranspositionServer server = start()) {
+            send(post(server, "?steps=2", text.toString().getBytes(StandardCharsets.ISO_8859_1)));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+import org.junit.Assert;
+import org.junit.Test;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+public class WatchTransposeTest {
+
+    private static String read(Path file) throws IOException {
+        return Files.exists(file) ? new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1) : null;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 20000;
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue("Timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    public void watch_KeepsOutputsUpToDate() throws Exception {
+        Path in = Files.createTempDirectory("watch-in");
+        Path out = Files.createTempDirectory("watch-out");
+        byte[] bach = ScoreFixtures.resource("/bach.gmn");
+        byte[] mozart = ScoreFixtures.resource("/full_simple_notes.gmn");
+        Files.write(in.resolve("bach.gmn"), bach);
+        WatchTranspose watch = new WatchTranspose(in, out, new int[] {-2, 3}, 2, 50, result -> { });
+        Thread runner = new Thread(watch::run);
+        runner.start();
+        try {
+            Path bachUp = out.resolve("3").resolve("bach.gmn");
+            await(() -> watch.getTransposed() == 1);
+            Assert.assertEquals(ScoreFixtures.parse(bach, 3), read(bachUp));
+            Assert.assertEquals(ScoreFixtures.parse(bach, -2), read(out.resolve("-2").resolve("bach.gmn")));
+
+            //A new directory and file, then an edit
+            Path song = in.resolve("new").resolve("song.gmn");
+            Files.createDirectories(song.getParent());
+            Files.write(song, bach);
+            await(() -> watch.getTransposed() == 2);
+            Files.write(song, mozart);
+            Path songUp = out.resolve("3").resolve("new").resolve("song.gmn");
+            await(() -> watch.getTransposed() == 3);
+            Assert.assertEquals(ScoreFixtures.parse(mozart, 3), read(songUp));
+
+            //Saving the same content is skipped
+            Files.write(song, mozart);
+            await(() -> watch.getUnchanged() == 1);
+            Assert.assertEquals(3, watch.getTransposed());
+
+            //A deleted file loses its outputs
+            Files.delete(in.resolve("bach.gmn"));
+            await(() -> !Files.exists(bachUp));
+        } finally {
+            watch.close();
+            runner.join();
+            ScoreFixtures.delete(in);
+            ScoreFixtures.delete(out);
+        }
+    }
+
+    @Test
+    public void watch_BurstOfWritesTransposedOnce() throws Exception {
+        Path in = Files.createTempDirectory("watch-in");
+        Path out = Files.createTempDirectory("watch-out");
+        byte[] bach = ScoreFixtures.resource("/bach.gmn");
+        WatchTranspose watch = new WatchTranspose(in, out, new int[] {1}, 1, 500, result -> { });
+        Thread runner = new Thread(watch::run);
+        runner.start();
+        try {
+            Path file = in.resolve("bach.gmn");
+            for (int i = 1; i <= 10; i++) {
+                Files.write(file, Arrays.copyOf(bach, bach.length * i / 10));
+                Thread.sleep(10);
+            }
+            await(() -> watch.getTransposed() == 1);
+            Thread.sleep(700);
+            Assert.assertEquals(1, watch.getTransposed());
+            Assert.assertEquals(ScoreFixtures.parse(bach, 1), read(out.resolve("1").resolve("bach.gmn")));
+        } finally {
+            watch.close();
+            runner.join();
+            ScoreFixtures.delete(in);
+            ScoreFixtures.delete(out);
+        }
+    }
+
+    @Test
+    public void constructor_RejectsOutputInsideTheTree() throws IOException {
+        Path in = Files.createTempDirectory("watch-in");
+        try {
+            new WatchTranspose(in, in.resolve("out"), new int[] {1}, 1, 50, result -> { }).close();
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            //Its outputs would be transposed again
+        } finally {
+            ScoreFixtures.delete(in);
+        }
+    }
+}